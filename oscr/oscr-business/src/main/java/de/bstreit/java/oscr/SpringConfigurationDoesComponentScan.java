@@ -28,8 +28,10 @@ package de.bstreit.java.oscr;
 
 import java.util.Currency;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Inject;
+import javax.persistence.SharedCacheMode;
 import javax.sql.DataSource;
 
 import org.springframework.context.annotation.Bean;
@@ -44,6 +46,10 @@ import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.base.persistence.cache.InMemoryRegionFactory;
+import de.bstreit.java.oscr.business.base.persistence.cache.ReferenceDataCache;
 import de.bstreit.java.oscr.business.taxation.TaxInfo;
 import de.bstreit.java.oscr.business.taxation.dao.ITaxInfoRepository;
 
@@ -83,9 +89,29 @@ public class SpringConfigurationDoesComponentScan {
         this.getClass().getPackage().getName();
     lef.setPackagesToScan(thisPackageAndSubpackages);
 
+    lef.setJpaPropertyMap(getCacheProperties());
+
     return lef;
   }
 
+  /**
+   * Second level and query cache for the reference data, see
+   * {@link ReferenceDataCache}
+   */
+  private Map<String, Object> getCacheProperties() {
+    final Map<String, Object> properties = Maps.newHashMap();
+
+    properties.put("javax.persistence.sharedCache.mode",
+        SharedCacheMode.ENABLE_SELECTIVE.name());
+    properties.put("hibernate.cache.use_second_level_cache", "true");
+    properties.put("hibernate.cache.use_query_cache", "true");
+    properties.put("hibernate.cache.region.factory_class",
+        InMemoryRegionFactory.class.getName());
+    properties.put("hibernate.generate_statistics", "true");
+
+    return properties;
+  }
+
   @Bean
   public JpaVendorAdapter jpaVendorAdapter() {
 
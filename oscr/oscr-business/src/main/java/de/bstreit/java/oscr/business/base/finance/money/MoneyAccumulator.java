@@ -0,0 +1,106 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013, 2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --------------------------------------------------------------------------
+ *
+ * See oscr/licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See oscr/README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.finance.money;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Currency;
+
+/**
+ * A mutable sum of money in cents. Meant for loops that sum up many amounts,
+ * where an immutable {@link Money} would create a new object for every
+ * addition. Not thread safe.
+ */
+public class MoneyAccumulator {
+
+  private final Currency currency;
+
+  private long cents = 0;
+
+
+  public MoneyAccumulator(Currency currency) {
+    this.currency = checkNotNull(currency);
+  }
+
+  public MoneyAccumulator add(Money money) {
+    checkNotNull(money);
+    assertSameCurrency(money.getCurrency());
+
+    cents = Math.addExact(cents, MoneyCents.toCents(money));
+    return this;
+  }
+
+  public MoneyAccumulator add(MoneyAccumulator other) {
+    checkNotNull(other);
+    assertSameCurrency(other.getCurrency());
+
+    cents = Math.addExact(cents, other.getCents());
+    return this;
+  }
+
+  public MoneyAccumulator subtract(MoneyAccumulator other) {
+    checkNotNull(other);
+    assertSameCurrency(other.getCurrency());
+
+    cents = Math.subtractExact(cents, other.getCents());
+    return this;
+  }
+
+  /**
+   * @param amountInCents
+   *          in the currency of this accumulator
+   */
+  public MoneyAccumulator addCents(long amountInCents) {
+    cents = Math.addExact(cents, amountInCents);
+    return this;
+  }
+
+  public long getCents() {
+    return cents;
+  }
+
+  public Currency getCurrency() {
+    return currency;
+  }
+
+  public Money toMoney() {
+    return MoneyCents.toMoney(cents, currency);
+  }
+
+  @Override
+  public String toString() {
+    return toMoney().toString();
+  }
+
+  private void assertSameCurrency(Currency otherCurrency) {
+    if (!currency.equals(otherCurrency)) {
+      throw new DifferentCurrenciesException(
+          "Cannot sum up two prices with different currencies!");
+    }
+  }
+
+}
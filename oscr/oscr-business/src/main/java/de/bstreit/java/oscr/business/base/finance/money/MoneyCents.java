@@ -0,0 +1,128 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013, 2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --------------------------------------------------------------------------
+ *
+ * See oscr/licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See oscr/README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.finance.money;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+
+/**
+ * <p>
+ * Money as a primitive long of cents, for summing up large numbers of amounts
+ * without creating a {@link BigDecimal} for every step.
+ * </p>
+ * <p>
+ * {@link Money} always has a scale of two, so conversion in both directions
+ * is exact. {@link #getNet(long, VATClass)} and {@link #getVAT(long, VATClass)}
+ * round exactly like {@link Money#getNet(VATClass)} and
+ * {@link Money#getVAT(VATClass)}.
+ * </p>
+ */
+public final class MoneyCents {
+
+  private MoneyCents() {
+  }
+
+  /**
+   * @return the amount of money in cents
+   * @throws ArithmeticException
+   *           if the amount does not fit into a long
+   */
+  public static long toCents(Money money) {
+    return money.getAmount().unscaledValue().longValueExact();
+  }
+
+  public static Money toMoney(long cents, Currency currency) {
+    return new Money(BigDecimal.valueOf(cents, 2), currency);
+  }
+
+  /**
+   * Same as {@link Money#getNet(VATClass)}:
+   *
+   * <pre>
+   * net = gross / (1 + (vatRate / 100)), rounded half up to cents
+   * </pre>
+   */
+  public static long getNet(long grossCents, VATClass vatClass) {
+    return getNet(grossCents, vatClass.getRate());
+  }
+
+  /**
+   * Same as {@link Money#getVAT(VATClass)}, i.e. gross minus the rounded net.
+   */
+  public static long getVAT(long grossCents, VATClass vatClass) {
+    return grossCents - getNet(grossCents, vatClass);
+  }
+
+  /**
+   * Same as {@link Money#multiply(BigDecimal)}, i.e. rounded half even to
+   * cents.
+   */
+  public static long multiply(long cents, BigDecimal multiplicator) {
+    return BigDecimal.valueOf(cents).multiply(multiplicator)
+        .setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+  }
+
+  static long getNet(long grossCents, BigDecimal vatRate) {
+    // vatRate == unscaledRate / 10^scale, hence
+    // net == gross * 100 * 10^scale / (100 * 10^scale + unscaledRate)
+    long unscaledRate = vatRate.unscaledValue().longValueExact();
+    int scale = vatRate.scale();
+
+    for (; scale < 0; scale++) {
+      unscaledRate = Math.multiplyExact(unscaledRate, 10);
+    }
+
+    long hundred = 100;
+    for (int i = 0; i < scale; i++) {
+      hundred = Math.multiplyExact(hundred, 10);
+    }
+
+    final long divisor = Math.addExact(hundred, unscaledRate);
+    checkArgument(divisor > 0, "Invalid VAT rate %s", vatRate);
+
+    return divideHalfUp(Math.multiplyExact(grossCents, hundred), divisor);
+  }
+
+  /**
+   * Like {@link RoundingMode#HALF_UP}: ties are rounded away from zero.
+   */
+  private static long divideHalfUp(long dividend, long divisor) {
+    final long quotient = dividend / divisor;
+    final long remainder = dividend % divisor;
+
+    if (Math.abs(remainder) * 2 >= divisor) {
+      return quotient + Long.signum(dividend);
+    }
+
+    return quotient;
+  }
+}
@@ -0,0 +1,120 @@
+package de.bstreit.java.oscr.business.base.finance.tax;
+
+import java.util.Currency;
+
+import javax.inject.Named;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.money.MoneyCents;
+
+/**
+ * <p>
+ * Net and VAT of a gross amount, computed once per amount, currency and
+ * {@link VATClass}. A café sells only a few hundred different prices, so the
+ * same divisions would otherwise be repeated for every bill item.
+ * </p>
+ * 
+ * <p>
+ * The cache is bounded and thread safe. The key contains the VAT class, which
+ * is compared by designation and validFrom, and its rate. A new continuance
+ * version of a VAT class therefore never hits the entries of the old version;
+ * those are evicted over time.
+ * </p>
+ */
+@Named
+public class NetAndVATCache {
+
+	private static final int MAXIMUM_SIZE = 4096;
+
+	private final LoadingCache<Key, NetAndVAT> cache = CacheBuilder
+			.newBuilder().maximumSize(MAXIMUM_SIZE)
+			.build(new CacheLoader<Key, NetAndVAT>() {
+
+				@Override
+				public NetAndVAT load(Key key) {
+					final long net = MoneyCents.getNet(key.grossCents, key.vatClass);
+					return new NetAndVAT(net, key.grossCents - net, key.currency);
+				}
+			});
+
+
+	/**
+	 * @return the same values as {@link Money#getNet(VATClass)} and
+	 *         {@link Money#getVAT(VATClass)}
+	 */
+	public NetAndVAT get(Money gross, VATClass vatClass) {
+		return cache.getUnchecked(new Key(MoneyCents.toCents(gross), gross
+				.getCurrency(), vatClass));
+	}
+
+	/**
+	 * Immutable net and VAT of a gross amount.
+	 */
+	public static final class NetAndVAT {
+
+		private final long netCents;
+		private final long vatCents;
+		private final Money net;
+		private final Money vat;
+
+		private NetAndVAT(long netCents, long vatCents, Currency currency) {
+			this.netCents = netCents;
+			this.vatCents = vatCents;
+			this.net = MoneyCents.toMoney(netCents, currency);
+			this.vat = MoneyCents.toMoney(vatCents, currency);
+		}
+
+		public Money getNet() {
+			return net;
+		}
+
+		public Money getVAT() {
+			return vat;
+		}
+
+		public long getNetCents() {
+			return netCents;
+		}
+
+		public long getVATCents() {
+			return vatCents;
+		}
+	}
+
+	private static final class Key {
+
+		private final long grossCents;
+		private final Currency currency;
+		private final VATClass vatClass;
+
+		private Key(long grossCents, Currency currency, VATClass vatClass) {
+			this.grossCents = grossCents;
+			this.currency = currency;
+			this.vatClass = vatClass;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			final Key other = (Key) obj;
+			return grossCents == other.grossCents
+					&& currency.equals(other.currency)
+					&& vatClass.equals(other.vatClass)
+					&& vatClass.getRate().compareTo(other.vatClass.getRate()) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = (int) (grossCents ^ (grossCents >>> 32));
+			result = 31 * result + currency.hashCode();
+			return 31 * result + vatClass.hashCode();
+		}
+	}
+}
@@ -29,10 +29,13 @@ package de.bstreit.java.oscr.business.base.finance.tax;
 import java.math.BigDecimal;
 import java.util.Date;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.NaturalId;
 
 import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObjectWithContinuance;
@@ -53,6 +56,8 @@ import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObjectWi
  * @author streit
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class VATClass extends AbstractPersistentObjectWithContinuance<VATClass> {
 
 	@NaturalId
@@ -31,9 +31,11 @@ import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.base.persistence.IContinuanceRepository;
 
 
-public interface IVATClassRepository extends JpaRepository<VATClass, Long> {
+public interface IVATClassRepository extends JpaRepository<VATClass, Long>,
+    IContinuanceRepository<VATClass> {
 
   public VATClass findByDesignationAndValidToIsNull(String designation);
 
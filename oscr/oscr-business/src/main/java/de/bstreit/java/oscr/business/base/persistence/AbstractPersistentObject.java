@@ -48,6 +48,17 @@ public abstract class AbstractPersistentObject {
 		return id;
 	}
 
+	/**
+	 * Take over the id generated when a copy of this object was persisted, e.g.
+	 * by a merge. Otherwise, merging this very instance again would insert it a
+	 * second time.
+	 */
+	protected void adoptIdOf(AbstractPersistentObject persistedCopy) {
+		if (id == null) {
+			id = persistedCopy.id;
+		}
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + "[id=" + id + "]";
@@ -183,6 +183,17 @@ public abstract class AbstractPersistentObjectWithContinuance<SUB_TYPE_IMPL_ADD_
     return validTo;
   }
 
+  /**
+   * @return true, if this item is valid at the given point in time - in the
+   *         same way the queries compare with <code>current_timestamp</code>,
+   *         but a {@link #validFrom} date of <code>null</code> means "since
+   *         ever"
+   */
+  public boolean isValidAt(Date date) {
+    return (validFrom == null || validFrom.before(date))
+        && (validTo == null || validTo.after(date));
+  }
+
   public void setValidTo(Date validTo) {
     if (this.validTo != null) {
       throw new IllegalStateException(
@@ -0,0 +1,207 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.persistence;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * <p>
+ * All versions of items with continuance, by natural id and in the order of
+ * their {@link AbstractPersistentObjectWithContinuance#getValidFrom() validFrom}
+ * date. Answers which version was valid at a certain point in time, and which
+ * versions were valid within a time range, in logarithmic time - e.g. the price
+ * of an offer or the VAT rate on the date of a bill.
+ * </p>
+ *
+ * <p>
+ * As the versions of an item do not overlap, the version valid at a point in
+ * time is the one that became valid last before, if it was not archived before
+ * that point in time.
+ * </p>
+ *
+ * <p>
+ * {@link #refresh(IContinuanceRepository)} only reads the versions inserted or
+ * archived since the previous refresh; single versions can be added by
+ * {@link #put(AbstractPersistentObjectWithContinuance)}.
+ * </p>
+ *
+ * @param <K>
+ *            the type of the natural id, e.g. the name of a product or the
+ *            denotation of a tax info
+ */
+public class ContinuanceIndex<K, T extends AbstractPersistentObjectWithContinuance<?>> {
+
+	/**
+	 * How far a refresh reads back before the previous one, for versions that
+	 * were not committed yet when it ran
+	 */
+	static final long REFRESH_OVERLAP_MS = 60 * 1000;
+
+	private final Function<T, K> naturalIdOf;
+
+	/** the versions by natural id, by validFrom in ms */
+	private final Map<K, NavigableMap<Long, T>> versionsByNaturalId = Maps
+			.newHashMap();
+
+	private long lastId = -1;
+
+	private Date lastRefresh = new Date(0);
+
+
+	public ContinuanceIndex(Function<T, K> naturalIdOf) {
+		this.naturalIdOf = naturalIdOf;
+	}
+
+	/**
+	 * Read the versions inserted or archived since the last refresh - or all
+	 * versions, on the first refresh. The index can be read while the
+	 * repository is queried.
+	 *
+	 * @return true, if any version was read
+	 */
+	public boolean refresh(IContinuanceRepository<T> repository) {
+		final Date refreshDate = new Date();
+		final long lastIdRead;
+		final Date lastRefreshRead;
+
+		synchronized (this) {
+			lastIdRead = lastId;
+			lastRefreshRead = lastRefresh;
+		}
+
+		final List<T> changedVersions = repository.findChangedSince(lastIdRead,
+				lastRefreshRead);
+
+		synchronized (this) {
+			for (final T version : changedVersions) {
+				put(version);
+			}
+
+			lastRefresh = new Date(refreshDate.getTime() - REFRESH_OVERLAP_MS);
+		}
+
+		return !changedVersions.isEmpty();
+	}
+
+	/**
+	 * Add a version, or replace the one with the same natural id and validFrom
+	 * date, e.g. after it was archived.
+	 */
+	public synchronized void put(T version) {
+		NavigableMap<Long, T> versions = versionsByNaturalId.get(naturalIdOf
+				.apply(version));
+
+		if (versions == null) {
+			versions = Maps.newTreeMap();
+			versionsByNaturalId.put(naturalIdOf.apply(version), versions);
+		}
+
+		versions.put(toKey(version.getValidFrom()), version);
+
+		if (version.getId() != null) {
+			lastId = Math.max(lastId, version.getId());
+		}
+	}
+
+	/**
+	 * @return the version valid at the given date, or null
+	 */
+	public synchronized T getAsOf(K naturalId, Date date) {
+		final NavigableMap<Long, T> versions = versionsByNaturalId.get(naturalId);
+
+		if (versions == null) {
+			return null;
+		}
+
+		final Map.Entry<Long, T> lastStarted = versions.lowerEntry(date.getTime());
+
+		if (lastStarted == null || !lastStarted.getValue().isValidAt(date)) {
+			return null;
+		}
+
+		return lastStarted.getValue();
+	}
+
+	/**
+	 * @return the versions valid at some point in time between from and to, in
+	 *         the order they became valid
+	 */
+	public synchronized List<T> getOverlapping(K naturalId, Date from, Date to) {
+		final NavigableMap<Long, T> versions = versionsByNaturalId.get(naturalId);
+
+		if (versions == null) {
+			return ImmutableList.of();
+		}
+
+		// only the last version started before may reach into the range
+		final Long firstKey = versions.floorKey(from.getTime());
+
+		final ImmutableList.Builder<T> overlapping = ImmutableList.builder();
+		for (final T version : versions.subMap(
+				firstKey == null ? Long.MIN_VALUE : firstKey, true, to.getTime(),
+				false).values()) {
+
+			if (version.getValidTo() == null || version.getValidTo().after(from)) {
+				overlapping.add(version);
+			}
+		}
+
+		return overlapping.build();
+	}
+
+	/**
+	 * @return all versions of all items
+	 */
+	public synchronized List<T> getAll() {
+		final ImmutableList.Builder<T> all = ImmutableList.builder();
+
+		for (final NavigableMap<Long, T> versions : versionsByNaturalId.values()) {
+			all.addAll(versions.values());
+		}
+
+		return all.build();
+	}
+
+	public synchronized Set<K> getNaturalIds() {
+		return ImmutableSet.copyOf(versionsByNaturalId.keySet());
+	}
+
+	private static long toKey(Date validFrom) {
+		// null means valid since ever
+		return validFrom == null ? Long.MIN_VALUE : validFrom.getTime();
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.persistence;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Repositories of items with continuance that can be kept in a
+ * {@link ContinuanceIndex}.
+ */
+@NoRepositoryBean
+public interface IContinuanceRepository<T extends AbstractPersistentObjectWithContinuance<?>>
+		extends Repository<T, Long> {
+
+	/**
+	 * @return the items inserted after the item with the given id, and the
+	 *         items becoming valid or invalid at or after the given date - i.e.
+	 *         all items that were inserted or archived since
+	 */
+	@Query("FROM #{#entityName} item WHERE item.id > ?1 OR item.validFrom >= ?2 OR item.validTo >= ?2")
+	public List<T> findChangedSince(Long id, Date date);
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.persistence.cache;
+
+import org.hibernate.cache.spi.access.CollectionRegionAccessStrategy;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.NaturalIdRegionAccessStrategy;
+import org.hibernate.cache.spi.access.SoftLock;
+
+/**
+ * Nonstrict read/write access to an {@link InMemoryRegion}: entries are only
+ * put when loaded from the database, and removed whenever the entity or
+ * collection is changed or removed - after the transaction, too, so a stale
+ * entry put in the meantime does not survive.
+ */
+class InMemoryAccessStrategy implements EntityRegionAccessStrategy,
+		CollectionRegionAccessStrategy, NaturalIdRegionAccessStrategy {
+
+	private final InMemoryRegion region;
+
+
+	InMemoryAccessStrategy(InMemoryRegion region) {
+		this.region = region;
+	}
+
+	@Override
+	public InMemoryRegion getRegion() {
+		return region;
+	}
+
+	@Override
+	public Object get(Object key, long txTimestamp) {
+		return region.get(key);
+	}
+
+	@Override
+	public boolean putFromLoad(Object key, Object value, long txTimestamp,
+			Object version) {
+		return putFromLoad(key, value, txTimestamp, version, false);
+	}
+
+	@Override
+	public boolean putFromLoad(Object key, Object value, long txTimestamp,
+			Object version, boolean minimalPutOverride) {
+		return region.put(key, value, minimalPutOverride);
+	}
+
+	@Override
+	public SoftLock lockItem(Object key, Object version) {
+		return null;
+	}
+
+	@Override
+	public SoftLock lockRegion() {
+		return null;
+	}
+
+	@Override
+	public void unlockItem(Object key, SoftLock lock) {
+		region.evict(key);
+	}
+
+	@Override
+	public void unlockRegion(SoftLock lock) {
+		region.evictAll();
+	}
+
+	@Override
+	public void remove(Object key) {
+		region.evict(key);
+	}
+
+	@Override
+	public void removeAll() {
+		region.evictAll();
+	}
+
+	@Override
+	public void evict(Object key) {
+		region.evict(key);
+	}
+
+	@Override
+	public void evictAll() {
+		region.evictAll();
+	}
+
+	@Override
+	public boolean insert(Object key, Object value, Object version) {
+		return false;
+	}
+
+	@Override
+	public boolean afterInsert(Object key, Object value, Object version) {
+		return false;
+	}
+
+	@Override
+	public boolean update(Object key, Object value, Object currentVersion,
+			Object previousVersion) {
+		region.evict(key);
+		return false;
+	}
+
+	@Override
+	public boolean afterUpdate(Object key, Object value, Object currentVersion,
+			Object previousVersion, SoftLock lock) {
+		unlockItem(key, lock);
+		return false;
+	}
+
+	@Override
+	public boolean insert(Object key, Object value) {
+		return false;
+	}
+
+	@Override
+	public boolean afterInsert(Object key, Object value) {
+		return false;
+	}
+
+	@Override
+	public boolean update(Object key, Object value) {
+		region.evict(key);
+		return false;
+	}
+
+	@Override
+	public boolean afterUpdate(Object key, Object value, SoftLock lock) {
+		unlockItem(key, lock);
+		return false;
+	}
+
+}
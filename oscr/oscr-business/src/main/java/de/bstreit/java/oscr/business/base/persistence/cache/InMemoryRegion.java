@@ -0,0 +1,164 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.persistence.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.access.AccessType;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * A region of the {@link InMemoryRegionFactory}. The same implementation
+ * serves all kinds of regions.
+ */
+class InMemoryRegion implements EntityRegion, CollectionRegion,
+		NaturalIdRegion, QueryResultsRegion, TimestampsRegion {
+
+	private final String name;
+
+	/** null for query results and timestamps */
+	private final CacheDataDescription metadata;
+
+	private final ConcurrentMap<Object, Object> entries = Maps
+			.newConcurrentMap();
+
+
+	InMemoryRegion(String name, CacheDataDescription metadata) {
+		this.name = name;
+		this.metadata = metadata;
+	}
+
+	@Override
+	public InMemoryAccessStrategy buildAccessStrategy(AccessType accessType) {
+		if (accessType == AccessType.TRANSACTIONAL) {
+			throw new CacheException("Access type " + accessType
+					+ " is not supported by region " + name);
+		}
+
+		return new InMemoryAccessStrategy(this);
+	}
+
+	@Override
+	public Object get(Object key) {
+		return entries.get(key);
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		entries.put(key, value);
+	}
+
+	/**
+	 * @return false, if there already was a value and it was kept
+	 */
+	boolean put(Object key, Object value, boolean keepExisting) {
+		if (keepExisting) {
+			return entries.putIfAbsent(key, value) == null;
+		}
+
+		entries.put(key, value);
+		return true;
+	}
+
+	@Override
+	public void evict(Object key) {
+		entries.remove(key);
+	}
+
+	@Override
+	public void evictAll() {
+		entries.clear();
+	}
+
+	@Override
+	public boolean isTransactionAware() {
+		return false;
+	}
+
+	@Override
+	public CacheDataDescription getCacheDataDescription() {
+		return metadata;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public void destroy() {
+		entries.clear();
+	}
+
+	@Override
+	public boolean contains(Object key) {
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public long getSizeInMemory() {
+		// unknown
+		return -1;
+	}
+
+	@Override
+	public long getElementCountInMemory() {
+		return entries.size();
+	}
+
+	@Override
+	public long getElementCountOnDisk() {
+		return 0;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Map toMap() {
+		return ImmutableMap.copyOf(entries);
+	}
+
+	@Override
+	public long nextTimestamp() {
+		return InMemoryRegionFactory.nextTimestampStatic();
+	}
+
+	@Override
+	public int getTimeout() {
+		return InMemoryRegionFactory.TIMEOUT;
+	}
+
+}
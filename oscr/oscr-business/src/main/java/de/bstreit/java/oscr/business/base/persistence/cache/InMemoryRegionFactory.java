@@ -0,0 +1,141 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.persistence.cache;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cfg.Settings;
+
+/**
+ * <p>
+ * Second level and query cache of hibernate, kept in maps on the heap of this
+ * single application. Meant for the reference data - offers, products, tax
+ * infos, users - that is read for every bill but changes a few times a month
+ * only; see {@link ReferenceDataCache}.
+ * </p>
+ *
+ * <p>
+ * Cached entries are never updated, but removed when the entity is changed
+ * (nonstrict read/write). There is no expiry and no size limit; changes made
+ * by other applications, e.g. the admin tool, are picked up when the
+ * {@link de.bstreit.java.oscr.business.offers.OfferService} invalidates the
+ * whole cache before reloading the offers every few minutes.
+ * </p>
+ */
+public class InMemoryRegionFactory implements RegionFactory {
+
+	/** timestamps are milliseconds shifted by this, see {@link #nextTimestamp()} */
+	static final int TIMESTAMP_SHIFT = 12;
+
+	/** a minute, in timestamp units */
+	static final int TIMEOUT = 60000 << TIMESTAMP_SHIFT;
+
+	private static final AtomicLong lastTimestamp = new AtomicLong();
+
+
+	@Override
+	public void start(Settings settings, Properties properties) {
+		// nothing to do
+	}
+
+	@Override
+	public void stop() {
+		// nothing to do
+	}
+
+	@Override
+	public boolean isMinimalPutsEnabledByDefault() {
+		return true;
+	}
+
+	@Override
+	public AccessType getDefaultAccessType() {
+		return AccessType.NONSTRICT_READ_WRITE;
+	}
+
+	/**
+	 * Increasing timestamps, based on the current time - up to 4096 per
+	 * millisecond.
+	 */
+	@Override
+	public long nextTimestamp() {
+		return nextTimestampStatic();
+	}
+
+	static long nextTimestampStatic() {
+		final long now = System.currentTimeMillis() << TIMESTAMP_SHIFT;
+
+		while (true) {
+			final long last = lastTimestamp.get();
+			final long next = now > last ? now : last + 1;
+
+			if (lastTimestamp.compareAndSet(last, next)) {
+				return next;
+			}
+		}
+	}
+
+	@Override
+	public EntityRegion buildEntityRegion(String regionName,
+			Properties properties, CacheDataDescription metadata) {
+		return new InMemoryRegion(regionName, metadata);
+	}
+
+	@Override
+	public NaturalIdRegion buildNaturalIdRegion(String regionName,
+			Properties properties, CacheDataDescription metadata) {
+		return new InMemoryRegion(regionName, metadata);
+	}
+
+	@Override
+	public CollectionRegion buildCollectionRegion(String regionName,
+			Properties properties, CacheDataDescription metadata) {
+		return new InMemoryRegion(regionName, metadata);
+	}
+
+	@Override
+	public QueryResultsRegion buildQueryResultsRegion(String regionName,
+			Properties properties) {
+		return new InMemoryRegion(regionName, null);
+	}
+
+	@Override
+	public TimestampsRegion buildTimestampsRegion(String regionName,
+			Properties properties) {
+		return new InMemoryRegion(regionName, null);
+	}
+
+}
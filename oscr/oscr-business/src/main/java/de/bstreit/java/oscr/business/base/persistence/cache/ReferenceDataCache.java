@@ -0,0 +1,133 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.persistence.cache;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>
+ * Access to the second level and query cache, see
+ * {@link InMemoryRegionFactory}. Only the reference data is cached - the
+ * entities annotated with <code>@Cacheable</code>, and the results of queries
+ * with the hint <code>org.hibernate.cacheable</code>.
+ * </p>
+ *
+ * <p>
+ * Changes made with hibernate remove the affected entries anyway. Whoever
+ * changes reference data should still call {@link #invalidate()}, so cached
+ * query results and entities changed by other means are not used anymore.
+ * That only affects the cache of the calling application; the cash register
+ * invalidates its cache periodically, see
+ * {@link de.bstreit.java.oscr.business.offers.OfferService}.
+ * </p>
+ */
+@Named
+public class ReferenceDataCache {
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(ReferenceDataCache.class);
+
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+
+
+	/**
+	 * Remove all cached entities and query results. Within a transaction, this
+	 * happens when the transaction is completed.
+	 */
+	public void invalidate() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			evictAll();
+			return;
+		}
+
+		TransactionSynchronizationManager
+				.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+					@Override
+					public void afterCompletion(int status) {
+						evictAll();
+					}
+				});
+	}
+
+	private void evictAll() {
+		logger.debug("Invalidating the reference data cache");
+
+		entityManagerFactory.getCache().evictAll();
+		getSessionFactory().getCache().evictQueryRegions();
+	}
+
+	/** @return number of entities found in the cache */
+	public long getHitCount() {
+		return getStatistics().getSecondLevelCacheHitCount();
+	}
+
+	/** @return number of entities not found in the cache */
+	public long getMissCount() {
+		return getStatistics().getSecondLevelCacheMissCount();
+	}
+
+	/** @return number of query results found in the cache */
+	public long getQueryHitCount() {
+		return getStatistics().getQueryCacheHitCount();
+	}
+
+	/** @return number of query results not found in the cache */
+	public long getQueryMissCount() {
+		return getStatistics().getQueryCacheMissCount();
+	}
+
+	@Override
+	public String toString() {
+		return "ReferenceDataCache [hits=" + getHitCount() + ", misses="
+				+ getMissCount() + ", queryHits=" + getQueryHitCount()
+				+ ", queryMisses=" + getQueryMissCount() + "]";
+	}
+
+	@PreDestroy
+	private void logStatistics() {
+		logger.info(toString());
+	}
+
+	private Statistics getStatistics() {
+		return getSessionFactory().getStatistics();
+	}
+
+	private SessionFactory getSessionFactory() {
+		return entityManagerFactory.unwrap(SessionFactory.class);
+	}
+
+}
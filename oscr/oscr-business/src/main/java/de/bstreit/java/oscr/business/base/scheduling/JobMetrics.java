@@ -0,0 +1,74 @@
+package de.bstreit.java.oscr.business.base.scheduling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How often and how long the jobs of one name ran, see
+ * {@link SchedulerService#getMetrics()}. Jobs scheduled again under the same
+ * name - e.g. one-shot jobs - add up.
+ */
+public final class JobMetrics {
+
+	private final String name;
+
+	private long runs = 0;
+
+	private long failures = 0;
+
+	private long totalNanos = 0;
+
+	private long maxNanos = 0;
+
+	private long lastNanos = 0;
+
+
+	JobMetrics(String name) {
+		this.name = name;
+	}
+
+	synchronized void record(long nanos, boolean failed) {
+		runs++;
+		if (failed) {
+			failures++;
+		}
+
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+		lastNanos = nanos;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized long getRuns() {
+		return runs;
+	}
+
+	/**
+	 * @return the runs that ended with an exception
+	 */
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	public synchronized long getTotalMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+	}
+
+	public synchronized long getMaxMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+	}
+
+	public synchronized long getLastMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lastNanos);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return name + ": " + runs + " runs (" + failures + " failed), "
+				+ getTotalMillis() + " ms total, " + getMaxMillis() + " ms max, "
+				+ getLastMillis() + " ms last";
+	}
+
+}
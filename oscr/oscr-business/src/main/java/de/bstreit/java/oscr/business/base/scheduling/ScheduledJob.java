@@ -0,0 +1,172 @@
+package de.bstreit.java.oscr.business.base.scheduling;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A job of the {@link SchedulerService}: run once, with a fixed delay, or
+ * whenever it is {@link #trigger() triggered}.
+ * </p>
+ *
+ * <p>
+ * Triggers are debounced: the job runs once the triggers paused for the quiet
+ * period, but not later than the maximum delay after the first trigger that
+ * is not served yet. A job never runs twice at the same time; a trigger during
+ * a run leads to another run.
+ * </p>
+ */
+public final class ScheduledJob {
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(ScheduledJob.class);
+
+	private final SchedulerService scheduler;
+
+	private final String name;
+
+	private final Runnable task;
+
+	private final JobMetrics metrics;
+
+	private final long quietPeriodMs;
+
+	private final long maxDelayMs;
+
+	/** runs of the same job are serialised */
+	private final Object runLock = new Object();
+
+	/** the one-shot or fixed delay run, guarded by this */
+	private ScheduledFuture<?> scheduledRun;
+
+	/** the run of the triggers not served yet, guarded by this */
+	private ScheduledFuture<?> triggeredRun;
+
+	/** when the first trigger not served yet came, guarded by this */
+	private long firstTriggerMs;
+
+	/** to tell a triggered run that it was replaced, guarded by this */
+	private long triggerGeneration = 0;
+
+	private boolean cancelled = false;
+
+
+	ScheduledJob(SchedulerService scheduler, String name, Runnable task,
+			JobMetrics metrics, long quietPeriodMs, long maxDelayMs) {
+		this.scheduler = scheduler;
+		this.name = name;
+		this.task = task;
+		this.metrics = metrics;
+		this.quietPeriodMs = quietPeriodMs;
+		this.maxDelayMs = maxDelayMs;
+	}
+
+	synchronized void setScheduledRun(ScheduledFuture<?> scheduledRun) {
+		this.scheduledRun = scheduledRun;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public JobMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Run the job after the quiet period, see {@link ScheduledJob}. Ignored,
+	 * if the job was cancelled.
+	 */
+	public synchronized void trigger() {
+		if (cancelled) {
+			return;
+		}
+
+		final long now = System.currentTimeMillis();
+
+		if (triggeredRun == null) {
+			firstTriggerMs = now;
+		} else {
+			triggeredRun.cancel(false);
+		}
+
+		final long runAt = Math.min(now + quietPeriodMs, firstTriggerMs
+				+ maxDelayMs);
+		final long generation = ++triggerGeneration;
+
+		triggeredRun = scheduler.getExecutor().schedule(
+				() -> runTriggered(generation), Math.max(runAt - now, 0),
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Do not run the job anymore; a run going on is finished.
+	 */
+	public void cancel() {
+		stop();
+	}
+
+	/**
+	 * Cancel the job.
+	 *
+	 * @return true, if triggers were not served yet
+	 */
+	synchronized boolean stop() {
+		cancelled = true;
+		scheduler.remove(this);
+
+		if (scheduledRun != null) {
+			scheduledRun.cancel(false);
+		}
+
+		if (triggeredRun == null) {
+			return false;
+		}
+
+		triggeredRun.cancel(false);
+		triggeredRun = null;
+		triggerGeneration++;
+
+		return true;
+	}
+
+	private void runTriggered(long generation) {
+		synchronized (this) {
+			if (generation != triggerGeneration) {
+				// triggered again, while this one was about to start
+				return;
+			}
+			triggeredRun = null;
+		}
+
+		run();
+	}
+
+	void runOnce() {
+		scheduler.remove(this);
+		run();
+	}
+
+	void run() {
+		synchronized (runLock) {
+			final long start = System.nanoTime();
+			boolean failed = true;
+
+			try {
+				task.run();
+				failed = false;
+			} catch (final RuntimeException e) {
+				// a periodic job must go on with the next run
+				logger.error("Job " + name + " failed", e);
+			} finally {
+				metrics.record(System.nanoTime() - start, failed);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,152 @@
+package de.bstreit.java.oscr.business.base.scheduling;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * Runs the background jobs - exports, reloads - on a few shared threads,
+ * instead of a thread per job. The threads have a lower priority than the
+ * user interface, and do not keep the application alive.
+ * </p>
+ *
+ * <p>
+ * {@link #shutdown()} serves the triggers that are pending, and waits for the
+ * runs going on; jobs are not started afterwards.
+ * </p>
+ */
+@Named
+public class SchedulerService {
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(SchedulerService.class);
+
+	static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+	@Value("${scheduler.threads:2}")
+	private int numberOfThreads = 2;
+
+	private ScheduledThreadPoolExecutor executor;
+
+	private final Set<ScheduledJob> jobs = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, JobMetrics> metricsByName = new ConcurrentHashMap<>();
+
+
+	@PostConstruct
+	void init() {
+		executor = new ScheduledThreadPoolExecutor(numberOfThreads,
+				new ThreadFactoryBuilder().setNameFormat("scheduler-%d")
+						.setDaemon(true).setPriority(Thread.NORM_PRIORITY - 2)
+						.build());
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Run the task once, after the delay.
+	 */
+	public ScheduledJob schedule(String name, Runnable task, long delay,
+			TimeUnit unit) {
+		final ScheduledJob job = add(name, task, 0, 0);
+		job.setScheduledRun(executor.schedule(job::runOnce, delay, unit));
+		return job;
+	}
+
+	/**
+	 * Run the task repeatedly, the given delay after the end of the last run.
+	 */
+	public ScheduledJob scheduleWithFixedDelay(String name, Runnable task,
+			long initialDelay, long delay, TimeUnit unit) {
+		final ScheduledJob job = add(name, task, 0, 0);
+		job.setScheduledRun(executor.scheduleWithFixedDelay(job::run,
+				initialDelay, delay, unit));
+		return job;
+	}
+
+	/**
+	 * Run the task when the job is {@link ScheduledJob#trigger() triggered} -
+	 * once the triggers paused for the quiet period, but not later than the
+	 * maximum delay after the first trigger.
+	 */
+	public ScheduledJob scheduleOnTrigger(String name, Runnable task,
+			long quietPeriod, long maxDelay, TimeUnit unit) {
+		return add(name, task, unit.toMillis(quietPeriod),
+				unit.toMillis(maxDelay));
+	}
+
+	private ScheduledJob add(String name, Runnable task, long quietPeriodMs,
+			long maxDelayMs) {
+		final JobMetrics metrics = metricsByName.computeIfAbsent(name,
+				JobMetrics::new);
+		final ScheduledJob job = new ScheduledJob(this, name, task, metrics,
+				quietPeriodMs, maxDelayMs);
+
+		jobs.add(job);
+		return job;
+	}
+
+	void remove(ScheduledJob job) {
+		jobs.remove(job);
+	}
+
+	ScheduledExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return the metrics of all jobs that were scheduled, by name
+	 */
+	public Collection<JobMetrics> getMetrics() {
+		return ImmutableList.copyOf(metricsByName.values());
+	}
+
+	/**
+	 * Stop the jobs, serve the pending triggers and wait for the runs to
+	 * finish. Does nothing, if called again.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		if (executor.isShutdown()) {
+			return;
+		}
+
+		for (final ScheduledJob job : ImmutableList.copyOf(jobs)) {
+			if (job.stop()) {
+				executor.execute(job::run);
+			}
+		}
+
+		executor.shutdown();
+
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS,
+					TimeUnit.SECONDS)) {
+				logger.warn("Jobs still running after " + SHUTDOWN_TIMEOUT_SECONDS
+						+ " s, interrupting them");
+				executor.shutdownNow();
+			}
+		} catch (final InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		for (final JobMetrics metrics : getMetrics()) {
+			logger.info(metrics.toString());
+		}
+	}
+
+}
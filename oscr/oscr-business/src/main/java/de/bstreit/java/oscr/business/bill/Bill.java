@@ -28,10 +28,13 @@ package de.bstreit.java.oscr.business.bill;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.persistence.CascadeType;
@@ -40,10 +43,16 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Transient;
+
+import org.hibernate.annotations.BatchSize;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 
+import de.bstreit.java.oscr.business.bill.dao.IBillRepositoryCustom;
+import de.bstreit.java.oscr.business.bill.journal.BillJournal;
 import de.bstreit.java.oscr.business.staff.User;
 import de.bstreit.java.oscr.business.taxation.TaxInfo;
 
@@ -56,7 +65,7 @@ public class Bill implements Iterable<BillItem> {
 
 	@Id
 	@Column(length = 36)
-	private final String id = UUID.randomUUID().toString();
+	private final String id;
 
 	/**
 	 * An optional description of the bill, can help to identify an opened bill
@@ -65,7 +74,9 @@ public class Bill implements Iterable<BillItem> {
 	@Column(nullable = true)
 	private String description;
 
+	/** loaded for many bills at once when streaming, see IBillRepositoryCustom */
 	@OneToMany(cascade = CascadeType.ALL)
+	@BatchSize(size = IBillRepositoryCustom.DEFAULT_FETCH_SIZE)
 	private final List<BillItem> billItems = new ArrayList<BillItem>();
 
 	/** The date when the bill was opened. */
@@ -106,8 +117,44 @@ public class Bill implements Iterable<BillItem> {
 	@Column(nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
 	private boolean freePromotionOffer = false;
 
+	/**
+	 * The sequence number of the last change recorded in the
+	 * {@link BillJournal} that is contained in this state of the bill. When
+	 * replaying the journal, changes up to this number are skipped - they made
+	 * it into the database, even if confirming them in the journal did not.
+	 */
+	@Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+	private long journalSequence = 0;
+
+	/** the events applied in this session, the last one first */
+	@Transient
+	private final Deque<BillEvent> events = new ArrayDeque<BillEvent>();
+
+	/** the events undone since the last event was applied */
+	@Transient
+	private final Deque<BillEvent> undoneEvents = new ArrayDeque<BillEvent>();
+
+	/**
+	 * The ids of the bill items as saved last, see {@link BillWriter}; null as
+	 * long as the bill was not saved as a whole, or if saving failed
+	 */
+	@Transient
+	private Set<Long> savedBillItemIds = null;
+
+	/** the bill items whose offers changed since {@link #takeChangedBillItems()} */
+	@Transient
+	private final Set<BillItem> changedBillItems = Sets.newIdentityHashSet();
+
 
 	Bill(TaxInfo defaultGlobalTaxInfo, Date billOpeningDate) {
+		this(UUID.randomUUID().toString(), defaultGlobalTaxInfo, billOpeningDate);
+	}
+
+	/**
+	 * Re-create a bill with a known id, see {@link BillJournalReplayer}
+	 */
+	Bill(String id, TaxInfo defaultGlobalTaxInfo, Date billOpeningDate) {
+		this.id = id;
 		checkNotNull(defaultGlobalTaxInfo);
 		setGlobalTaxInfo(defaultGlobalTaxInfo);
 		billOpened = billOpeningDate;
@@ -115,12 +162,83 @@ public class Bill implements Iterable<BillItem> {
 
 	public Bill() {
 		// for spring
+		id = UUID.randomUUID().toString();
+	}
+
+	/**
+	 * @see #snapshot()
+	 */
+	private Bill(Bill original) {
+		id = original.id;
+		description = original.description;
+		billOpened = original.billOpened;
+		billClosed = original.billClosed;
+		globalTaxInfo = original.globalTaxInfo;
+		cashier = original.cashier;
+		internalConsumer = original.internalConsumer;
+		twentyPercentOff = original.twentyPercentOff;
+		freePromotionOffer = original.freePromotionOffer;
+		journalSequence = original.journalSequence;
+
+		for (final BillItem item : original.billItems) {
+			billItems.add(item.snapshot());
+		}
 	}
 
 	void addBillItem(BillItem item) {
 		billItems.add(item);
 	}
 
+	void removeLastBillItem() {
+		billItems.remove(billItems.size() - 1);
+	}
+
+	/**
+	 * Apply the change and keep it to be undone. Drops the events that could be
+	 * redone.
+	 */
+	void apply(BillEvent event) {
+		event.apply(this);
+
+		events.push(event);
+		undoneEvents.clear();
+		noteChange(event);
+	}
+
+	/**
+	 * @return the events applied to this bill since it was created or loaded
+	 *         and that were not undone, in the order they were applied
+	 */
+	public List<BillEvent> getEvents() {
+		return ImmutableList.copyOf(events).reverse();
+	}
+
+	/**
+	 * @return the event undone by {@link #undoLastAction()}, or null
+	 */
+	BillEvent getLastEvent() {
+		return events.peek();
+	}
+
+	/**
+	 * @return the event applied by {@link #redoLastUndoneAction()}, or null
+	 */
+	BillEvent getLastUndoneEvent() {
+		return undoneEvents.peek();
+	}
+
+	/**
+	 * @return true, if the very bill item is on this bill
+	 */
+	boolean holds(BillItem billItem) {
+		for (final BillItem item : billItems) {
+			if (item == billItem) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * In case this was consumed by a member of the staff
 	 *
@@ -136,6 +254,10 @@ public class Bill implements Iterable<BillItem> {
 		this.internalConsumer = null;
 	}
 
+	void setOrClearStaffConsumer(User internalConsumer) {
+		this.internalConsumer = internalConsumer;
+	}
+
 	/**
 	 * @return the {@link #globalTaxInfo}
 	 */
@@ -167,6 +289,17 @@ public class Bill implements Iterable<BillItem> {
 		return freePromotionOffer;
 	}
 
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the {@link #description}, or null
+	 */
+	public String getDescription() {
+		return description;
+	}
+
 	/**
 	 * @return the {@link #billClosed}
 	 */
@@ -228,19 +361,119 @@ public class Bill implements Iterable<BillItem> {
 		return billOpened;
 	}
 
+	/**
+	 * Revert the last applied event. If there is none - e.g. because the bill
+	 * was loaded from the database - the last extra or variation offer is
+	 * removed, or the last bill item if it has none.
+	 */
 	public void undoLastAction() {
+		final BillEvent event = events.poll();
+
+		if (event != null) {
+			event.revert(this);
+			undoneEvents.push(event);
+			noteChange(event);
+			return;
+		}
+
+		undoneEvents.clear();
+
 		final int lastItemIndex = billItems.size() - 1;
 
 		final BillItem lastItem = billItems.get(lastItemIndex);
 
 		if (lastItem.hasUndoable()) {
 			lastItem.undoLastAction();
+			changedBillItems.add(lastItem);
 		} else {
 			billItems.remove(lastItemIndex);
 		}
 
 	}
 
+	/**
+	 * Apply the last undone event again.
+	 *
+	 * @return false, if there is nothing to redo
+	 */
+	public boolean redoLastUndoneAction() {
+		final BillEvent event = undoneEvents.poll();
+
+		if (event == null) {
+			return false;
+		}
+
+		event.apply(this);
+		events.push(event);
+		noteChange(event);
+
+		return true;
+	}
+
+	/**
+	 * Bill items added or removed are found by comparing with the
+	 * {@link #getSavedBillItemIds()}, changed bill items are noted here.
+	 */
+	private void noteChange(BillEvent event) {
+		if (event.changesBillItems() && event.getBillItem() != null) {
+			changedBillItems.add(event.getBillItem());
+		}
+	}
+
+	/**
+	 * @return the bill items whose extra and variation offers changed since
+	 *         the last call, see {@link BillWriter}
+	 */
+	Set<BillItem> takeChangedBillItems() {
+		final Set<BillItem> taken = Sets.newIdentityHashSet();
+		taken.addAll(changedBillItems);
+		changedBillItems.clear();
+
+		return taken;
+	}
+
+	/**
+	 * @return the ids of the bill items as saved last, or null if the bill
+	 *         must be saved as a whole
+	 */
+	Set<Long> getSavedBillItemIds() {
+		return savedBillItemIds;
+	}
+
+	/**
+	 * @param savedBillItemIds
+	 *            null, if the bill must be saved as a whole next time
+	 */
+	void setSavedBillItemIds(Set<Long> savedBillItemIds) {
+		this.savedBillItemIds = savedBillItemIds;
+	}
+
+	/**
+	 * A copy of the persistent state of this bill, to be saved while the bill
+	 * itself may change again, see {@link BillWriter}. The bill items are
+	 * copied as well, the offers and users are shared; the events are not
+	 * part of the copy.
+	 */
+	Bill snapshot() {
+		return new Bill(this);
+	}
+
+	public User getCashier() {
+		return cashier;
+	}
+
+	/**
+	 * @return the sequence number of the last change of this bill in the
+	 *         {@link BillJournal} that is saved with the bill
+	 */
+	public long getJournalSequence() {
+		return journalSequence;
+	}
+
+	void setJournalSequence(long journalSequence) {
+		this.journalSequence = journalSequence;
+	}
+
 	public boolean isEmpty() {
 		return billItems.isEmpty();
 	}
@@ -0,0 +1,193 @@
+package de.bstreit.java.oscr.business.bill;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.eventbroadcasting.BillChangeListener;
+
+/**
+ * <p>
+ * What changed on a bill, see
+ * {@link BillChangeListener#billChanged(BillDelta)}: the kind of change, the
+ * bill item affected - if any - and by how much its gross price changed. So a
+ * listener can update what it shows or counts for that one item, instead of
+ * analysing the whole bill again.
+ * </p>
+ *
+ * <p>
+ * The bill item is copied before and after the change, while the monitor of
+ * the bill is held; the price change is calculated from the copies when it is
+ * asked for. So it does not change when the bill changes afterwards, and
+ * applying a change does not wait for calculating prices.
+ * </p>
+ */
+public final class BillDelta {
+
+	public enum Kind {
+
+		/** a new bill was created for the first item; the item follows */
+		BILL_OPENED,
+
+		ITEM_ADDED,
+
+		/** an extra offer was added to the item */
+		OFFER_ADDED,
+
+		/** a variation offer was added to or removed from the item */
+		OFFER_TOGGLED,
+
+		/** a promo offer was added to the item */
+		PROMO_APPLIED,
+
+		/** the free or the twenty percent promotion was set or cleared */
+		PROMOTION_CHANGED,
+
+		STAFF_CONSUMER_CHANGED,
+
+		TAX_INFO_CHANGED,
+
+		/** the item is the one changed or removed by the undo, if any */
+		UNDONE,
+
+		/** the item is the one changed or added again, if any */
+		REDONE,
+
+		/** the bill was deleted, since its last item was undone */
+		BILL_DELETED,
+
+		BILL_CLOSED,
+
+		/**
+		 * another bill - or none - was selected as the current bill; nothing
+		 * changed on the bill
+		 */
+		BILL_SELECTED;
+	}
+
+	private final Kind kind;
+
+	private final Bill bill;
+
+	private final BillItem billItem;
+
+	/** copies of the bill item; null, where it was not on the bill */
+	private final BillItem before;
+	private final BillItem after;
+
+	/** calculated on first use */
+	private volatile Money grossChange;
+
+
+	private BillDelta(Kind kind, Bill bill, BillItem billItem, BillItem before,
+			BillItem after) {
+		this.kind = kind;
+		this.bill = bill;
+		this.billItem = billItem;
+		this.before = before;
+		this.after = after;
+	}
+
+	/**
+	 * A change that does not affect a single bill item.
+	 *
+	 * @param bill
+	 *            the bill changed, or the bill selected - may be null then
+	 */
+	public static BillDelta of(Kind kind, Bill bill) {
+		return new BillDelta(kind, bill, null, null, null);
+	}
+
+	/**
+	 * A change of the given bill item, which has been applied to the bill
+	 * already. Call while holding the monitor of the bill.
+	 *
+	 * @param billItem
+	 *            the item changed, added or removed, or null
+	 * @param before
+	 *            a {@link #copyOf(Bill, BillItem) copy} of the item taken
+	 *            before the change
+	 */
+	static BillDelta of(Kind kind, Bill bill, BillItem billItem,
+			BillItem before) {
+		if (billItem == null) {
+			return of(kind, bill);
+		}
+
+		return new BillDelta(kind, bill, billItem, before, copyOf(bill,
+				billItem));
+	}
+
+	/**
+	 * @return a copy of the bill item, or null if it is not on the bill - or
+	 *         is null itself
+	 */
+	static BillItem copyOf(Bill bill, BillItem billItem) {
+		if (billItem == null || !bill.holds(billItem)) {
+			return null;
+		}
+
+		return billItem.snapshot();
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the bill changed; for {@link Kind#BILL_SELECTED} the bill
+	 *         selected, or null if none
+	 */
+	public Bill getBill() {
+		return bill;
+	}
+
+	/**
+	 * @return the bill item changed, added or removed, or null if the change
+	 *         does not affect a single item
+	 */
+	public BillItem getBillItem() {
+		return billItem;
+	}
+
+	/**
+	 * @return how much the gross price of the bill item changed - negative, if
+	 *         the item became cheaper or was removed; null if there is no
+	 *         {@link #getBillItem() bill item}. Promotions and the tax info
+	 *         change the totals of the bill, but not the prices of the items.
+	 */
+	public Money getGrossChange() {
+		if (billItem == null) {
+			return null;
+		}
+
+		if (grossChange == null) {
+			grossChange = calculateGrossChange();
+		}
+
+		return grossChange;
+	}
+
+	private Money calculateGrossChange() {
+		if (before == null) {
+			return after == null ? null : after.getPriceGross();
+		}
+
+		if (after == null) {
+			return before.getPriceGross().multiply(-1);
+		}
+
+		return after.getPriceGross().subtract(before.getPriceGross());
+	}
+
+	/**
+	 * @return false, if the bill did not change in a way that affects totals
+	 *         and exports - i.e. it was just opened or selected
+	 */
+	public boolean changesTotals() {
+		return kind != Kind.BILL_OPENED && kind != Kind.BILL_SELECTED;
+	}
+
+	@Override
+	public String toString() {
+		return kind + (billItem == null ? "" : " " + billItem.getName());
+	}
+
+}
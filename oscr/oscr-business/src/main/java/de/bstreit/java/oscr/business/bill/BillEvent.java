@@ -0,0 +1,319 @@
+package de.bstreit.java.oscr.business.bill;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObject;
+import de.bstreit.java.oscr.business.bill.journal.BillJournal;
+import de.bstreit.java.oscr.business.bill.journal.Operation;
+import de.bstreit.java.oscr.business.offers.AbstractOffer;
+import de.bstreit.java.oscr.business.offers.ExtraOffer;
+import de.bstreit.java.oscr.business.offers.PromoOffer;
+import de.bstreit.java.oscr.business.offers.VariationOffer;
+import de.bstreit.java.oscr.business.staff.User;
+import de.bstreit.java.oscr.business.taxation.TaxInfo;
+
+/**
+ * <p>
+ * A change of an open bill. The bill keeps the events applied to it in memory
+ * (see {@link Bill#apply(BillEvent)}), and every event knows how to revert
+ * itself - so undo and redo just take the last event, instead of guessing the
+ * last action from the bill items.
+ * </p>
+ *
+ * <p>
+ * Operation and entity of an event are the ones recorded in the
+ * {@link BillJournal}. Reverting an event is recorded as the change it makes
+ * (see {@link #getRevertOperation()}), and applying it again as the event
+ * itself - so the journal can be replayed on a bill without its events, e.g.
+ * as loaded from the database.
+ * </p>
+ */
+public abstract class BillEvent {
+
+	private final Operation operation;
+
+	private final AbstractPersistentObject entity;
+
+
+	private BillEvent(Operation operation, AbstractPersistentObject entity) {
+		this.operation = operation;
+		this.entity = entity;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the offer, user or tax info of the change, or null
+	 */
+	public AbstractPersistentObject getEntity() {
+		return entity;
+	}
+
+	/**
+	 * @return the bill item added or changed, or null if only fields of the
+	 *         bill itself change
+	 */
+	BillItem getBillItem() {
+		return null;
+	}
+
+	abstract void apply(Bill bill);
+
+	/**
+	 * Only called for the last applied event of the bill.
+	 */
+	abstract void revert(Bill bill);
+
+	/**
+	 * @return the operation that changes the bill like {@link #revert(Bill)}
+	 *         does, to be recorded in the {@link BillJournal}
+	 */
+	abstract Operation getRevertOperation();
+
+	/**
+	 * @return the entity recorded along with the {@link #getRevertOperation()}
+	 */
+	AbstractPersistentObject getRevertEntity() {
+		return entity;
+	}
+
+	/**
+	 * @return true, if bill items are added, removed or changed; false if only
+	 *         fields of the bill itself change
+	 */
+	boolean changesBillItems() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return operation + (entity == null ? "" : " " + entity);
+	}
+
+	static BillEvent productOfferAdded(BillItem billItem) {
+		return new BillItemAdded(billItem);
+	}
+
+	static BillEvent extraOfferAdded(BillItem billItem, ExtraOffer extraOffer) {
+		return new OfferAdded(Operation.EXTRA_OFFER_ADDED, billItem, extraOffer);
+	}
+
+	static BillEvent promoOfferAdded(BillItem billItem, PromoOffer promoOffer) {
+		return new OfferAdded(Operation.PROMO_OFFER_ADDED, billItem, promoOffer);
+	}
+
+	static BillEvent variationOfferToggled(BillItem billItem,
+			VariationOffer variationOffer) {
+		return new VariationOfferToggled(billItem, variationOffer);
+	}
+
+	static BillEvent staffConsumerSet(User consumer) {
+		return new FieldChanged<User>(consumer, BillEvent::staffConsumerOperation,
+				user -> user, Bill::getStaffConsumer,
+				Bill::setOrClearStaffConsumer);
+	}
+
+	static BillEvent staffConsumerCleared() {
+		return staffConsumerSet(null);
+	}
+
+	static BillEvent freePromotionOfferSet(boolean freePromotionOffer) {
+		return new FieldChanged<Boolean>(freePromotionOffer,
+				set -> set ? Operation.FREE_PROMOTION_SET
+						: Operation.FREE_PROMOTION_CLEARED, set -> null,
+				Bill::isFreePromotionOffer, Bill::setFreePromotionOffer);
+	}
+
+	static BillEvent twentyPercentOffSet(boolean twentyPercentOff) {
+		return new FieldChanged<Boolean>(twentyPercentOff,
+				set -> set ? Operation.TWENTY_PERCENT_PROMOTION_SET
+						: Operation.TWENTY_PERCENT_PROMOTION_CLEARED, set -> null,
+				Bill::isTwentyPercentOff, Bill::setTwentyPercentOff);
+	}
+
+	static BillEvent globalTaxInfoSet(TaxInfo taxInfo) {
+		return new FieldChanged<TaxInfo>(taxInfo,
+				newTaxInfo -> Operation.GLOBAL_TAX_INFO_SET,
+				newTaxInfo -> newTaxInfo, Bill::getGlobalTaxInfo,
+				Bill::setGlobalTaxInfo);
+	}
+
+	private static Operation staffConsumerOperation(User consumer) {
+		return consumer == null ? Operation.STAFF_CONSUMER_CLEARED
+				: Operation.STAFF_CONSUMER_SET;
+	}
+
+
+	private static final class BillItemAdded extends BillEvent {
+
+		private final BillItem billItem;
+
+		private BillItemAdded(BillItem billItem) {
+			super(Operation.PRODUCT_OFFER_ADDED, billItem.getOffer());
+			this.billItem = billItem;
+		}
+
+		@Override
+		BillItem getBillItem() {
+			return billItem;
+		}
+
+		@Override
+		void apply(Bill bill) {
+			bill.addBillItem(billItem);
+		}
+
+		@Override
+		void revert(Bill bill) {
+			bill.removeLastBillItem();
+		}
+
+		@Override
+		Operation getRevertOperation() {
+			return Operation.LAST_BILL_ITEM_REMOVED;
+		}
+	}
+
+	private static final class OfferAdded extends BillEvent {
+
+		private final BillItem billItem;
+
+		private final AbstractOffer<?> offer;
+
+		private OfferAdded(Operation operation, BillItem billItem,
+				AbstractOffer<?> offer) {
+			super(operation, offer);
+			this.billItem = billItem;
+			this.offer = offer;
+		}
+
+		@Override
+		BillItem getBillItem() {
+			return billItem;
+		}
+
+		@Override
+		void apply(Bill bill) {
+			billItem.addOffer(offer);
+		}
+
+		@Override
+		void revert(Bill bill) {
+			billItem.undoLastAction();
+		}
+
+		@Override
+		Operation getRevertOperation() {
+			return Operation.OFFER_REMOVED;
+		}
+	}
+
+	private static final class VariationOfferToggled extends BillEvent {
+
+		private final BillItem billItem;
+
+		private final VariationOffer variationOffer;
+
+		/** where the offer was removed from, -1 if it was added */
+		private int removedAt;
+
+		private VariationOfferToggled(BillItem billItem,
+				VariationOffer variationOffer) {
+			super(Operation.VARIATION_OFFER_TOGGLED, variationOffer);
+			this.billItem = billItem;
+			this.variationOffer = variationOffer;
+		}
+
+		@Override
+		BillItem getBillItem() {
+			return billItem;
+		}
+
+		@Override
+		void apply(Bill bill) {
+			removedAt = billItem.getExtraAndVariationOffers().indexOf(
+					variationOffer);
+			billItem.toggleVariationOffer(variationOffer);
+		}
+
+		@Override
+		void revert(Bill bill) {
+			if (removedAt == -1) {
+				billItem.undoLastAction();
+			} else {
+				billItem.insertOffer(removedAt, variationOffer);
+			}
+		}
+
+		/**
+		 * Toggling again adds a removed offer at the end, not where it was
+		 * removed from - which does not matter, as the offers are stored
+		 * without their order.
+		 */
+		@Override
+		Operation getRevertOperation() {
+			return Operation.VARIATION_OFFER_TOGGLED;
+		}
+	}
+
+	private static final class FieldChanged<T> extends BillEvent {
+
+		private final T value;
+
+		/** the operation recorded for setting a value */
+		private final Function<T, Operation> operationFor;
+
+		/** the entity recorded for setting a value */
+		private final Function<T, AbstractPersistentObject> entityFor;
+
+		private final Function<Bill, T> getter;
+
+		private final BiConsumer<Bill, T> setter;
+
+		private T previousValue;
+
+		private FieldChanged(T value, Function<T, Operation> operationFor,
+				Function<T, AbstractPersistentObject> entityFor,
+				Function<Bill, T> getter, BiConsumer<Bill, T> setter) {
+			super(operationFor.apply(value), entityFor.apply(value));
+			this.value = value;
+			this.operationFor = operationFor;
+			this.entityFor = entityFor;
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		@Override
+		void apply(Bill bill) {
+			previousValue = getter.apply(bill);
+			setter.accept(bill, value);
+		}
+
+		@Override
+		void revert(Bill bill) {
+			setter.accept(bill, previousValue);
+		}
+
+		/**
+		 * @return the operation setting the previous value
+		 */
+		@Override
+		Operation getRevertOperation() {
+			return operationFor.apply(previousValue);
+		}
+
+		@Override
+		AbstractPersistentObject getRevertEntity() {
+			return entityFor.apply(previousValue);
+		}
+
+		@Override
+		boolean changesBillItems() {
+			return false;
+		}
+	}
+
+}
@@ -33,10 +33,13 @@ import javax.persistence.Entity;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 
+import org.hibernate.annotations.BatchSize;
+
 import com.google.common.collect.Lists;
 
 import de.bstreit.java.oscr.business.base.finance.money.Money;
 import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObject;
+import de.bstreit.java.oscr.business.bill.dao.IBillRepositoryCustom;
 import de.bstreit.java.oscr.business.offers.AbstractOffer;
 import de.bstreit.java.oscr.business.offers.ExtraOffer;
 import de.bstreit.java.oscr.business.offers.ProductOffer;
@@ -55,7 +58,9 @@ public class BillItem extends AbstractPersistentObject {
 	@ManyToOne(optional = false)
 	private ProductOffer offer;
 
+	/** loaded for many bill items at once, see {@link Bill} */
 	@ManyToMany
+	@BatchSize(size = IBillRepositoryCustom.DEFAULT_FETCH_SIZE)
 	private final List<AbstractOffer<?>> extraAndVariationOffers = Lists
 	.newArrayList();
 
@@ -111,6 +116,55 @@ public class BillItem extends AbstractPersistentObject {
 		extraAndVariationOffers.remove(extraAndVariationOffers.size() - 1);
 	}
 
+	void addOffer(AbstractOffer<?> offer) {
+		extraAndVariationOffers.add(offer);
+	}
+
+	void insertOffer(int index, AbstractOffer<?> offer) {
+		extraAndVariationOffers.add(index, offer);
+	}
+
+	/**
+	 * @return the offer removed by {@link #undoLastAction()}, or null
+	 */
+	AbstractOffer<?> getLastOffer() {
+		return extraAndVariationOffers.isEmpty() ? null : extraAndVariationOffers
+				.get(extraAndVariationOffers.size() - 1);
+	}
+
+	/**
+	 * Remove the last of the extra and variation offers with the given id.
+	 *
+	 * @return false, if there is none
+	 */
+	boolean removeOffer(long offerId) {
+		for (int i = extraAndVariationOffers.size() - 1; i >= 0; i--) {
+			final Long id = extraAndVariationOffers.get(i).getId();
+
+			if (id != null && id == offerId) {
+				extraAndVariationOffers.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	void adoptIdOf(BillItem persistedCopy) {
+		super.adoptIdOf(persistedCopy);
+	}
+
+	/**
+	 * @return a copy with the same id, offer and extra and variation offers,
+	 *         see {@link Bill#snapshot()}
+	 */
+	BillItem snapshot() {
+		final BillItem snapshot = new BillItem(offer);
+		snapshot.extraAndVariationOffers.addAll(extraAndVariationOffers);
+		snapshot.adoptIdOf(this);
+
+		return snapshot;
+	}
+
 	public Money getPriceGross() {
 		Money priceGross = offer.getPriceGross();
 		Money zero = new Money(BigDecimal.ZERO, priceGross.getCurrency());
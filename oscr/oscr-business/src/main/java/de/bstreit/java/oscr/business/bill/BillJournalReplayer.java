@@ -0,0 +1,191 @@
+package de.bstreit.java.oscr.business.bill;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import de.bstreit.java.oscr.business.bill.dao.IBillRepository;
+import de.bstreit.java.oscr.business.bill.journal.BillJournal;
+import de.bstreit.java.oscr.business.bill.journal.JournalRecord;
+import de.bstreit.java.oscr.business.offers.dao.IExtraOfferRepository;
+import de.bstreit.java.oscr.business.offers.dao.IProductOfferRepository;
+import de.bstreit.java.oscr.business.offers.dao.IPromoOfferRepository;
+import de.bstreit.java.oscr.business.offers.dao.IVariationOfferRepository;
+import de.bstreit.java.oscr.business.staff.dao.IUserRepository;
+import de.bstreit.java.oscr.business.taxation.dao.ITaxInfoRepository;
+
+/**
+ * Applies the changes of bills that were recorded in the {@link BillJournal},
+ * but did not make it into the database - e.g. because of a crash while
+ * saving write-behind, see {@link BillWriter}. Changes are applied on top of
+ * the bill as found in the database, as the same {@link BillEvent}s the
+ * {@link BillService} applied originally; undo and redo are recorded as the
+ * changes they make, see {@link BillEvent}. Changes up to the journal sequence
+ * stored with the bill are already part of it and are skipped, so replaying
+ * twice does not apply a change twice.
+ */
+@Named
+class BillJournalReplayer {
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(BillJournalReplayer.class);
+
+	@Inject
+	private BillJournal billJournal;
+
+	@Inject
+	private IBillRepository billRepository;
+
+	@Inject
+	private IProductOfferRepository productOfferRepository;
+
+	@Inject
+	private IExtraOfferRepository extraOfferRepository;
+
+	@Inject
+	private IVariationOfferRepository variationOfferRepository;
+
+	@Inject
+	private IPromoOfferRepository promoOfferRepository;
+
+	@Inject
+	private IUserRepository userRepository;
+
+	@Inject
+	private ITaxInfoRepository taxInfoRepository;
+
+
+	/**
+	 * Must run within a transaction.
+	 *
+	 * @return the number of bills that were replayed
+	 */
+	int replay() {
+		int numberOfBills = 0;
+
+		for (final List<JournalRecord> records : billJournal
+				.getUnconfirmedRecords()) {
+
+			final JournalRecord lastRecord = records.get(records.size() - 1);
+
+			replay(lastRecord.getBillId(), records);
+
+			billJournal.confirm(lastRecord.getBillId(), lastRecord.getSequence());
+			numberOfBills++;
+		}
+
+		return numberOfBills;
+	}
+
+	private void replay(String billId, List<JournalRecord> records) {
+		logger.info("Replaying " + records.size() + " changes of bill " + billId);
+
+		Bill bill = billRepository.findOne(billId);
+		final long storedSequence = bill == null ? 0 : bill.getJournalSequence();
+
+		for (final JournalRecord record : records) {
+
+			if (record.getSequence() <= storedSequence) {
+				// saved, but not confirmed
+				continue;
+			}
+
+			if (bill == null) {
+				switch (record.getOperation()) {
+				case BILL_OPENED:
+					bill = new Bill(billId, taxInfoRepository.findOne(record
+							.getEntityId()), new Date(record.getTime()));
+					continue;
+				case BILL_DELETED:
+					continue;
+				default:
+					logger.error("Cannot replay " + record
+							+ ": the bill was neither stored nor opened");
+					return;
+				}
+			}
+
+			final BillItem lastItem = bill.getLastBillItemOrNull();
+
+			switch (record.getOperation()) {
+			case BILL_OPENED:
+				// already stored
+				break;
+			case PRODUCT_OFFER_ADDED:
+				bill.apply(BillEvent.productOfferAdded(new BillItem(
+						productOfferRepository.findOne(record.getEntityId()))));
+				break;
+			case EXTRA_OFFER_ADDED:
+				bill.apply(BillEvent.extraOfferAdded(lastItem,
+						extraOfferRepository.findOne(record.getEntityId())));
+				break;
+			case VARIATION_OFFER_TOGGLED:
+				bill.apply(BillEvent.variationOfferToggled(lastItem,
+						variationOfferRepository.findOne(record.getEntityId())));
+				break;
+			case PROMO_OFFER_ADDED:
+				bill.apply(BillEvent.promoOfferAdded(lastItem,
+						promoOfferRepository.findOne(record.getEntityId())));
+				break;
+			case STAFF_CONSUMER_SET:
+				bill.apply(BillEvent.staffConsumerSet(userRepository.findOne(record
+						.getEntityId())));
+				break;
+			case STAFF_CONSUMER_CLEARED:
+				bill.apply(BillEvent.staffConsumerCleared());
+				break;
+			case FREE_PROMOTION_SET:
+				bill.apply(BillEvent.freePromotionOfferSet(true));
+				break;
+			case FREE_PROMOTION_CLEARED:
+				bill.apply(BillEvent.freePromotionOfferSet(false));
+				break;
+			case TWENTY_PERCENT_PROMOTION_SET:
+				bill.apply(BillEvent.twentyPercentOffSet(true));
+				break;
+			case TWENTY_PERCENT_PROMOTION_CLEARED:
+				bill.apply(BillEvent.twentyPercentOffSet(false));
+				break;
+			case LAST_BILL_ITEM_REMOVED:
+				if (lastItem == null) {
+					logger.error("Cannot replay " + record + ": the bill is empty");
+				} else {
+					bill.removeLastBillItem();
+				}
+				break;
+			case OFFER_REMOVED:
+				if (lastItem == null || !lastItem.removeOffer(record.getEntityId())) {
+					logger.error("Cannot replay " + record
+							+ ": the offer is not on the last bill item");
+				}
+				break;
+			case GLOBAL_TAX_INFO_SET:
+				bill.apply(BillEvent.globalTaxInfoSet(taxInfoRepository
+						.findOne(record.getEntityId())));
+				break;
+			case BILL_CLOSED:
+				bill.closeBill(
+						record.getEntityId() == 0 ? null : userRepository
+								.findOne(record.getEntityId()),
+						new Date(record.getTime()));
+				break;
+			case BILL_DELETED:
+				if (billRepository.exists(billId)) {
+					billRepository.delete(billId);
+				}
+				return;
+			case CONFIRMED:
+				break;
+			}
+		}
+
+		if (bill != null) {
+			bill.setJournalSequence(Math.max(storedSequence,
+					records.get(records.size() - 1).getSequence()));
+			billRepository.save(bill);
+		}
+	}
+
+}
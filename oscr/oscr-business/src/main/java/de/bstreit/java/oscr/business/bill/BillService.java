@@ -38,13 +38,16 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.transaction.Transactional;
 
-import org.hibernate.Hibernate;
-
 import com.google.common.annotations.VisibleForTesting;
 
 import de.bstreit.java.oscr.business.base.date.ICurrentDateProvider;
+import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObject;
+import de.bstreit.java.oscr.business.base.scheduling.SchedulerService;
 import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
+import de.bstreit.java.oscr.business.bill.dailysummary.DailySummaryService;
 import de.bstreit.java.oscr.business.bill.dao.IBillRepository;
+import de.bstreit.java.oscr.business.bill.journal.BillJournal;
+import de.bstreit.java.oscr.business.bill.journal.Operation;
 import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
 import de.bstreit.java.oscr.business.export.IService;
 import de.bstreit.java.oscr.business.offers.ExtraOffer;
@@ -71,6 +74,18 @@ public class BillService {
   @Inject
   private IBillRepository billRepository;
 
+  @Inject
+  private BillWriter billWriter;
+
+  @Inject
+  private BillJournal billJournal;
+
+  @Inject
+  private BillJournalReplayer billJournalReplayer;
+
+  @Inject
+  private OpenBills openBills;
+
   @Inject
   private IUserService userProvider;
 
@@ -84,18 +99,34 @@ public class BillService {
   @Inject
   private IMultipleBillsCalculatorFactory multipleBillsCalculatorFactory;
 
+  @Inject
+  private IBillCalculatorFactory billCalculatorFactory;
+
+  @Inject
+  private IRunningDayTotals runningDayTotals;
+
+  @Inject
+  private DailySummaryService dailySummaryService;
+
   @Inject
   private Set<IService> services;
 
   @Inject
   private EventBroadcaster eventBroadcaster;
 
+  @Inject
+  private SchedulerService schedulerService;
+
   private Bill currentBill;
 
   private BillItem lastAddedItem;
 
 
-  private void fireBillChangedEvent() {
+  /**
+   * Tell what changed, and that the current bill changed.
+   */
+  private void fireBillChangedEvent(BillDelta delta) {
+    eventBroadcaster.notifyBillChanged(this, delta);
     eventBroadcaster.notifyBillUpdated(this, currentBill);
   }
 
@@ -111,12 +142,13 @@ public class BillService {
     initBillIfEmpty();
 
     final BillItem billItem = new BillItem(productOffer);
-    currentBill.addBillItem(billItem);
+    final BillDelta delta = apply(BillDelta.Kind.ITEM_ADDED,
+        BillEvent.productOfferAdded(billItem));
 
     saveBill();
 
     // fire events after lastAddedItem was changed - just in case...
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
 
     return billItem;
   }
@@ -126,10 +158,11 @@ public class BillService {
       return;
     }
 
-    lastAddedItem.toggleVariationOffer(variationOffer);
+    final BillDelta delta = apply(BillDelta.Kind.OFFER_TOGGLED,
+        BillEvent.variationOfferToggled(lastAddedItem, variationOffer));
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public void setStaffConsumer(User consumer) {
@@ -137,10 +170,12 @@ public class BillService {
       return;
     }
 
-    currentBill.setStaffConsumer(consumer);
+    checkNotNull(consumer);
+    final BillDelta delta = apply(BillDelta.Kind.STAFF_CONSUMER_CHANGED,
+        BillEvent.staffConsumerSet(consumer));
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public void clearStaffConsumer() {
@@ -148,10 +183,11 @@ public class BillService {
       return;
     }
 
-    currentBill.clearStaffConsumer();
+    final BillDelta delta = apply(BillDelta.Kind.STAFF_CONSUMER_CHANGED,
+        BillEvent.staffConsumerCleared());
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public void setFreePromotion() {
@@ -159,10 +195,11 @@ public class BillService {
       return;
     }
 
-    currentBill.setFreePromotionOffer(true);
+    final BillDelta delta = apply(BillDelta.Kind.PROMOTION_CHANGED,
+        BillEvent.freePromotionOfferSet(true));
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public void setTwentyPercentPromotion() {
@@ -170,10 +207,11 @@ public class BillService {
       return;
     }
 
-    currentBill.setTwentyPercentOff(true);
+    final BillDelta delta = apply(BillDelta.Kind.PROMOTION_CHANGED,
+        BillEvent.twentyPercentOffSet(true));
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public void clearFreePromotion() {
@@ -181,10 +219,11 @@ public class BillService {
       return;
     }
 
-    currentBill.setFreePromotionOffer(false);
+    final BillDelta delta = apply(BillDelta.Kind.PROMOTION_CHANGED,
+        BillEvent.freePromotionOfferSet(false));
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public void clearTwentyPercentPromotion() {
@@ -192,60 +231,155 @@ public class BillService {
       return;
     }
 
-    currentBill.setTwentyPercentOff(false);
+    final BillDelta delta = apply(BillDelta.Kind.PROMOTION_CHANGED,
+        BillEvent.twentyPercentOffSet(false));
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
+  /**
+   * Revert the last change of the current bill. Deletes the bill, if it is
+   * empty afterwards.
+   */
   public void undoLastAction() {
     if (currentBill == null) {
       return;
     }
 
-    currentBill.undoLastAction();
+    final BillDelta delta;
+
+    synchronized (currentBill) {
+      final BillEvent event = currentBill.getLastEvent();
+      final BillItem lastItem = currentBill.getLastBillItemOrNull();
+      // without events, the last bill item is changed or removed
+      final BillItem billItem = event == null ? lastItem : event
+          .getBillItem();
+      final BillItem before = BillDelta.copyOf(currentBill, billItem);
+
+      // recorded as the change the undo makes, see BillEvent
+      if (event != null) {
+        journal(event.getRevertOperation(), event.getRevertEntity());
+      } else if (lastItem.hasUndoable()) {
+        journal(Operation.OFFER_REMOVED, lastItem.getLastOffer());
+      } else {
+        journal(Operation.LAST_BILL_ITEM_REMOVED, lastItem.getOffer());
+      }
+
+      currentBill.undoLastAction();
+
+      delta = BillDelta.of(BillDelta.Kind.UNDONE, currentBill, billItem,
+          before);
+    }
+
+    eventBroadcaster.notifyBillChanged(this, delta);
 
     if (currentBill.isEmpty()) {
+      // the bill must not be written again after deleting it
+      billWriter.awaitPendingWrites();
+
+      final long sequence = billJournal.append(Operation.BILL_DELETED,
+          currentBill.getId(), 0, 0);
       billRepository.delete(currentBill);
+      billJournal.confirm(currentBill.getId(), sequence);
+
+      openBills.remove(currentBill);
+      eventBroadcaster.notifyBillChanged(this,
+          BillDelta.of(BillDelta.Kind.BILL_DELETED, currentBill));
+      eventBroadcaster.notifyBillDeleted(this, currentBill);
       currentBill = null;
       lastAddedItem = null;
     } else {
-      lastAddedItem = currentBill.getLastBillItemOrNull();
+      saveBill();
+    }
+
+    eventBroadcaster.notifyBillUpdated(this, currentBill);
+  }
+
+  /**
+   * Apply the last undone change of the current bill again - as long as the
+   * bill was not changed otherwise since.
+   */
+  public void redoLastUndoneAction() {
+    if (currentBill == null) {
+      return;
     }
 
-    fireBillChangedEvent();
+    final BillDelta delta;
+
+    synchronized (currentBill) {
+      final BillEvent event = currentBill.getLastUndoneEvent();
+      if (event == null) {
+        return;
+      }
+
+      final BillItem billItem = event.getBillItem();
+      final BillItem before = BillDelta.copyOf(currentBill, billItem);
+
+      currentBill.redoLastUndoneAction();
+      journal(event.getOperation(), event.getEntity());
+
+      delta = BillDelta.of(BillDelta.Kind.REDONE, currentBill, billItem,
+          before);
+    }
+
+    saveBill();
+    fireBillChangedEvent(delta);
   }
 
   @Transactional
   public IMultipleBillsCalculator getTotalForToday() {
-    final Collection<Bill> todaysBills = billRepository
-        .getBillsForTodayWithoutStaff();
-    return multipleBillsCalculatorFactory.create(todaysBills,
-        WhatToCount.TOTAL);
+    return getAllTotalsForToday().get(WhatToCount.TOTAL);
   }
 
   @Transactional
   public IMultipleBillsCalculator getTotalForYesterday() {
-    final Collection<Bill> yesterdaysBills = billRepository
-        .getBillsForYesterdayWithoutStaff();
-    return multipleBillsCalculatorFactory.create(yesterdaysBills,
-        WhatToCount.TOTAL);
+    return getAllTotalsForYesterday().get(WhatToCount.TOTAL);
   }
 
   @Transactional
   public IMultipleBillsCalculator getFreePomotionTotalForToday() {
-    final Collection<Bill> todaysBills = billRepository
-        .getBillsForTodayWithoutStaff();
-    return multipleBillsCalculatorFactory.create(todaysBills,
-        WhatToCount.PROMO_TOTAL);
+    return getAllTotalsForToday().get(WhatToCount.PROMO_TOTAL);
   }
 
   @Transactional
   public IMultipleBillsCalculator getFreePomotionTotalForYesterday() {
-    final Collection<Bill> yesterdaysBills = billRepository
-        .getBillsForYesterdayWithoutStaff();
-    return multipleBillsCalculatorFactory.create(yesterdaysBills,
-        WhatToCount.PROMO_TOTAL);
+    return getAllTotalsForYesterday().get(WhatToCount.PROMO_TOTAL);
+  }
+
+  /**
+   * @return payment, promo total and total of today's bills. Kept up to date
+   *         on every bill event; today's bills are only loaded from the
+   *         database at the first call of the day. The first call of the day
+   *         also writes the daily summaries of the days before.
+   */
+  @Transactional
+  public IMultipleBillsTotals getAllTotalsForToday() {
+    if (!runningDayTotals.isUpToDate()) {
+      // changes arriving from now on might be missing in the fetched bills
+      runningDayTotals.startRebuilding();
+      billWriter.awaitPendingWrites();
+      dailySummaryService.closeDaysBefore(currentDateProvider.getCurrentDate());
+      runningDayTotals.initialise(billRepository
+          .fetchBillsForTodayWithoutStaff());
+    }
+    return runningDayTotals.getTotalsForToday();
+  }
+
+  /**
+   * @return payment, promo total and total of yesterday's bills, read from the
+   *         daily summaries - which are written from the database, once all
+   *         pending changes of bills are saved
+   */
+  @Transactional
+  public IMultipleBillsTotals getAllTotalsForYesterday() {
+    billWriter.awaitPendingWrites();
+
+    final Calendar yesterday = Calendar.getInstance();
+    yesterday.setTime(currentDateProvider.getCurrentDate());
+    yesterday.add(Calendar.DAY_OF_MONTH, -1);
+
+    return dailySummaryService.getTotalsForDay(yesterday.getTime());
   }
 
   private void initBillIfEmpty() {
@@ -253,6 +387,14 @@ public class BillService {
       currentBill = new Bill(defaultTaxInfoForNewBills,
           currentDateProvider.getCurrentDate());
       lastAddedItem = null;
+      openBills.add(currentBill);
+
+      billJournal.append(Operation.BILL_OPENED, currentBill.getId(),
+          getIdOrZero(defaultTaxInfoForNewBills), currentBill.getBillOpened()
+              .getTime());
+
+      eventBroadcaster.notifyBillChanged(this,
+          BillDelta.of(BillDelta.Kind.BILL_OPENED, currentBill));
     }
   }
 
@@ -269,11 +411,12 @@ public class BillService {
     assertCurrentBillNotNull(errorMessage);
     assertCurrentBillNotEmpty(errorMessage);
 
-    lastAddedItem.addExtraOffer(extraOffer);
+    final BillDelta delta = apply(BillDelta.Kind.OFFER_ADDED,
+        BillEvent.extraOfferAdded(lastAddedItem, extraOffer));
 
     saveBill();
 
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   /**
@@ -292,10 +435,11 @@ public class BillService {
 
     checkNotNull(variationOffer);
 
-    lastAddedItem.toggleVariationOffer(variationOffer);
+    final BillDelta delta = apply(BillDelta.Kind.OFFER_TOGGLED,
+        BillEvent.variationOfferToggled(lastAddedItem, variationOffer));
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public void setPromoOffer(PromoOffer promoOffer) {
@@ -315,30 +459,80 @@ public class BillService {
       throw new AlreadyHasPromoOfferException();
     }
 
-    lastAddedItem.addPromoOffer(promoOffer);
+    final BillDelta delta = apply(BillDelta.Kind.PROMO_APPLIED,
+        BillEvent.promoOfferAdded(lastAddedItem, promoOffer));
 
     saveBill();
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public Bill closeBill() {
     assertCurrentBillNotNull("Cannot close bill - no bill available!");
 
-    currentBill.closeBill(userProvider.getCurrentUser(),
-        currentDateProvider.getCurrentDate());
+    synchronized (currentBill) {
+      final User cashier = userProvider.getCurrentUser();
+      final Date billClosingDate = currentDateProvider.getCurrentDate();
 
-    saveBill();
+      currentBill.closeBill(cashier, billClosingDate);
+      billJournal.append(Operation.BILL_CLOSED, currentBill.getId(),
+          getIdOrZero(cashier), billClosingDate.getTime());
+    }
 
+    // closing is the point where the bill must be stored for sure
+    billWriter.saveNow(currentBill);
     final Bill currentBillForFurtherReference = currentBill;
 
+    openBills.remove(currentBill);
     currentBill = null;
     lastAddedItem = null;
 
-    fireBillChangedEvent();
+    calculateClosedBill(currentBillForFurtherReference);
+
+    fireBillChangedEvent(BillDelta.of(BillDelta.Kind.BILL_CLOSED,
+        currentBillForFurtherReference));
 
     return currentBillForFurtherReference;
   }
 
+  /**
+   * The results of a closed bill are cached by the calculators, so printing or
+   * exporting it afterwards does not need to analyse it again.
+   */
+  private void calculateClosedBill(Bill closedBill) {
+    for (final WhatToCount whatToCount : WhatToCount.values()) {
+      billCalculatorFactory.create(closedBill, whatToCount).close();
+    }
+  }
+
+  /**
+   * Apply the change to the current bill and record it in the journal.
+   *
+   * @return the change, with its bill item
+   */
+  private BillDelta apply(BillDelta.Kind kind, BillEvent event) {
+    synchronized (currentBill) {
+      final BillItem before = BillDelta.copyOf(currentBill,
+          event.getBillItem());
+
+      currentBill.apply(event);
+      journal(event.getOperation(), event.getEntity());
+
+      return BillDelta.of(kind, currentBill, event.getBillItem(), before);
+    }
+  }
+
+  /**
+   * Record a change of the current bill in the journal. Call while holding the
+   * monitor of the bill, see {@link BillWriter}.
+   */
+  private void journal(Operation operation, AbstractPersistentObject entity) {
+    billJournal.append(operation, currentBill.getId(), getIdOrZero(entity), 0);
+  }
+
+  private static long getIdOrZero(AbstractPersistentObject entity) {
+    return entity == null || entity.getId() == null ? 0 : entity.getId();
+  }
+
   private void assertCurrentBillNotNull(String errorMessage) {
     if (currentBill == null) {
       throw new NoOpenBillException(errorMessage);
@@ -352,9 +546,8 @@ public class BillService {
   }
 
   private void saveBill() {
-    currentBill = billRepository.save(currentBill);
+    billWriter.save(currentBill);
 
-    // only keep reference if saveBill was successful
     lastAddedItem = currentBill.getLastBillItemOrNull();
   }
 
@@ -368,11 +561,12 @@ public class BillService {
       return;
     }
 
-    currentBill.setGlobalTaxInfo(taxInfo);
+    final BillDelta delta = apply(BillDelta.Kind.TAX_INFO_CHANGED,
+        BillEvent.globalTaxInfoSet(taxInfo));
 
     saveBill();
 
-    fireBillChangedEvent();
+    fireBillChangedEvent(delta);
   }
 
   public TaxInfo getGlobalTaxInfo() {
@@ -385,8 +579,10 @@ public class BillService {
 
   @Transactional
   public void processTodaysBills(IBillProcessor billProcessor) {
+    billWriter.awaitPendingWrites();
+
     final Collection<Bill> allBillsForToday = billRepository
-        .getBillsForTodayWithoutStaff();
+        .fetchBillsForTodayWithoutStaff();
 
     for (final Bill bill : allBillsForToday) {
       billProcessor.processBill(bill);
@@ -396,13 +592,29 @@ public class BillService {
 
   @Transactional
   public void processBillsAt(IBillProcessor billProcessor, Date day) {
+    final Date from = DateFactory.getMidnightOf(day);
 
-    final Collection<Bill> allBillsForToday = getBillsForAllDay(day);
+    Calendar nextDayCalendar = Calendar.getInstance();
+    nextDayCalendar.setTime(from);
+    nextDayCalendar.add(Calendar.DAY_OF_MONTH, 1);
 
-    for (final Bill bill : allBillsForToday) {
-      billProcessor.processBill(bill);
-    }
+    processBillsBetween(billProcessor, from, nextDayCalendar.getTime());
+  }
 
+  /**
+   * Streams the bills, so the memory needed does not depend on the length of
+   * the period. The processor must not keep the bills.
+   *
+   * @param from
+   *          inclusive
+   * @param to
+   *          exclusive
+   */
+  @Transactional
+  public void processBillsBetween(IBillProcessor billProcessor, Date from,
+      Date to) {
+    billWriter.awaitPendingWrites();
+    billRepository.processBillsForDayWithoutStaff(from, to, billProcessor);
   }
 
   public Collection<Bill> getBillsForAllDay(Date day) {
@@ -415,7 +627,7 @@ public class BillService {
     Date to = nextDayCalendar.getTime();
 
     final Collection<Bill> allBillsForToday = billRepository
-        .getBillsForDayWithoutStaff(from, to);
+        .fetchBillsForDayWithoutStaff(from, to);
 
     return allBillsForToday;
   }
@@ -434,54 +646,94 @@ public class BillService {
     Date firstOfNextMonth = DateFactory.getFirstOfNextMonthAtMidnight(firstOfThisMonth);
 
     final Collection<Bill> allBillsOfThatMonth = billRepository
-        .getBillsForDayWithoutStaff(firstOfThisMonth, firstOfNextMonth);
+        .fetchBillsForDayWithoutStaff(firstOfThisMonth, firstOfNextMonth);
 
     return allBillsOfThatMonth;
   }
 
 
+  /**
+   * Store the changes of bills that were recorded in the journal, but not
+   * saved - e.g. because the application crashed. Call at startup, before
+   * bills are changed.
+   */
+  @Transactional
+  public void recoverFromJournal() {
+    final int numberOfBills = billJournalReplayer.replay();
+
+    if (numberOfBills > 0) {
+      logger.warn("Recovered " + numberOfBills + " bills from the journal");
+    }
+  }
+
+  /**
+   * @throws RuntimeException
+   *           if not all bills could be saved; the services are stopped
+   *           nonetheless
+   */
   public void notifyShutdown() {
-    for (IService service : services) {
-      logger.info("Killing " + service);
-      service.stopService();
+    try {
+      billWriter.awaitPendingWrites();
+    } finally {
+      for (IService service : services) {
+        logger.info("Killing " + service);
+        service.stopService();
+      }
+
+      // lets the last export run, and waits for it
+      schedulerService.shutdown();
     }
   }
 
-  @Transactional
+  /**
+   * @return all bills that are not closed, including the current one, in the
+   *         order they were opened
+   */
   public List<Bill> getOpenBills() {
-    final List<Bill> openBills = billRepository.billClosedIsNull();
-
-    initialise(openBills);
-
-    return openBills;
+    return getLoadedOpenBills().getAll();
   }
 
-  private void initialise(List<Bill> openBills) {
-    for (final Bill bill : openBills) {
+  public int getNumberOfOpenBills() {
+    return getLoadedOpenBills().size();
+  }
 
-      Hibernate.initialize(bill);
+  public boolean hasOpenBills() {
+    return !getLoadedOpenBills().isEmpty();
+  }
 
-      initialise(bill.getBillItems());
-    }
+  /**
+   * @return the open bill with the given description, or null
+   */
+  public Bill findOpenBill(String description) {
+    return getLoadedOpenBills().findByDescription(description);
   }
 
-  private void initialise(Collection<BillItem> billItems) {
-    for (final BillItem billItem : billItems) {
-      Hibernate.initialize(billItem);
-      Hibernate.initialize(billItem.getExtraAndVariationOffers());
+  /**
+   * The open bills are read from the database on the first call only, and
+   * kept up to date afterwards.
+   */
+  private OpenBills getLoadedOpenBills() {
+    if (!openBills.isLoaded()) {
+      billWriter.awaitPendingWrites();
+      openBills.load();
     }
+    return openBills;
   }
 
   public void newBill() {
     currentBill = null;
     lastAddedItem = null;
-    fireBillChangedEvent();
+    fireBillChangedEvent(BillDelta.of(BillDelta.Kind.BILL_SELECTED, null));
   }
 
   public void loadBill(Bill bill) {
+    if (bill != null) {
+      openBills.add(bill);
+    }
+
     currentBill = bill;
     lastAddedItem = (bill == null ? null : bill.getLastBillItemOrNull());
-    fireBillChangedEvent();
+    fireBillChangedEvent(BillDelta.of(BillDelta.Kind.BILL_SELECTED, bill));
   }
 
   @VisibleForTesting
@@ -489,6 +741,21 @@ public class BillService {
     this.billRepository = billRepository;
   }
 
+  @VisibleForTesting
+  void setBillWriter(BillWriter billWriter) {
+    this.billWriter = billWriter;
+  }
+
+  @VisibleForTesting
+  void setBillJournal(BillJournal billJournal) {
+    this.billJournal = billJournal;
+  }
+
+  @VisibleForTesting
+  void setOpenBills(OpenBills openBills) {
+    this.openBills = openBills;
+  }
+
   @VisibleForTesting
   void setUserProvider(IUserService userProvider) {
     this.userProvider = userProvider;
@@ -509,6 +776,21 @@ public class BillService {
     this.multipleBillsCalculatorFactory = multipleBillsCalculatorFactory;
   }
 
+  @VisibleForTesting
+  void setBillCalculatorFactory(IBillCalculatorFactory billCalculatorFactory) {
+    this.billCalculatorFactory = billCalculatorFactory;
+  }
+
+  @VisibleForTesting
+  void setRunningDayTotals(IRunningDayTotals runningDayTotals) {
+    this.runningDayTotals = runningDayTotals;
+  }
+
+  @VisibleForTesting
+  void setDailySummaryService(DailySummaryService dailySummaryService) {
+    this.dailySummaryService = dailySummaryService;
+  }
+
   @VisibleForTesting
   void setServices(Set<IService> services) {
     this.services = services;
@@ -519,5 +801,10 @@ public class BillService {
     this.eventBroadcaster = eventBroadcaster;
   }
 
+  @VisibleForTesting
+  void setSchedulerService(SchedulerService schedulerService) {
+    this.schedulerService = schedulerService;
+  }
+
 
 }
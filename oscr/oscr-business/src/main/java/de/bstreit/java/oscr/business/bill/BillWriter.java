@@ -0,0 +1,339 @@
+package de.bstreit.java.oscr.business.bill;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import de.bstreit.java.oscr.business.bill.dao.IBillRepository;
+import de.bstreit.java.oscr.business.bill.journal.BillJournal;
+
+/**
+ * <p>
+ * Saves bills for the {@link BillService}. {@link #save(Bill)} returns at once
+ * and the bill is saved by a background thread. Several changes of the same
+ * bill in a row are written with a single save. {@link #saveNow(Bill)} and
+ * {@link #awaitPendingWrites()} are the barriers, e.g. when closing a bill or
+ * before querying the bills. A bill that could not be saved stays pending and
+ * is tried again; the barriers throw in that case.
+ * </p>
+ *
+ * <p>
+ * The bills stay in memory and are changed while being saved, hence all
+ * changes to a bill must be done while holding its monitor -
+ * <code>synchronized (bill) { ... }</code>. The monitor is only held to take
+ * a {@link Bill#snapshot() snapshot} of the bill; the snapshot is saved
+ * without it, so changing the bill never waits for the database. Ids
+ * generated for new bill items are copied back to the bill in memory after
+ * saving.
+ * </p>
+ *
+ * <p>
+ * Changes are recorded in the {@link BillJournal} by the {@link BillService};
+ * after saving a bill, its changes are confirmed there. The sequence number of
+ * the last change saved is stored with the bill as well, so changes are not
+ * replayed twice if the application stops before confirming them.
+ * </p>
+ *
+ * <p>
+ * A bill is merged as a whole only the first time it is saved, and again
+ * after saving failed. Merging recreates the whole list of bill items in the
+ * database, hence afterwards only the fields of the bill are updated, new
+ * bill items are inserted, bill items whose offers changed are merged on
+ * their own and the list of bill items is amended, see
+ * {@link IBillRepository#updateBill(Bill, java.util.Collection, java.util.Collection, java.util.Collection, java.util.Collection)}
+ * .
+ * </p>
+ */
+@Named
+class BillWriter {
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(BillWriter.class);
+
+	@Inject
+	private IBillRepository billRepository;
+
+	@Inject
+	private BillJournal billJournal;
+
+	/** by bill id, in the order of the first change; guarded by itself */
+	private final Map<String, Bill> pendingBills = Maps.newLinkedHashMap();
+
+	/** true while a write task is queued or running; guarded by pendingBills */
+	private boolean writeScheduled = false;
+
+	/**
+	 * Held while saving, so a bill saved by {@link #saveNow(Bill)} is not
+	 * saved by the background thread at the same time
+	 */
+	private final Object writeLock = new Object();
+
+	private ExecutorService writer;
+
+
+	@PostConstruct
+	private void init() {
+		writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+				.setNameFormat("bill-writer").setDaemon(true).build());
+	}
+
+	@PreDestroy
+	void shutdown() {
+		awaitPendingWrites();
+		writer.shutdown();
+	}
+
+	/**
+	 * Save the bill in the background, including all changes made so far.
+	 */
+	void save(Bill bill) {
+		synchronized (pendingBills) {
+			pendingBills.put(bill.getId(), bill);
+
+			if (!writeScheduled) {
+				writeScheduled = true;
+				writer.execute(this::writePendingBillsQuietly);
+			}
+		}
+	}
+
+	/**
+	 * Save the bill in the calling thread, including all changes made so far.
+	 * If saving fails, the bill stays pending.
+	 */
+	void saveNow(Bill bill) {
+		synchronized (pendingBills) {
+			pendingBills.remove(bill.getId());
+		}
+
+		try {
+			write(bill);
+		} catch (final RuntimeException e) {
+			keepPending(ImmutableList.of(bill));
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns once all changes passed to {@link #save(Bill)} before are saved.
+	 * Bills that could not be saved in the background are tried again.
+	 *
+	 * @throws RuntimeException
+	 *             if a bill could not be saved; it stays pending
+	 */
+	void awaitPendingWrites() {
+		if (writer.isShutdown()) {
+			return;
+		}
+
+		try {
+			writer.submit(this::writePendingBills).get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException e) {
+			throw new RuntimeException("Could not save all bills", e.getCause());
+		}
+	}
+
+	private void writePendingBillsQuietly() {
+		try {
+			writePendingBills();
+		} catch (final RuntimeException e) {
+			// tried again with the next save, or by awaitPendingWrites
+			logger.error("Could not save all bills, keeping them pending", e);
+		}
+	}
+
+	/**
+	 * Save the pending bills. Those that could not be saved are pending again
+	 * afterwards.
+	 *
+	 * @throws RuntimeException
+	 *             the first failure, once all other bills were saved
+	 */
+	private void writePendingBills() {
+		final List<Bill> failedBills = Lists.newArrayList();
+		RuntimeException failure = null;
+
+		while (true) {
+			final Bill bill;
+
+			synchronized (pendingBills) {
+				final Iterator<Bill> iterator = pendingBills.values().iterator();
+
+				if (!iterator.hasNext()) {
+					writeScheduled = false;
+					break;
+				}
+
+				bill = iterator.next();
+				iterator.remove();
+			}
+
+			try {
+				write(bill);
+			} catch (final RuntimeException e) {
+				logger.error("Could not save bill " + bill.getId(), e);
+
+				failedBills.add(bill);
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+
+		if (failure != null) {
+			keepPending(failedBills);
+			throw failure;
+		}
+	}
+
+	/**
+	 * Put bills that could not be saved back, unless they were passed to
+	 * {@link #save(Bill)} again meanwhile.
+	 */
+	private void keepPending(List<Bill> bills) {
+		synchronized (pendingBills) {
+			for (final Bill bill : bills) {
+				pendingBills.putIfAbsent(bill.getId(), bill);
+			}
+		}
+	}
+
+	private void write(Bill bill) {
+		synchronized (writeLock) {
+			final long sequence;
+			final Set<Long> savedBillItemIds;
+			final Set<BillItem> changedBillItems;
+			final List<BillItem> billItems;
+			final Bill snapshot;
+
+			synchronized (bill) {
+				sequence = billJournal.getLastSequence(bill.getId());
+				if (sequence > 0) {
+					bill.setJournalSequence(sequence);
+				}
+				savedBillItemIds = bill.getSavedBillItemIds();
+				// changes from now on are saved with the next write
+				changedBillItems = bill.takeChangedBillItems();
+				billItems = bill.getBillItems();
+				snapshot = bill.snapshot();
+			}
+
+			try {
+				final List<BillItem> savedBillItems;
+
+				if (savedBillItemIds != null
+						&& updateBill(snapshot, billItems, savedBillItemIds,
+								changedBillItems)) {
+					savedBillItems = snapshot.getBillItems();
+				} else {
+					savedBillItems = billRepository.save(snapshot).getBillItems();
+				}
+
+				synchronized (bill) {
+					adoptIds(billItems, savedBillItems);
+					bill.setSavedBillItemIds(idsOf(savedBillItems));
+				}
+			} catch (final RuntimeException e) {
+				synchronized (bill) {
+					bill.setSavedBillItemIds(null);
+				}
+				throw e;
+			}
+
+			billJournal.confirm(bill.getId(), sequence);
+		}
+	}
+
+	/**
+	 * Take over the ids generated for new bill items. The bill items are
+	 * those of the bill when the snapshot was taken - they may have been
+	 * removed from the bill since. Must be called holding the monitor of the
+	 * bill.
+	 */
+	private static void adoptIds(List<BillItem> billItems,
+			List<BillItem> savedBillItems) {
+		for (int i = 0; i < billItems.size() && i < savedBillItems.size(); i++) {
+			billItems.get(i).adoptIdOf(savedBillItems.get(i));
+		}
+	}
+
+	private static Set<Long> idsOf(List<BillItem> billItems) {
+		final Set<Long> ids = Sets.newHashSet();
+		for (final BillItem billItem : billItems) {
+			ids.add(billItem.getId());
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Store the changes since the bill was saved last, without merging the
+	 * bill as a whole.
+	 *
+	 * @param billItems
+	 *            the bill items of the bill when the snapshot was taken, in the
+	 *            same order as the copies in the snapshot
+	 * @param changedBillItems
+	 *            those of the bill items whose offers changed
+	 * @return false, if the bill is not stored (anymore)
+	 */
+	private boolean updateBill(Bill snapshot, List<BillItem> billItems,
+			Set<Long> savedBillItemIds, Set<BillItem> changedBillItems) {
+		final List<BillItem> copies = snapshot.getBillItems();
+
+		final List<BillItem> newBillItems = Lists.newArrayList();
+		final List<BillItem> changedCopies = Lists.newArrayList();
+		final Set<Long> addedBillItemIds = Sets.newLinkedHashSet();
+		final Set<Long> removedBillItemIds = Sets.newHashSet(savedBillItemIds);
+
+		for (int i = 0; i < copies.size(); i++) {
+			final BillItem copy = copies.get(i);
+			final Long id = copy.getId();
+
+			if (id == null) {
+				newBillItems.add(copy);
+				continue;
+			}
+
+			if (!removedBillItemIds.remove(id)) {
+				// removed before and added again, e.g. by redo
+				addedBillItemIds.add(id);
+			}
+			if (changedBillItems.contains(billItems.get(i))) {
+				changedCopies.add(copy);
+			}
+		}
+
+		return billRepository.updateBill(snapshot, newBillItems, changedCopies,
+				addedBillItemIds, removedBillItemIds);
+	}
+
+	@VisibleForTesting
+	void setBillRepository(IBillRepository billRepository) {
+		this.billRepository = billRepository;
+	}
+
+	@VisibleForTesting
+	void setBillJournal(BillJournal billJournal) {
+		this.billJournal = billJournal;
+	}
+
+}
@@ -6,4 +6,12 @@ public interface IBillCalculatorFactory {
 
 	public abstract IBillCalculator create(Bill bill, WhatToCount whatToCount);
 
-}
\ No newline at end of file
+	/**
+	 * @return a calculator which did not analyse any bill yet. It can analyse
+	 *         several bills one after another, each call to
+	 *         {@link IBillCalculator#analyse(Bill)} replaces the previous
+	 *         results.
+	 */
+	public abstract IBillCalculator create(WhatToCount whatToCount);
+
+}
@@ -0,0 +1,10 @@
+package de.bstreit.java.oscr.business.bill;
+
+/**
+ * Hands bills one by one to a processor, e.g. while streaming them from the
+ * database - so not all of them need to be in memory at the same time.
+ */
+public interface IBillSource {
+
+  public void processBills(IBillProcessor billProcessor);
+}
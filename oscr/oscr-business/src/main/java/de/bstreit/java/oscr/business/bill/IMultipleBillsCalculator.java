@@ -19,6 +19,8 @@ public interface IMultipleBillsCalculator {
 
   public abstract boolean isFilled();
 
+  public abstract int getNumberOfBills();
+
   // public abstract Money getNetFor(BillItem billItem);
   //
   // public abstract String getVATClassAbbreviationFor(BillItem billItem);
@@ -9,4 +9,27 @@ public interface IMultipleBillsCalculatorFactory {
 	public abstract IMultipleBillsCalculator create(Collection<Bill> bill,
 			WhatToCount promoTotal);
 
+	/**
+	 * Same result as {@link #create(Collection, WhatToCount)}, but the bills
+	 * are analysed in chunks on the common fork join pool. Meant for large
+	 * numbers of bills, e.g. for a whole month or year.
+	 */
+	public abstract IMultipleBillsCalculator createInParallel(
+			Collection<Bill> bills, WhatToCount whatToCount);
+
+	/**
+	 * Calculate payment, promo total and total of the given bills at once,
+	 * walking the bills only a single time.
+	 */
+	public abstract IMultipleBillsTotals createForAllMeasures(
+			Collection<Bill> bills);
+
+	/**
+	 * Same as {@link #createForAllMeasures(Collection)}, but the bills are
+	 * taken one by one from the source, e.g. streamed from the database. Only
+	 * the totals are kept, not the bills.
+	 */
+	public abstract IMultipleBillsTotals createForAllMeasures(
+			IBillSource billSource);
+
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package de.bstreit.java.oscr.business.bill;
+
+import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
+
+/**
+ * The totals of a collection of bills for all measures (see
+ * {@link WhatToCount}), calculated in a single run over the bills.
+ */
+public interface IMultipleBillsTotals {
+
+  public abstract IMultipleBillsCalculator get(WhatToCount whatToCount);
+
+  public abstract boolean isFilled();
+
+}
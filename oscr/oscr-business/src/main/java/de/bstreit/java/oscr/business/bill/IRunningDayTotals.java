@@ -0,0 +1,37 @@
+package de.bstreit.java.oscr.business.bill;
+
+import java.util.Collection;
+
+/**
+ * Today's totals, kept up to date on every bill event instead of being
+ * recalculated from all of today's bills.
+ */
+public interface IRunningDayTotals {
+
+  /**
+   * @return false, if the totals were never initialised or belong to another
+   *         day
+   */
+  public abstract boolean isUpToDate();
+
+  /**
+   * Call before today's bills are fetched for {@link #initialise(Collection)}.
+   * Bills changed or deleted in the meantime are remembered and applied after
+   * the initialisation, since the fetched bills may not contain these changes.
+   */
+  public abstract void startRebuilding();
+
+  /**
+   * Start over with the given bills - at startup or after the day changed.
+   *
+   * @param todaysBills
+   *          all bills opened today, excluding staff consumption
+   */
+  public abstract void initialise(Collection<Bill> todaysBills);
+
+  /**
+   * @return a snapshot of the current totals; it does not change any more
+   */
+  public abstract IMultipleBillsTotals getTotalsForToday();
+
+}
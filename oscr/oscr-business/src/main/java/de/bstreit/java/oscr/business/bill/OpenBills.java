@@ -0,0 +1,127 @@
+package de.bstreit.java.oscr.business.bill;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.bill.dao.IBillRepository;
+
+/**
+ * <p>
+ * All bills that are not closed yet, kept in memory by the {@link BillService}
+ * whenever a bill is opened, closed or deleted. The database is only queried
+ * by {@link #load()}, once.
+ * </p>
+ *
+ * <p>
+ * The bills are handed out with their items and offers fetched, and in the
+ * order they were opened.
+ * </p>
+ */
+@Named
+public class OpenBills {
+
+	@Inject
+	private IBillRepository billRepository;
+
+	private boolean loaded = false;
+
+	/** by bill id, in the order the bills were opened */
+	private final Map<String, Bill> billsById = Maps.newLinkedHashMap();
+
+	private final Map<String, Bill> billsByDescription = Maps.newHashMap();
+
+	/** rebuilt on the first call of {@link #getAll()} after a change */
+	private List<Bill> allBills = null;
+
+
+	public synchronized boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Read the open bills from the database. Bills that were added before are
+	 * kept. Pending writes of bills must be done before.
+	 */
+	public synchronized void load() {
+		final List<Bill> storedBills = billRepository.fetchOpenBills();
+
+		final Map<String, Bill> addedBills = Maps.newLinkedHashMap(billsById);
+		billsById.clear();
+		billsByDescription.clear();
+
+		for (final Bill bill : storedBills) {
+			// the bill in memory may have changes that are not saved yet
+			final Bill addedBill = addedBills.remove(bill.getId());
+
+			add(addedBill == null ? bill : addedBill);
+		}
+
+		for (final Bill bill : addedBills.values()) {
+			add(bill);
+		}
+
+		loaded = true;
+	}
+
+	/**
+	 * Register an opened bill; bills that are already registered are ignored.
+	 */
+	synchronized void add(Bill bill) {
+		if (billsById.containsKey(bill.getId())) {
+			return;
+		}
+
+		billsById.put(bill.getId(), bill);
+		if (bill.getDescription() != null) {
+			billsByDescription.put(bill.getDescription(), bill);
+		}
+		allBills = null;
+	}
+
+	/**
+	 * Unregister a bill that was closed or deleted.
+	 */
+	synchronized void remove(Bill bill) {
+		if (billsById.remove(bill.getId()) == null) {
+			return;
+		}
+
+		if (bill.getDescription() != null) {
+			billsByDescription.remove(bill.getDescription());
+		}
+		allBills = null;
+	}
+
+	public synchronized int size() {
+		return billsById.size();
+	}
+
+	public synchronized boolean isEmpty() {
+		return billsById.isEmpty();
+	}
+
+	/**
+	 * @return the open bills in the order they were opened
+	 */
+	public synchronized List<Bill> getAll() {
+		if (allBills == null) {
+			allBills = ImmutableList.copyOf(billsById.values());
+		}
+
+		return allBills;
+	}
+
+	/**
+	 * @return the open bill with the given description, or null
+	 */
+	public synchronized Bill findByDescription(String description) {
+		return billsByDescription.get(description);
+	}
+
+}
@@ -0,0 +1,266 @@
+package de.bstreit.java.oscr.business.bill.calculator;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.money.MoneyAccumulator;
+import de.bstreit.java.oscr.business.base.finance.money.MoneyCents;
+import de.bstreit.java.oscr.business.base.finance.tax.NetAndVATCache;
+import de.bstreit.java.oscr.business.base.finance.tax.NetAndVATCache.NetAndVAT;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillItem;
+import de.bstreit.java.oscr.business.bill.IBillCalculator;
+import de.bstreit.java.oscr.business.taxation.IVATFinder;
+
+/**
+ * Walks the bill exactly once in {@link #analyse(Bill)} and stores all totals
+ * per VAT class as well as the net value of every bill item in a
+ * {@link BillCalculationResult}. All getters only read that result. Sums are
+ * built in cents, see {@link MoneyCents}. Results of closed bills are taken
+ * from the {@link ClosedBillsCalculationCache}.
+ *
+ * <p>
+ * Subclasses decide which items count and which amount of an item counts.
+ * </p>
+ */
+abstract class AbstractBillCalculator implements IBillCalculator {
+
+  private final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(getClass());
+
+  @Inject
+  private Currency defaultCurrency;
+
+  @Inject
+  private IVATFinder vatFinder;
+
+  @Inject
+  private NetAndVATCache netAndVATCache;
+
+  @Inject
+  private ClosedBillsCalculationCache closedBillsCalculationCache;
+
+  private final WhatToCount whatToCount;
+
+  private BillCalculationResult result;
+
+  protected Money ZERO;
+
+
+  AbstractBillCalculator(WhatToCount whatToCount) {
+    this.whatToCount = whatToCount;
+  }
+
+  @PostConstruct
+  private void init() {
+    ZERO = new Money(BigDecimal.ZERO, defaultCurrency);
+  }
+
+  /**
+   * Analyse this bill. Use the get methods to query information about this
+   * bill.
+   *
+   * @param bill
+   */
+  @Override
+  public void analyse(Bill bill) {
+
+    result = closedBillsCalculationCache.get(bill, whatToCount);
+
+    if (result == null) {
+      result = calculate(bill);
+      closedBillsCalculationCache.put(bill, whatToCount, result);
+    }
+  }
+
+  private BillCalculationResult calculate(Bill bill) {
+
+    final List<BillItem> billItems = bill.getBillItems();
+    final int numberOfItems = billItems.size();
+
+    final List<VATClass> vatClasses = Lists.newArrayListWithCapacity(2);
+    final List<MoneyAccumulator> grossByVatClass = Lists
+        .newArrayListWithCapacity(2);
+    final List<MoneyAccumulator> netByVatClass = Lists
+        .newArrayListWithCapacity(2);
+
+    final MoneyAccumulator totalGross = new MoneyAccumulator(defaultCurrency);
+
+    final IdentityHashMap<BillItem, Integer> indexByBillItem = new IdentityHashMap<>(
+        numberOfItems);
+    final Map<Long, Integer> indexByBillItemId = Maps
+        .newHashMapWithExpectedSize(numberOfItems);
+    final Money[] netByBillItem = new Money[numberOfItems];
+    final char[] abbreviationByBillItem = new char[numberOfItems];
+
+    for (int i = 0; i < numberOfItems; i++) {
+      final BillItem item = billItems.get(i);
+      indexByBillItem.put(item, i);
+      if (item.getId() != null) {
+        indexByBillItemId.put(item.getId(), i);
+      }
+
+      if (!isCounted(bill, item)) {
+        netByBillItem[i] = ZERO;
+        continue;
+      }
+
+      final VATClass vatClass = vatFinder.getVATClassFor(item, bill);
+
+      int idx = vatClasses.indexOf(vatClass);
+      if (idx < 0) {
+        idx = vatClasses.size();
+        vatClasses.add(vatClass);
+        grossByVatClass.add(new MoneyAccumulator(defaultCurrency));
+        netByVatClass.add(new MoneyAccumulator(defaultCurrency));
+      }
+
+      final Money itemGrossAsMoney = getGrossFor(bill, item);
+      grossByVatClass.get(idx).add(itemGrossAsMoney);
+
+      final long itemGross = MoneyCents.toCents(itemGrossAsMoney);
+      final NetAndVAT itemNetAndVAT = netAndVATCache.get(itemGrossAsMoney,
+          vatClass);
+      final long itemNet = itemNetAndVAT.getNetCents();
+
+      netByVatClass.get(idx).addCents(itemNet);
+      totalGross.addCents(getGrossForTotal(bill, item, itemGross));
+
+      final long netForBillItem = getNetForBillItem(bill, item, vatClass,
+          itemNet);
+      // the cached instance can be handed out as is, if not adjusted
+      netByBillItem[i] = netForBillItem == itemNet ? itemNetAndVAT.getNet()
+          : MoneyCents.toMoney(netForBillItem, defaultCurrency);
+      abbreviationByBillItem[i] = (char) ('A' + idx);
+    }
+
+    final int size = vatClasses.size();
+    final long[] gross = new long[size];
+    final long[] net = new long[size];
+    final long[] vat = new long[size];
+
+    for (int i = 0; i < size; i++) {
+      gross[i] = adjustTotal(bill, grossByVatClass.get(i).getCents());
+      net[i] = adjustTotal(bill, netByVatClass.get(i).getCents());
+      vat[i] = gross[i] - net[i];
+    }
+
+    return new BillCalculationResult(defaultCurrency,
+        vatClasses.toArray(new VATClass[size]), gross, net, vat, adjustTotal(
+            bill, totalGross.getCents()), indexByBillItem, indexByBillItemId,
+        netByBillItem, abbreviationByBillItem);
+  }
+
+  /**
+   * @return the net amount of the gross amount in cents
+   */
+  protected long getNetCents(Money gross, VATClass vatClass) {
+    return netAndVATCache.get(gross, vatClass).getNetCents();
+  }
+
+  /**
+   * @return true, if the item is part of the totals of this calculator
+   */
+  protected boolean isCounted(Bill bill, BillItem item) {
+    return true;
+  }
+
+  /**
+   * @return the gross amount of the item that counts for the totals per VAT
+   *         class
+   */
+  protected abstract Money getGrossFor(Bill bill, BillItem item);
+
+  /**
+   * @return the gross amount of the item in cents that counts for the total
+   *         gross of the bill. Defaults to the amount counted per VAT class.
+   */
+  protected long getGrossForTotal(Bill bill, BillItem item, long itemGross) {
+    return itemGross;
+  }
+
+  /**
+   * @return the net value in cents reported by {@link #getNetFor(BillItem)}.
+   *         Defaults to the net amount counted per VAT class.
+   */
+  protected long getNetForBillItem(Bill bill, BillItem item,
+      VATClass vatClass, long itemNet) {
+    return itemNet;
+  }
+
+  /**
+   * Applied to every summed up total in cents, e.g. for reductions on the
+   * whole bill.
+   */
+  protected long adjustTotal(Bill bill, long total) {
+    return total;
+  }
+
+  @PreDestroy
+  @Override
+  public void close() {
+    logger.debug("closing bill calculator");
+
+    result = null;
+  }
+
+  @Override
+  public Money getTotalGross() {
+    return result.getTotalGross();
+  }
+
+  @Override
+  public Money getTotalNetFor(VATClass vatClass) {
+    return result.getTotalNetFor(vatClass);
+  }
+
+  @Override
+  public Money getTotalGrossFor(VATClass vatClass) {
+    return result.getTotalGrossFor(vatClass);
+  }
+
+  @Override
+  public Money getTotalVATFor(VATClass vatClass) {
+    return result.getTotalVATFor(vatClass);
+  }
+
+  @Override
+  public Money getNetFor(BillItem billItem) {
+    final Money net = result.getNetFor(billItem);
+
+    if (net == null) {
+      throw new RuntimeException("billItem not contained in bill!");
+    }
+
+    return net;
+  }
+
+  @Override
+  public String getVATClassAbbreviationFor(BillItem billItem) {
+    return result.getVATClassAbbreviationFor(billItem).toString();
+  }
+
+  @Override
+  public VATClass getVATClassForAbbreviation(Character abbreviation) {
+    return result.getVATClassForAbbreviation(abbreviation);
+  }
+
+  @Override
+  public SortedSet<Character> allFoundVATClassesAbbreviated() {
+    return result.allFoundVATClassesAbbreviated();
+  }
+
+}
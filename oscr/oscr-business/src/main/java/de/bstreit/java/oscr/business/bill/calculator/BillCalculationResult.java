@@ -0,0 +1,175 @@
+package de.bstreit.java.oscr.business.bill.calculator;
+
+import java.util.Collections;
+import java.util.Currency;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.money.MoneyCents;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.bill.BillItem;
+
+/**
+ * The outcome of analysing a single bill: totals per VAT class and the net
+ * value of every bill item. Filled in one sweep by the
+ * {@link AbstractBillCalculator}, afterwards only read - hence it can be
+ * shared between threads.
+ *
+ * <p>
+ * Totals are kept as cents (see {@link MoneyCents}) in small arrays, the net
+ * values of the bill items as {@link Money}. VAT classes are stored in the
+ * order they were found, so the position of a VAT class is also its
+ * abbreviation ('A' + position).
+ * </p>
+ */
+class BillCalculationResult {
+
+  private final Currency currency;
+
+  private final VATClass[] vatClasses;
+  private final long[] grossByVatClass;
+  private final long[] netByVatClass;
+  private final long[] vatByVatClass;
+
+  private final long totalGross;
+
+  /** by identity; empty in cached results, see {@link #withoutBillItems()} */
+  private final Map<BillItem, Integer> indexByBillItem;
+  /**
+   * A cached result of a closed bill may be queried with other instances of
+   * the same, persisted bill items
+   */
+  private final Map<Long, Integer> indexByBillItemId;
+  private final Money[] netByBillItem;
+  /** 0 for items that were not counted */
+  private final char[] abbreviationByBillItem;
+
+
+  BillCalculationResult(Currency currency, VATClass[] vatClasses,
+      long[] grossByVatClass, long[] netByVatClass, long[] vatByVatClass,
+      long totalGross, Map<BillItem, Integer> indexByBillItem,
+      Map<Long, Integer> indexByBillItemId, Money[] netByBillItem,
+      char[] abbreviationByBillItem) {
+
+    this.currency = currency;
+    this.vatClasses = vatClasses;
+    this.grossByVatClass = grossByVatClass;
+    this.netByVatClass = netByVatClass;
+    this.vatByVatClass = vatByVatClass;
+    this.totalGross = totalGross;
+    this.indexByBillItem = indexByBillItem;
+    this.indexByBillItemId = indexByBillItemId;
+    this.netByBillItem = netByBillItem;
+    this.abbreviationByBillItem = abbreviationByBillItem;
+  }
+
+  /**
+   * The same result, but it finds the bill items by id only. It does not
+   * hold on to the bill items, and through them to the offers, of the
+   * analysed bill - meant for keeping it in the
+   * {@link ClosedBillsCalculationCache}.
+   *
+   * @return null, if not all bill items are stored yet and therefore could
+   *         not be found by id
+   */
+  BillCalculationResult withoutBillItems() {
+    if (indexByBillItemId.size() != netByBillItem.length) {
+      return null;
+    }
+
+    return new BillCalculationResult(currency, vatClasses, grossByVatClass,
+        netByVatClass, vatByVatClass, totalGross,
+        Collections.<BillItem, Integer> emptyMap(), indexByBillItemId,
+        netByBillItem, abbreviationByBillItem);
+  }
+
+  Money getTotalGross() {
+    return toMoney(totalGross);
+  }
+
+  Money getTotalGrossFor(VATClass vatClass) {
+    return getFor(vatClass, grossByVatClass);
+  }
+
+  Money getTotalNetFor(VATClass vatClass) {
+    return getFor(vatClass, netByVatClass);
+  }
+
+  Money getTotalVATFor(VATClass vatClass) {
+    return getFor(vatClass, vatByVatClass);
+  }
+
+  /**
+   * @return the net value of the bill item, or null if the item was not part
+   *         of the analysed bill
+   */
+  Money getNetFor(BillItem billItem) {
+    final Integer idx = indexOf(billItem);
+    return idx == null ? null : netByBillItem[idx];
+  }
+
+  /**
+   * @return the abbreviation, or null if the item was not counted or was not
+   *         part of the analysed bill
+   */
+  Character getVATClassAbbreviationFor(BillItem billItem) {
+    final Integer idx = indexOf(billItem);
+
+    if (idx == null || abbreviationByBillItem[idx] == 0) {
+      return null;
+    }
+
+    return abbreviationByBillItem[idx];
+  }
+
+  VATClass getVATClassForAbbreviation(Character abbreviation) {
+    final int idx = abbreviation - 'A';
+
+    if (idx < 0 || idx >= vatClasses.length) {
+      return null;
+    }
+
+    return vatClasses[idx];
+  }
+
+  SortedSet<Character> allFoundVATClassesAbbreviated() {
+    final SortedSet<Character> abbreviations = new TreeSet<Character>();
+
+    for (int i = 0; i < vatClasses.length; i++) {
+      abbreviations.add((char) ('A' + i));
+    }
+
+    return abbreviations;
+  }
+
+  private Money getFor(VATClass vatClass, long[] amounts) {
+    final int idx = indexOf(vatClass);
+    return toMoney(idx < 0 ? 0 : amounts[idx]);
+  }
+
+  private Money toMoney(long cents) {
+    return MoneyCents.toMoney(cents, currency);
+  }
+
+  private Integer indexOf(BillItem billItem) {
+    final Integer idx = indexByBillItem.get(billItem);
+
+    if (idx == null && billItem.getId() != null) {
+      return indexByBillItemId.get(billItem.getId());
+    }
+
+    return idx;
+  }
+
+  private int indexOf(VATClass vatClass) {
+    // usually there are just one or two VAT classes on a bill
+    for (int i = 0; i < vatClasses.length; i++) {
+      if (vatClasses[i].equals(vatClass)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -18,14 +18,15 @@ public class BillCalculatorFactory implements IBillCalculatorFactory {
 	@Override
 	public IBillCalculator create(Bill bill, WhatToCount whatToCount) {
 
-		final IBillCalculator billCalculator = createBillCalculator(whatToCount);
+		final IBillCalculator billCalculator = create(whatToCount);
 
 		billCalculator.analyse(bill);
 
 		return billCalculator;
 	}
 
-	private IBillCalculator createBillCalculator(WhatToCount whatToCount) {
+	@Override
+	public IBillCalculator create(WhatToCount whatToCount) {
 
 		switch (whatToCount) {
 
@@ -0,0 +1,88 @@
+package de.bstreit.java.oscr.business.bill.calculator;
+
+import javax.inject.Named;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import de.bstreit.java.oscr.business.bill.Bill;
+
+/**
+ * <p>
+ * Calculation results of closed bills, per bill id and {@link WhatToCount}. A
+ * closed bill never changes again, so there is no need to analyse it again
+ * each time it is printed, exported or summed up.
+ * </p>
+ * 
+ * <p>
+ * The results are immutable and the cache is thread safe; the least recently
+ * used entries are evicted once the maximum size is reached. Only results
+ * that find the bill items by id are kept (see
+ * {@link BillCalculationResult#withoutBillItems()}), so the cache does not
+ * hold on to the bills analysed - bills streamed from the database can be
+ * dropped as soon as they are summed up.
+ * </p>
+ */
+@Named
+class ClosedBillsCalculationCache {
+
+	/** about one busy month of bills for every {@link WhatToCount} */
+	private static final int MAXIMUM_SIZE = 3 * 10000;
+
+	private final Cache<Key, BillCalculationResult> cache = CacheBuilder
+			.newBuilder().maximumSize(MAXIMUM_SIZE).build();
+
+
+	/**
+	 * @return the cached result, or null if the bill is not closed or not
+	 *         cached
+	 */
+	BillCalculationResult get(Bill bill, WhatToCount whatToCount) {
+		if (bill.getBillClosed() == null) {
+			return null;
+		}
+
+		return cache.getIfPresent(new Key(bill.getId(), whatToCount));
+	}
+
+	/**
+	 * Ignored, if the bill is not closed or not all of its bill items are
+	 * stored yet.
+	 */
+	void put(Bill bill, WhatToCount whatToCount, BillCalculationResult result) {
+		if (bill.getBillClosed() == null) {
+			return;
+		}
+
+		final BillCalculationResult cachedResult = result.withoutBillItems();
+		if (cachedResult != null) {
+			cache.put(new Key(bill.getId(), whatToCount), cachedResult);
+		}
+	}
+
+	private static final class Key {
+
+		private final String billId;
+		private final WhatToCount whatToCount;
+
+		private Key(String billId, WhatToCount whatToCount) {
+			this.billId = billId;
+			this.whatToCount = whatToCount;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			final Key other = (Key) obj;
+			return billId.equals(other.billId) && whatToCount == other.whatToCount;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * billId.hashCode() + whatToCount.hashCode();
+		}
+	}
+}
@@ -1,20 +1,23 @@
 package de.bstreit.java.oscr.business.bill.calculator;
 
 import java.util.Collection;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 
 import de.bstreit.java.oscr.business.base.finance.money.Money;
 import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
 import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillItem;
 import de.bstreit.java.oscr.business.bill.IBillCalculator;
 import de.bstreit.java.oscr.business.bill.IBillCalculatorFactory;
 import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
@@ -30,14 +33,12 @@ class MultipleBillsCalculator implements IMultipleBillsCalculator {
 
 	private final IBillCalculatorFactory billCalculatorFactory;
 
-	private IBillCalculator currentBillCalculator;
+	/** Used for all bills, one after another */
+	private IBillCalculator billCalculator;
 
 	private boolean filled = false;
 
-	private Money totalGross;
-	private final Map<VATClass, Money> totalNetByVatClass = Maps.newHashMap();
-	private final Map<VATClass, Money> totalGrossByVatClass = Maps.newHashMap();
-	private final Map<VATClass, Money> totalVatByVatClass = Maps.newHashMap();
+	private VatClassTotals totals = new VatClassTotals();
 
 	private WhatToCount whatToCount;
 
@@ -48,117 +49,95 @@ class MultipleBillsCalculator implements IMultipleBillsCalculator {
 
 	@Override
 	public Money getTotalGross() {
-		return totalGross;
+		return totals.getTotalGross();
 	}
 
 	@Override
 	public Money getTotalNetFor(VATClass vatClass) {
-		return totalNetByVatClass.get(vatClass);
+		return totals.getTotalNetFor(vatClass);
 	}
 
 	@Override
 	public Money getTotalGrossFor(VATClass vatClass) {
-		return totalGrossByVatClass.get(vatClass);
+		return totals.getTotalGrossFor(vatClass);
 	}
 
 	@Override
 	public Money getTotalVATFor(VATClass vatClass) {
-		return totalVatByVatClass.get(vatClass);
+		return totals.getTotalVATFor(vatClass);
 	}
 
 	@Override
 	public Set<VATClass> getAllVatClasses() {
-		return totalVatByVatClass.keySet();
+		return totals.getAllVatClasses();
 	}
 
 	void analyse(Collection<Bill> bills) {
 
 		filled = !bills.isEmpty();
 
-		for (final Bill bill : bills) {
-			currentBillCalculator = billCalculatorFactory.create(bill,
-					whatToCount);
-
-			try {
-				addTotalGross();
-				addTotalNetByVAT();
-				addTotalGrossByVatClass();
-				addTotalVatByVatClass();
-
-			} finally {
-				currentBillCalculator.close();
+		try {
+			for (final Bill bill : bills) {
+				addBill(bill);
 			}
+		} finally {
+			releaseBillCalculator();
 		}
 
 	}
 
-	private void addTotalNetByVAT() {
-		for (final char abbreviation : currentBillCalculator
-				.allFoundVATClassesAbbreviated()) {
+	/**
+	 * Analyse the bills in chunks on the given pool. The result is exactly the
+	 * same as the one of {@link #analyse(Collection)}.
+	 */
+	void analyseInParallel(Collection<Bill> bills, ForkJoinPool pool) {
 
-			final VATClass vatClass = currentBillCalculator
-					.getVATClassForAbbreviation(abbreviation);
-
-			if (totalNetByVatClass.containsKey(vatClass)) {
-				final Money newTotalNet = totalNetByVatClass.get(vatClass).add(
-						currentBillCalculator.getTotalNetFor(vatClass));
-
-				totalNetByVatClass.put(vatClass, newTotalNet);
-			} else {
-				totalNetByVatClass.put(vatClass,
-						currentBillCalculator.getTotalNetFor(vatClass));
-			}
+		filled = !bills.isEmpty();
 
+		if (!filled) {
+			return;
 		}
-	}
-
-	private void addTotalGrossByVatClass() {
 
-		for (final char abbreviation : currentBillCalculator
-				.allFoundVATClassesAbbreviated()) {
+		final List<Bill> billList = Lists.newArrayList(bills);
+		initialise(billList);
 
-			final VATClass vatClass = currentBillCalculator
-					.getVATClassForAbbreviation(abbreviation);
-
-			if (totalGrossByVatClass.containsKey(vatClass)) {
-				final Money newTotalGross = totalGrossByVatClass.get(vatClass)
-						.add(currentBillCalculator.getTotalGrossFor(vatClass));
+		totals = pool.invoke(new ParallelBillsReduction(billList,
+				billCalculatorFactory, whatToCount));
+	}
 
-				totalGrossByVatClass.put(vatClass, newTotalGross);
-			} else {
-				totalGrossByVatClass.put(vatClass,
-						currentBillCalculator.getTotalGrossFor(vatClass));
+	/**
+	 * The hibernate session is bound to the calling thread, so everything that
+	 * the bill calculators touch has to be loaded before the bills are handed
+	 * over to other threads.
+	 */
+	private void initialise(List<Bill> bills) {
+		for (final Bill bill : bills) {
+			for (final BillItem billItem : bill) {
+				Hibernate.initialize(billItem.getExtraAndVariationOffers());
 			}
-
 		}
 	}
 
-	private void addTotalVatByVatClass() {
-
-		for (final char abbreviation : currentBillCalculator
-				.allFoundVATClassesAbbreviated()) {
-
-			final VATClass vatClass = currentBillCalculator
-					.getVATClassForAbbreviation(abbreviation);
-
-			if (totalVatByVatClass.containsKey(vatClass)) {
-				final Money newTotalVat = totalVatByVatClass.get(vatClass).add(
-						currentBillCalculator.getTotalVATFor(vatClass));
-
-				totalVatByVatClass.put(vatClass, newTotalVat);
-			} else {
-				totalVatByVatClass.put(vatClass,
-						currentBillCalculator.getTotalVATFor(vatClass));
-			}
+	/**
+	 * Add a single bill to the totals. Allows to feed several calculators
+	 * while walking the bills only once. Call {@link #releaseBillCalculator()}
+	 * after the last bill.
+	 */
+	void addBill(Bill bill) {
+		filled = true;
 
+		if (billCalculator == null) {
+			billCalculator = billCalculatorFactory.create(whatToCount);
 		}
+
+		billCalculator.analyse(bill);
+		totals.add(billCalculator);
 	}
 
-	private void addTotalGross() {
-		if (totalGross == null) {
-			totalGross = currentBillCalculator.getTotalGross();
-		} else {
-			totalGross = totalGross.add(currentBillCalculator.getTotalGross());
+	void releaseBillCalculator() {
+		if (billCalculator != null) {
+			billCalculator.close();
+			billCalculator = null;
 		}
 	}
 
@@ -167,6 +146,11 @@ class MultipleBillsCalculator implements IMultipleBillsCalculator {
 		return filled;
 	}
 
+	@Override
+	public int getNumberOfBills() {
+		return totals.getNumberOfBills();
+	}
+
 	public void setWhatToCount(WhatToCount whatToCount) {
 		this.whatToCount = whatToCount;
 	}
@@ -1,6 +1,7 @@
 package de.bstreit.java.oscr.business.bill.calculator;
 
 import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -8,8 +9,10 @@ import javax.inject.Named;
 import org.springframework.context.ConfigurableApplicationContext;
 
 import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.IBillSource;
 import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
 import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculatorFactory;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
 
 @Named
 public class MultipleBillsCalculatorFactory implements
@@ -30,4 +33,39 @@ IMultipleBillsCalculatorFactory {
 
 		return billCalculator;
 	}
+
+	@Override
+	public IMultipleBillsCalculator createInParallel(Collection<Bill> bills,
+			WhatToCount whatToCount) {
+
+		final MultipleBillsCalculator billCalculator = context
+				.getBean(MultipleBillsCalculator.class);
+
+		billCalculator.setWhatToCount(whatToCount);
+		billCalculator.analyseInParallel(bills, ForkJoinPool.commonPool());
+
+		return billCalculator;
+	}
+
+	@Override
+	public IMultipleBillsTotals createForAllMeasures(Collection<Bill> bills) {
+
+		final MultipleBillsTotals totals = context
+				.getBean(MultipleBillsTotals.class);
+
+		totals.analyse(bills);
+
+		return totals;
+	}
+
+	@Override
+	public IMultipleBillsTotals createForAllMeasures(IBillSource billSource) {
+
+		final MultipleBillsTotals totals = context
+				.getBean(MultipleBillsTotals.class);
+
+		totals.analyse(billSource);
+
+		return totals;
+	}
 }
@@ -0,0 +1,96 @@
+package de.bstreit.java.oscr.business.bill.calculator;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
+
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.IBillCalculatorFactory;
+import de.bstreit.java.oscr.business.bill.IBillSource;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
+
+/**
+ * Accumulates all measures of {@link WhatToCount} while walking the bills only
+ * once, so lazily loaded offers of a bill are touched while the bill is at
+ * hand, and not once per measure.
+ *
+ * Never re-use, always get a fresh one from the
+ * {@link MultipleBillsCalculatorFactory}.
+ */
+@Named
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+class MultipleBillsTotals implements IMultipleBillsTotals {
+
+	private final Map<WhatToCount, MultipleBillsCalculator> calculatorsByMeasure = new EnumMap<>(
+			WhatToCount.class);
+
+	private boolean filled = false;
+
+	@Inject
+	public MultipleBillsTotals(IBillCalculatorFactory billCalculatorFactory) {
+
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			final MultipleBillsCalculator calculator = new MultipleBillsCalculator(
+					billCalculatorFactory);
+			calculator.setWhatToCount(whatToCount);
+
+			calculatorsByMeasure.put(whatToCount, calculator);
+		}
+	}
+
+	void analyse(Collection<Bill> bills) {
+
+		filled = !bills.isEmpty();
+
+		try {
+			for (final Bill bill : bills) {
+				addBill(bill);
+			}
+		} finally {
+			releaseBillCalculators();
+		}
+	}
+
+	void analyse(IBillSource billSource) {
+
+		try {
+			billSource.processBills(this::addBill);
+		} finally {
+			releaseBillCalculators();
+		}
+	}
+
+	private void addBill(Bill bill) {
+		filled = true;
+
+		for (final MultipleBillsCalculator calculator : calculatorsByMeasure
+				.values()) {
+			calculator.addBill(bill);
+		}
+	}
+
+	private void releaseBillCalculators() {
+		for (final MultipleBillsCalculator calculator : calculatorsByMeasure
+				.values()) {
+			calculator.releaseBillCalculator();
+		}
+	}
+
+	@Override
+	public IMultipleBillsCalculator get(WhatToCount whatToCount) {
+		return calculatorsByMeasure.get(whatToCount);
+	}
+
+	@Override
+	public boolean isFilled() {
+		return filled;
+	}
+
+}
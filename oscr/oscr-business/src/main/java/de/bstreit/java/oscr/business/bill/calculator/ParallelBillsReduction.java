@@ -0,0 +1,80 @@
+package de.bstreit.java.oscr.business.bill.calculator;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.IBillCalculator;
+import de.bstreit.java.oscr.business.bill.IBillCalculatorFactory;
+
+/**
+ * Splits the bills into chunks, reduces every chunk to {@link VatClassTotals}
+ * on a fork join pool and merges the partial sums.
+ *
+ * <p>
+ * Every chunk uses a single bill calculator for all its bills.
+ * </p>
+ */
+class ParallelBillsReduction extends RecursiveTask<VatClassTotals> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Below this number of bills, a chunk is not split any further */
+	static final int CHUNK_SIZE = 512;
+
+	private final List<Bill> bills;
+	private final int from;
+	private final int to;
+
+	private final IBillCalculatorFactory billCalculatorFactory;
+	private final WhatToCount whatToCount;
+
+	ParallelBillsReduction(List<Bill> bills,
+			IBillCalculatorFactory billCalculatorFactory, WhatToCount whatToCount) {
+		this(bills, 0, bills.size(), billCalculatorFactory, whatToCount);
+	}
+
+	private ParallelBillsReduction(List<Bill> bills, int from, int to,
+			IBillCalculatorFactory billCalculatorFactory, WhatToCount whatToCount) {
+		this.bills = bills;
+		this.from = from;
+		this.to = to;
+		this.billCalculatorFactory = billCalculatorFactory;
+		this.whatToCount = whatToCount;
+	}
+
+	@Override
+	protected VatClassTotals compute() {
+
+		if (to - from <= CHUNK_SIZE) {
+			return reduceChunk();
+		}
+
+		final int middle = (from + to) >>> 1;
+
+		final ParallelBillsReduction left = new ParallelBillsReduction(bills,
+				from, middle, billCalculatorFactory, whatToCount);
+		final ParallelBillsReduction right = new ParallelBillsReduction(bills,
+				middle, to, billCalculatorFactory, whatToCount);
+
+		left.fork();
+		final VatClassTotals rightTotals = right.compute();
+
+		return left.join().merge(rightTotals);
+	}
+
+	private VatClassTotals reduceChunk() {
+		final VatClassTotals totals = new VatClassTotals();
+
+		try (IBillCalculator billCalculator = billCalculatorFactory
+				.create(whatToCount)) {
+
+			for (int i = from; i < to; i++) {
+				billCalculator.analyse(bills.get(i));
+				totals.add(billCalculator);
+			}
+		}
+
+		return totals;
+	}
+}
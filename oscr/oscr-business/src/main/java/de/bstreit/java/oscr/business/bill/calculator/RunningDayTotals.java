@@ -0,0 +1,296 @@
+package de.bstreit.java.oscr.business.bill.calculator;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.base.date.ICurrentDateProvider;
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillDelta;
+import de.bstreit.java.oscr.business.bill.BillDelta.Kind;
+import de.bstreit.java.oscr.business.bill.IBillCalculator;
+import de.bstreit.java.oscr.business.bill.IBillCalculatorFactory;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
+import de.bstreit.java.oscr.business.bill.IRunningDayTotals;
+import de.bstreit.java.oscr.business.eventbroadcasting.BillChangeListener;
+import de.bstreit.java.oscr.business.eventbroadcasting.Delivery;
+import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
+import de.bstreit.java.oscr.business.util.DateFactory;
+
+/**
+ * <p>
+ * Keeps the totals of all measures for today's bills. The sums of every bill
+ * are remembered; if a bill changes, its old sums are subtracted and the new
+ * ones added. The effort per event depends on the size of that one bill only,
+ * not on the number of bills of the day.
+ * </p>
+ *
+ * <p>
+ * Counts the same bills as
+ * {@link de.bstreit.java.oscr.business.bill.dao.IBillRepository#getBillsForTodayWithoutStaff()}
+ * : opened today and not consumed by staff, whether closed or not.
+ * </p>
+ *
+ * <p>
+ * Events arrive in the GUI thread, the totals are read by the export services
+ * as well, hence all access is synchronised.
+ * </p>
+ */
+@Named
+class RunningDayTotals implements IRunningDayTotals, BillChangeListener {
+
+	@Inject
+	private IBillCalculatorFactory billCalculatorFactory;
+
+	@Inject
+	private EventBroadcaster eventBroadcaster;
+
+	@Inject
+	private ICurrentDateProvider currentDateProvider;
+
+	/** midnight of the day the totals belong to; null if not initialised */
+	private Date day;
+
+	private final Map<String, Map<WhatToCount, VatClassTotals>> totalsByBillId = Maps
+			.newHashMap();
+
+	private final Map<WhatToCount, VatClassTotals> totals = new EnumMap<>(
+			WhatToCount.class);
+
+	/**
+	 * true between {@link #startRebuilding()} and
+	 * {@link #initialise(Collection)}
+	 */
+	private boolean rebuilding = false;
+
+	/**
+	 * Bills changed or deleted while rebuilding, by bill id; a deleted bill is
+	 * mapped to null
+	 */
+	private final Map<String, Bill> changedWhileRebuilding = new LinkedHashMap<>();
+
+
+	@PostConstruct
+	private void init() {
+		// cheap, and the totals must include a bill as soon as it is closed
+		eventBroadcaster.addBillChangeListener(this, Delivery.SYNCHRONOUS);
+	}
+
+	@Override
+	public synchronized boolean isUpToDate() {
+		return day != null && day.equals(getToday());
+	}
+
+	@Override
+	public synchronized void startRebuilding() {
+		rebuilding = true;
+	}
+
+	@Override
+	public synchronized void initialise(Collection<Bill> todaysBills) {
+		day = getToday();
+
+		totalsByBillId.clear();
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			totals.put(whatToCount, new VatClassTotals());
+		}
+
+		for (final Bill bill : todaysBills) {
+			add(bill);
+		}
+
+		replayChangesWhileRebuilding();
+	}
+
+	private void replayChangesWhileRebuilding() {
+		for (final Map.Entry<String, Bill> change : changedWhileRebuilding
+				.entrySet()) {
+			final Bill bill = change.getValue();
+
+			if (bill == null) {
+				remove(change.getKey());
+			} else {
+				update(bill);
+			}
+		}
+
+		changedWhileRebuilding.clear();
+		rebuilding = false;
+	}
+
+	@Override
+	public synchronized IMultipleBillsTotals getTotalsForToday() {
+		final boolean filled = !totalsByBillId.isEmpty();
+		final Map<WhatToCount, IMultipleBillsCalculator> snapshot = new EnumMap<>(
+				WhatToCount.class);
+
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			snapshot.put(whatToCount, new FixedTotals(totals.get(whatToCount)
+					.copy(), filled));
+		}
+
+		return new IMultipleBillsTotals() {
+
+			@Override
+			public IMultipleBillsCalculator get(WhatToCount whatToCount) {
+				return snapshot.get(whatToCount);
+			}
+
+			@Override
+			public boolean isFilled() {
+				return filled;
+			}
+		};
+	}
+
+	@Override
+	public void billUpdated(Optional<Bill> newBill) {
+		// see billChanged
+	}
+
+	/**
+	 * Only changes of the totals count - selecting another bill does not
+	 * analyse it again. Deleted bills are removed by
+	 * {@link #billDeleted(Bill)}.
+	 */
+	@Override
+	public synchronized void billChanged(BillDelta delta) {
+		if (!delta.changesTotals() || delta.getKind() == Kind.BILL_DELETED) {
+			return;
+		}
+
+		final Bill bill = delta.getBill();
+
+		if (rebuilding) {
+			// the bills being fetched might not contain this change yet
+			changedWhileRebuilding.remove(bill.getId());
+			changedWhileRebuilding.put(bill.getId(), bill);
+		} else if (isUpToDate()) {
+			update(bill);
+		}
+		// otherwise, the totals are rebuilt anyway when read next time
+	}
+
+	@Override
+	public synchronized void billDeleted(Bill deletedBill) {
+		if (rebuilding) {
+			changedWhileRebuilding.remove(deletedBill.getId());
+			changedWhileRebuilding.put(deletedBill.getId(), null);
+		} else if (isUpToDate()) {
+			remove(deletedBill.getId());
+		}
+	}
+
+	private void update(Bill bill) {
+		remove(bill.getId());
+
+		if (isCountedToday(bill)) {
+			add(bill);
+		}
+	}
+
+	private boolean isCountedToday(Bill bill) {
+		return !bill.isConsumedByStaff() && !bill.getBillOpened().before(day);
+	}
+
+	private void add(Bill bill) {
+		final Map<WhatToCount, VatClassTotals> billTotals = new EnumMap<>(
+				WhatToCount.class);
+
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			try (IBillCalculator billCalculator = billCalculatorFactory.create(
+					bill, whatToCount)) {
+
+				final VatClassTotals billTotal = new VatClassTotals();
+				billTotal.add(billCalculator);
+
+				billTotals.put(whatToCount, billTotal);
+				totals.get(whatToCount).merge(billTotal);
+			}
+		}
+
+		totalsByBillId.put(bill.getId(), billTotals);
+	}
+
+	private void remove(String billId) {
+		final Map<WhatToCount, VatClassTotals> billTotals = totalsByBillId
+				.remove(billId);
+
+		if (billTotals == null) {
+			return;
+		}
+
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			totals.get(whatToCount).subtract(billTotals.get(whatToCount));
+		}
+	}
+
+	private Date getToday() {
+		return DateFactory.getMidnightOf(currentDateProvider.getCurrentDate());
+	}
+
+	/**
+	 * Immutable totals of one measure at the time of the snapshot.
+	 */
+	private static class FixedTotals implements IMultipleBillsCalculator {
+
+		private final VatClassTotals totals;
+		private final Set<VATClass> vatClasses;
+		private final boolean filled;
+
+		private FixedTotals(VatClassTotals totals, boolean filled) {
+			this.totals = totals;
+			this.vatClasses = ImmutableSet.copyOf(totals.getAllVatClasses());
+			this.filled = filled;
+		}
+
+		@Override
+		public Money getTotalGross() {
+			return totals.getTotalGross();
+		}
+
+		@Override
+		public Money getTotalNetFor(VATClass vatClass) {
+			return totals.getTotalNetFor(vatClass);
+		}
+
+		@Override
+		public Money getTotalGrossFor(VATClass vatClass) {
+			return totals.getTotalGrossFor(vatClass);
+		}
+
+		@Override
+		public Money getTotalVATFor(VATClass vatClass) {
+			return totals.getTotalVATFor(vatClass);
+		}
+
+		@Override
+		public Set<VATClass> getAllVatClasses() {
+			return vatClasses;
+		}
+
+		@Override
+		public boolean isFilled() {
+			return filled;
+		}
+
+		@Override
+		public int getNumberOfBills() {
+			return totals.getNumberOfBills();
+		}
+	}
+}
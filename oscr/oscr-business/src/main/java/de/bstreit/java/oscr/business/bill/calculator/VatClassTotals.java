@@ -0,0 +1,196 @@
+package de.bstreit.java.oscr.business.bill.calculator;
+
+import java.util.Currency;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.money.MoneyAccumulator;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.bill.IBillCalculator;
+
+/**
+ * Sums of gross, net and VAT per VAT class over a number of bills.
+ *
+ * <p>
+ * The sums are kept in cents (see {@link MoneyAccumulator}), so adding up is
+ * exact and the order of additions does not matter. Two partial sums can
+ * therefore be merged in any order and yield exactly the same result as a
+ * single run over all bills.
+ * </p>
+ *
+ * <p>
+ * The number of bills per VAT class is counted as well, so the sums of a
+ * single bill can be subtracted again and leave exactly the totals of the
+ * remaining bills.
+ * </p>
+ */
+class VatClassTotals {
+
+	/** null, as long as no bill was added */
+	private MoneyAccumulator totalGross;
+	private final Map<VATClass, MoneyAccumulator> totalNetByVatClass = Maps
+			.newHashMap();
+	private final Map<VATClass, MoneyAccumulator> totalGrossByVatClass = Maps
+			.newHashMap();
+	private final Map<VATClass, MoneyAccumulator> totalVatByVatClass = Maps
+			.newHashMap();
+
+	private int numberOfBills = 0;
+	private final Multiset<VATClass> numberOfBillsByVatClass = HashMultiset
+			.create();
+
+	/**
+	 * Add the results of the bill that the given calculator has just analysed.
+	 */
+	void add(IBillCalculator billCalculator) {
+		final Money billTotalGross = billCalculator.getTotalGross();
+		if (totalGross == null) {
+			totalGross = new MoneyAccumulator(billTotalGross.getCurrency());
+		}
+		totalGross.add(billTotalGross);
+		numberOfBills++;
+
+		for (final char abbreviation : billCalculator
+				.allFoundVATClassesAbbreviated()) {
+
+			final VATClass vatClass = billCalculator
+					.getVATClassForAbbreviation(abbreviation);
+
+			add(totalNetByVatClass, vatClass,
+					billCalculator.getTotalNetFor(vatClass));
+			add(totalGrossByVatClass, vatClass,
+					billCalculator.getTotalGrossFor(vatClass));
+			add(totalVatByVatClass, vatClass,
+					billCalculator.getTotalVATFor(vatClass));
+
+			numberOfBillsByVatClass.add(vatClass);
+		}
+	}
+
+	/**
+	 * Add the other partial sums to this one.
+	 *
+	 * @return this
+	 */
+	VatClassTotals merge(VatClassTotals other) {
+		if (other.totalGross != null) {
+			if (totalGross == null) {
+				totalGross = new MoneyAccumulator(other.totalGross.getCurrency());
+			}
+			totalGross.add(other.totalGross);
+		}
+
+		addAll(totalNetByVatClass, other.totalNetByVatClass);
+		addAll(totalGrossByVatClass, other.totalGrossByVatClass);
+		addAll(totalVatByVatClass, other.totalVatByVatClass);
+
+		numberOfBills += other.numberOfBills;
+		for (final Multiset.Entry<VATClass> entry : other.numberOfBillsByVatClass
+				.entrySet()) {
+			numberOfBillsByVatClass.add(entry.getElement(), entry.getCount());
+		}
+
+		return this;
+	}
+
+	/**
+	 * Remove partial sums that were added or merged into this one before.
+	 *
+	 * @return this
+	 */
+	VatClassTotals subtract(VatClassTotals other) {
+		if (other.totalGross != null) {
+			totalGross.subtract(other.totalGross);
+		}
+
+		numberOfBills -= other.numberOfBills;
+		if (numberOfBills == 0) {
+			totalGross = null;
+		}
+
+		for (final VATClass vatClass : other.getAllVatClasses()) {
+			totalNetByVatClass.get(vatClass).subtract(
+					other.totalNetByVatClass.get(vatClass));
+			totalGrossByVatClass.get(vatClass).subtract(
+					other.totalGrossByVatClass.get(vatClass));
+			totalVatByVatClass.get(vatClass).subtract(
+					other.totalVatByVatClass.get(vatClass));
+
+			numberOfBillsByVatClass.remove(vatClass,
+					other.numberOfBillsByVatClass.count(vatClass));
+
+			if (numberOfBillsByVatClass.count(vatClass) == 0) {
+				totalNetByVatClass.remove(vatClass);
+				totalGrossByVatClass.remove(vatClass);
+				totalVatByVatClass.remove(vatClass);
+			}
+		}
+
+		return this;
+	}
+
+	VatClassTotals copy() {
+		return new VatClassTotals().merge(this);
+	}
+
+	int getNumberOfBills() {
+		return numberOfBills;
+	}
+
+	Money getTotalGross() {
+		return toMoney(totalGross);
+	}
+
+	Money getTotalNetFor(VATClass vatClass) {
+		return toMoney(totalNetByVatClass.get(vatClass));
+	}
+
+	Money getTotalGrossFor(VATClass vatClass) {
+		return toMoney(totalGrossByVatClass.get(vatClass));
+	}
+
+	Money getTotalVATFor(VATClass vatClass) {
+		return toMoney(totalVatByVatClass.get(vatClass));
+	}
+
+	Set<VATClass> getAllVatClasses() {
+		return totalVatByVatClass.keySet();
+	}
+
+	private static void addAll(Map<VATClass, MoneyAccumulator> totals,
+			Map<VATClass, MoneyAccumulator> otherTotals) {
+
+		for (final Entry<VATClass, MoneyAccumulator> entry : otherTotals
+				.entrySet()) {
+			getOrCreate(totals, entry.getKey(),
+					entry.getValue().getCurrency()).add(entry.getValue());
+		}
+	}
+
+	private static void add(Map<VATClass, MoneyAccumulator> totals,
+			VATClass vatClass, Money amount) {
+		getOrCreate(totals, vatClass, amount.getCurrency()).add(amount);
+	}
+
+	private static MoneyAccumulator getOrCreate(
+			Map<VATClass, MoneyAccumulator> totals, VATClass vatClass,
+			Currency currency) {
+
+		MoneyAccumulator sum = totals.get(vatClass);
+		if (sum == null) {
+			sum = new MoneyAccumulator(currency);
+			totals.put(vatClass, sum);
+		}
+		return sum;
+	}
+
+	private static Money toMoney(MoneyAccumulator sumOrNull) {
+		return sumOrNull == null ? null : sumOrNull.toMoney();
+	}
+}
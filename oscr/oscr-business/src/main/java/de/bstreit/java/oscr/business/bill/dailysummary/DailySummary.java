@@ -0,0 +1,154 @@
+package de.bstreit.java.oscr.business.bill.dailysummary;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.annotations.Columns;
+import org.hibernate.annotations.Type;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObject;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
+import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
+
+/**
+ * <p>
+ * The totals of one {@link WhatToCount} over all bills of a past day that
+ * were not consumed by staff. Past days do not change any more, so reports
+ * read these instead of loading and analysing all bills again.
+ * </p>
+ *
+ * <p>
+ * If a bill of that day changes nevertheless (e.g. it was left open and is
+ * closed the next day), the summaries of the day are deleted and written
+ * again by the {@link DailySummaryService}.
+ * </p>
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "summaryDay",
+		"whatToCount" }))
+public class DailySummary extends AbstractPersistentObject implements
+		IMultipleBillsCalculator {
+
+	/** midnight */
+	@Temporal(TemporalType.DATE)
+	@Column(name = "summaryDay", nullable = false)
+	private Date day;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private WhatToCount whatToCount;
+
+	@Column(nullable = false)
+	private int numberOfBills;
+
+	/** null, if there were no bills that day */
+	@Type(type = "de.bstreit.java.oscr.business.base.finance.money.MoneyType")
+	@Columns(columns = { @Column(name = "totalGrossValue"),
+			@Column(name = "totalGrossCurrency") })
+	private Money totalGross;
+
+	@ElementCollection(fetch = FetchType.EAGER)
+	@CollectionTable(name = "DailySummary_VATClass")
+	private final List<DailyVATClassSummary> vatClassSummaries = Lists
+			.newArrayList();
+
+
+	@SuppressWarnings("unused")
+	private DailySummary() {
+		// for hibernate
+	}
+
+	DailySummary(Date day, WhatToCount whatToCount,
+			IMultipleBillsCalculator totals) {
+		this.day = day;
+		this.whatToCount = whatToCount;
+		this.numberOfBills = totals.getNumberOfBills();
+		this.totalGross = totals.getTotalGross();
+
+		for (final VATClass vatClass : totals.getAllVatClasses()) {
+			vatClassSummaries.add(new DailyVATClassSummary(vatClass, totals
+					.getTotalGrossFor(vatClass), totals.getTotalNetFor(vatClass),
+					totals.getTotalVATFor(vatClass)));
+		}
+	}
+
+	public Date getDay() {
+		return day;
+	}
+
+	public WhatToCount getWhatToCount() {
+		return whatToCount;
+	}
+
+	@Override
+	public int getNumberOfBills() {
+		return numberOfBills;
+	}
+
+	@Override
+	public boolean isFilled() {
+		return numberOfBills > 0;
+	}
+
+	@Override
+	public Money getTotalGross() {
+		return totalGross;
+	}
+
+	@Override
+	public Money getTotalNetFor(VATClass vatClass) {
+		final DailyVATClassSummary summary = getSummaryFor(vatClass);
+		return summary == null ? null : summary.getNet();
+	}
+
+	@Override
+	public Money getTotalGrossFor(VATClass vatClass) {
+		final DailyVATClassSummary summary = getSummaryFor(vatClass);
+		return summary == null ? null : summary.getGross();
+	}
+
+	@Override
+	public Money getTotalVATFor(VATClass vatClass) {
+		final DailyVATClassSummary summary = getSummaryFor(vatClass);
+		return summary == null ? null : summary.getVAT();
+	}
+
+	@Override
+	public Set<VATClass> getAllVatClasses() {
+		final Set<VATClass> vatClasses = Sets.newLinkedHashSet();
+
+		for (final DailyVATClassSummary summary : vatClassSummaries) {
+			vatClasses.add(summary.getVATClass());
+		}
+
+		return vatClasses;
+	}
+
+	private DailyVATClassSummary getSummaryFor(VATClass vatClass) {
+		for (final DailyVATClassSummary summary : vatClassSummaries) {
+			if (summary.getVATClass().equals(vatClass)) {
+				return summary;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,280 @@
+package de.bstreit.java.oscr.business.bill.dailysummary;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.transaction.Transactional;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+import de.bstreit.java.oscr.business.base.date.ICurrentDateProvider;
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillDelta;
+import de.bstreit.java.oscr.business.bill.BillDelta.Kind;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculatorFactory;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
+import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
+import de.bstreit.java.oscr.business.bill.dailysummary.dao.IDailySummaryRepository;
+import de.bstreit.java.oscr.business.bill.dao.IBillRepository;
+import de.bstreit.java.oscr.business.eventbroadcasting.BillChangeListener;
+import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
+import de.bstreit.java.oscr.business.util.DateFactory;
+
+/**
+ * <p>
+ * Totals of past days are read from the {@link DailySummary} table, through
+ * the {@link DailyTotalsIndex}; only the bills of today (and later) are loaded
+ * and analysed. Days without summaries are closed on the fly, i.e. their
+ * summaries are calculated and stored.
+ * </p>
+ *
+ * <p>
+ * If a bill of a past day changes, the summaries of that day are deleted and
+ * written again on the next read.
+ * </p>
+ */
+@Named
+public class DailySummaryService implements BillChangeListener {
+
+	private static final int MEASURES = WhatToCount.values().length;
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(DailySummaryService.class);
+
+	@Inject
+	private IDailySummaryRepository dailySummaryRepository;
+
+	@Inject
+	private IBillRepository billRepository;
+
+	@Inject
+	private IMultipleBillsCalculatorFactory multipleBillsCalculatorFactory;
+
+	@Inject
+	private ICurrentDateProvider currentDateProvider;
+
+	@Inject
+	private EventBroadcaster eventBroadcaster;
+
+	@Inject
+	private DailyTotalsIndex dailyTotalsIndex;
+
+
+	@PostConstruct
+	private void init() {
+		eventBroadcaster.addBillChangeListener(this);
+	}
+
+	/**
+	 * @return the totals of the given day, from the summaries if the day is
+	 *         over
+	 */
+	@Transactional
+	public IMultipleBillsTotals getTotalsForDay(Date day) {
+		final Date from = getMidnightOf(day);
+		return getTotalsFor(from, getNextDay(from));
+	}
+
+	/**
+	 * @param from
+	 *          inclusive
+	 * @param to
+	 *          exclusive
+	 * @return the totals of all bills opened in the given period, that were not
+	 *         consumed by staff
+	 */
+	@Transactional
+	public IMultipleBillsTotals getTotalsFor(Date from, Date to) {
+		final Date start = getMidnightOf(from);
+		final Date today = getToday();
+		final Date endOfSummaries = to.before(today) ? to : today;
+
+		final Map<WhatToCount, SummedTotals> totals = new EnumMap<>(
+				WhatToCount.class);
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			totals.put(whatToCount, new SummedTotals());
+		}
+
+		if (start.before(endOfSummaries)) {
+			if (!dailyTotalsIndex.isBuilt()) {
+				dailyTotalsIndex.build(dailySummaryRepository.findAll());
+			}
+
+			for (final Date day : dailyTotalsIndex.getDaysWithoutSummaries(start,
+					endOfSummaries)) {
+				closeDay(day);
+			}
+
+			dailyTotalsIndex.addTotalsTo(start, endOfSummaries, totals);
+		}
+
+		if (to.after(today)) {
+			final Date startOfOpenDays = start.before(today) ? today : start;
+			final IMultipleBillsTotals openDays = multipleBillsCalculatorFactory
+					.createForAllMeasures(billProcessor -> billRepository
+							.processBillsForDayWithoutStaff(startOfOpenDays, to,
+									billProcessor));
+
+			for (final WhatToCount whatToCount : WhatToCount.values()) {
+				totals.get(whatToCount).add(openDays.get(whatToCount));
+			}
+		}
+
+		return new IMultipleBillsTotals() {
+
+			@Override
+			public IMultipleBillsCalculator get(WhatToCount whatToCount) {
+				return totals.get(whatToCount);
+			}
+
+			@Override
+			public boolean isFilled() {
+				return totals.get(WhatToCount.TOTAL).isFilled();
+			}
+		};
+	}
+
+	/**
+	 * Calculate and store the summaries of all days that are over and were not
+	 * summarised yet. If there are no summaries at all, only yesterday is
+	 * summarised - older days can be added using {@link #rebuild(Date, Date)}.
+	 */
+	@Transactional
+	public void closeDaysBefore(Date today) {
+		final Date end = getMidnightOf(today);
+		final Date lastSummarisedDay = dailySummaryRepository
+				.getLastSummarisedDay();
+
+		final Date start;
+		if (lastSummarisedDay == null) {
+			start = getPreviousDay(end);
+		} else {
+			start = getNextDay(getMidnightOf(lastSummarisedDay));
+		}
+
+		for (Date day = start; day.before(end); day = getNextDay(day)) {
+			closeDay(day);
+		}
+	}
+
+	/**
+	 * Calculate the summaries of the given days again, from the bills.
+	 *
+	 * @param from
+	 *          inclusive
+	 * @param to
+	 *          exclusive; days from today on are never summarised
+	 * @return the number of days summarised
+	 */
+	@Transactional
+	public int rebuild(Date from, Date to) {
+		final Date today = getToday();
+		final Date end = to.before(today) ? to : today;
+
+		int numberOfDays = 0;
+		for (Date day = getMidnightOf(from); day.before(end); day = getNextDay(day)) {
+			closeDay(day);
+			numberOfDays++;
+		}
+
+		return numberOfDays;
+	}
+
+	/**
+	 * Replace the summaries of the given day by new ones, calculated from the
+	 * bills of that day.
+	 */
+	private void closeDay(Date day) {
+		logger.info("Writing daily summary for " + day);
+
+		deleteSummariesOf(day);
+
+		final Date nextDay = getNextDay(day);
+		final IMultipleBillsTotals totals = multipleBillsCalculatorFactory
+				.createForAllMeasures(billProcessor -> billRepository
+						.processBillsForDayWithoutStaff(day, nextDay, billProcessor));
+
+		final List<DailySummary> summaries = Lists
+				.newArrayListWithCapacity(MEASURES);
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			summaries.add(new DailySummary(day, whatToCount, totals
+					.get(whatToCount)));
+		}
+
+		dailyTotalsIndex.put(day, dailySummaryRepository.save(summaries));
+	}
+
+	@Override
+	public void billUpdated(Optional<Bill> newBill) {
+		// see billChanged
+	}
+
+	/**
+	 * Only changes of the totals count - selecting a bill of a past day does
+	 * not throw away its summaries. Deleted bills are handled by
+	 * {@link #billDeleted(Bill)}.
+	 */
+	@Override
+	public void billChanged(BillDelta delta) {
+		if (delta.changesTotals() && delta.getKind() != Kind.BILL_DELETED) {
+			invalidateDayOf(delta.getBill());
+		}
+	}
+
+	@Override
+	public void billDeleted(Bill deletedBill) {
+		invalidateDayOf(deletedBill);
+	}
+
+	private void invalidateDayOf(Bill bill) {
+		final Date day = getMidnightOf(bill.getBillOpened());
+
+		if (day.before(getToday())) {
+			deleteSummariesOf(day);
+		}
+	}
+
+	private void deleteSummariesOf(Date day) {
+		final List<DailySummary> summaries = dailySummaryRepository
+				.getSummariesForDay(day);
+
+		if (!summaries.isEmpty()) {
+			dailySummaryRepository.delete(summaries);
+			dailySummaryRepository.flush();
+		}
+
+		dailyTotalsIndex.remove(day);
+	}
+
+	private Date getToday() {
+		return getMidnightOf(currentDateProvider.getCurrentDate());
+	}
+
+	private static Date getMidnightOf(Date date) {
+		return DateFactory.getMidnightOf(date);
+	}
+
+	private static Date getNextDay(Date day) {
+		return addDays(day, 1);
+	}
+
+	private static Date getPreviousDay(Date day) {
+		return addDays(day, -1);
+	}
+
+	private static Date addDays(Date day, int days) {
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setTime(day);
+		calendar.add(Calendar.DAY_OF_MONTH, days);
+		return calendar.getTime();
+	}
+
+}
@@ -0,0 +1,328 @@
+package de.bstreit.java.oscr.business.bill.dailysummary;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+
+import javax.inject.Named;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.base.finance.money.DifferentCurrenciesException;
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.money.MoneyCents;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
+
+/**
+ * <p>
+ * Prefix sums over the {@link DailySummary}s: for every measure and VAT class
+ * the daily sums are kept in {@link FenwickTree}s, one slot per day. The
+ * totals of any period of summarised days - a quarter, "15th to 14th", ... -
+ * are then read in O(log n), independent of the number of days and bills in
+ * the period.
+ * </p>
+ *
+ * <p>
+ * Built lazily from all stored summaries by the {@link DailySummaryService}
+ * and kept up to date whenever it writes or deletes the summaries of a day.
+ * </p>
+ */
+@Named
+class DailyTotalsIndex {
+
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+	/** Head room when growing towards earlier days */
+	private static final int DAYS_TO_PREPEND = 366;
+
+	private boolean built = false;
+
+	/** the day of slot 0, as days since 1970-01-01 in the local time zone */
+	private long firstDay;
+
+	/** null, as long as no amount was indexed */
+	private Currency currency;
+
+	/** 1 for every day with summaries of all measures */
+	private FenwickTree summarisedDays;
+
+	private final Map<WhatToCount, MeasureIndex> indexByMeasure = new EnumMap<>(
+			WhatToCount.class);
+
+
+	synchronized boolean isBuilt() {
+		return built;
+	}
+
+	/**
+	 * Forget everything and index the given summaries.
+	 */
+	synchronized void build(Collection<DailySummary> allSummaries) {
+		firstDay = Long.MAX_VALUE;
+		currency = null;
+		indexByMeasure.clear();
+
+		final ListMultimap<Date, DailySummary> summariesByDay = ArrayListMultimap
+				.create();
+		for (final DailySummary summary : allSummaries) {
+			final Date day = new Date(summary.getDay().getTime());
+			summariesByDay.put(day, summary);
+			firstDay = Math.min(firstDay, toDayNumber(day));
+		}
+
+		if (firstDay == Long.MAX_VALUE) {
+			firstDay = toDayNumber(new Date());
+		}
+
+		summarisedDays = new FenwickTree(summariesByDay.keySet().size());
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			indexByMeasure.put(whatToCount, new MeasureIndex());
+		}
+
+		built = true;
+
+		for (final Entry<Date, Collection<DailySummary>> entry : summariesByDay
+				.asMap().entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Store the summaries of the given day, replacing the ones indexed before.
+	 */
+	synchronized void put(Date day, Collection<DailySummary> summaries) {
+		if (!built) {
+			return;
+		}
+
+		final int slot = getSlotGrowingIfNeeded(day);
+
+		clear(slot);
+
+		for (final DailySummary summary : summaries) {
+			indexByMeasure.get(summary.getWhatToCount()).put(slot, summary);
+		}
+
+		summarisedDays.set(slot,
+				summaries.size() == WhatToCount.values().length ? 1 : 0);
+	}
+
+	/**
+	 * Forget the summaries of the given day.
+	 */
+	synchronized void remove(Date day) {
+		if (!built) {
+			return;
+		}
+
+		final long dayNumber = toDayNumber(day);
+		if (dayNumber >= firstDay) {
+			clear(toSlot(dayNumber));
+		}
+	}
+
+	/**
+	 * @param from
+	 *          inclusive
+	 * @param to
+	 *          exclusive
+	 * @return all days in the given period without summaries
+	 */
+	synchronized List<Date> getDaysWithoutSummaries(Date from, Date to) {
+		final long fromDay = toDayNumber(from);
+		final long toDay = toDayNumber(to);
+
+		final List<Date> days = Lists.newArrayList();
+
+		if (fromDay >= toDay
+				|| countSummarisedDays(fromDay, toDay) == toDay - fromDay) {
+			return days;
+		}
+
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setTime(from);
+
+		for (long dayNumber = fromDay; dayNumber < toDay; dayNumber++) {
+			if (dayNumber < firstDay
+					|| summarisedDays.get(toSlot(dayNumber)) == 0) {
+				days.add(calendar.getTime());
+			}
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+		}
+
+		return days;
+	}
+
+	/**
+	 * Add the sums of all summarised days in the given period.
+	 *
+	 * @param from
+	 *          inclusive
+	 * @param to
+	 *          exclusive
+	 */
+	synchronized void addTotalsTo(Date from, Date to,
+			Map<WhatToCount, SummedTotals> totals) {
+
+		if (currency == null) {
+			return;
+		}
+
+		final int fromSlot = toSlotOrZero(toDayNumber(from));
+		final int toSlot = toSlotOrZero(toDayNumber(to));
+
+		for (final Entry<WhatToCount, MeasureIndex> entry : indexByMeasure
+				.entrySet()) {
+			entry.getValue().addTo(totals.get(entry.getKey()), fromSlot, toSlot);
+		}
+	}
+
+	private long countSummarisedDays(long fromDay, long toDay) {
+		return summarisedDays.sum(toSlotOrZero(fromDay), toSlotOrZero(toDay));
+	}
+
+	private void clear(int slot) {
+		for (final MeasureIndex measureIndex : indexByMeasure.values()) {
+			measureIndex.clear(slot);
+		}
+		summarisedDays.set(slot, 0);
+	}
+
+	private int getSlotGrowingIfNeeded(Date day) {
+		final long dayNumber = toDayNumber(day);
+
+		if (dayNumber < firstDay) {
+			final int numberOfDays = (int) (firstDay - dayNumber)
+					+ DAYS_TO_PREPEND;
+
+			summarisedDays.prepend(numberOfDays);
+			for (final MeasureIndex measureIndex : indexByMeasure.values()) {
+				measureIndex.prepend(numberOfDays);
+			}
+			firstDay -= numberOfDays;
+		}
+
+		return toSlot(dayNumber);
+	}
+
+	private int toSlot(long dayNumber) {
+		return (int) (dayNumber - firstDay);
+	}
+
+	/** days before the first slot have no sums */
+	private int toSlotOrZero(long dayNumber) {
+		return dayNumber < firstDay ? 0 : toSlot(dayNumber);
+	}
+
+	private static long toDayNumber(Date date) {
+		final long time = date.getTime();
+		return Math.floorDiv(time + TimeZone.getDefault().getOffset(time),
+				MILLIS_PER_DAY);
+	}
+
+	private long toCents(Money money) {
+		if (currency == null) {
+			currency = money.getCurrency();
+		} else if (!currency.equals(money.getCurrency())) {
+			throw new DifferentCurrenciesException("Summaries in " + currency
+					+ " and " + money.getCurrency());
+		}
+		return MoneyCents.toCents(money);
+	}
+
+	/**
+	 * The daily sums of one measure
+	 */
+	private class MeasureIndex {
+
+		private final FenwickTree totalGross = new FenwickTree(
+				summarisedDays.size());
+		private final FenwickTree numberOfBills = new FenwickTree(
+				summarisedDays.size());
+		private final Map<VATClass, VATClassIndex> indexByVatClass = Maps
+				.newLinkedHashMap();
+
+		private void put(int slot, DailySummary summary) {
+			numberOfBills.set(slot, summary.getNumberOfBills());
+			if (summary.getTotalGross() != null) {
+				totalGross.set(slot, toCents(summary.getTotalGross()));
+			}
+
+			for (final VATClass vatClass : summary.getAllVatClasses()) {
+				VATClassIndex vatClassIndex = indexByVatClass.get(vatClass);
+				if (vatClassIndex == null) {
+					vatClassIndex = new VATClassIndex();
+					indexByVatClass.put(vatClass, vatClassIndex);
+				}
+
+				vatClassIndex.days.set(slot, 1);
+				vatClassIndex.gross.set(slot,
+						toCents(summary.getTotalGrossFor(vatClass)));
+				vatClassIndex.net.set(slot, toCents(summary.getTotalNetFor(vatClass)));
+				vatClassIndex.vat.set(slot, toCents(summary.getTotalVATFor(vatClass)));
+			}
+		}
+
+		private void clear(int slot) {
+			numberOfBills.set(slot, 0);
+			totalGross.set(slot, 0);
+
+			for (final VATClassIndex vatClassIndex : indexByVatClass.values()) {
+				vatClassIndex.days.set(slot, 0);
+				vatClassIndex.gross.set(slot, 0);
+				vatClassIndex.net.set(slot, 0);
+				vatClassIndex.vat.set(slot, 0);
+			}
+		}
+
+		private void prepend(int numberOfDays) {
+			numberOfBills.prepend(numberOfDays);
+			totalGross.prepend(numberOfDays);
+
+			for (final VATClassIndex vatClassIndex : indexByVatClass.values()) {
+				vatClassIndex.days.prepend(numberOfDays);
+				vatClassIndex.gross.prepend(numberOfDays);
+				vatClassIndex.net.prepend(numberOfDays);
+				vatClassIndex.vat.prepend(numberOfDays);
+			}
+		}
+
+		private void addTo(SummedTotals totals, int fromSlot, int toSlot) {
+			totals.addCents(currency, totalGross.sum(fromSlot, toSlot),
+					(int) numberOfBills.sum(fromSlot, toSlot));
+
+			for (final Entry<VATClass, VATClassIndex> entry : indexByVatClass
+					.entrySet()) {
+				final VATClassIndex vatClassIndex = entry.getValue();
+
+				// skip VAT classes that did not occur in the period
+				if (vatClassIndex.days.sum(fromSlot, toSlot) > 0) {
+					totals.addCents(entry.getKey(), currency,
+							vatClassIndex.gross.sum(fromSlot, toSlot),
+							vatClassIndex.net.sum(fromSlot, toSlot),
+							vatClassIndex.vat.sum(fromSlot, toSlot));
+				}
+			}
+		}
+	}
+
+	private class VATClassIndex {
+
+		/** 1 for every day the VAT class occurred */
+		private final FenwickTree days = new FenwickTree(summarisedDays.size());
+		private final FenwickTree gross = new FenwickTree(summarisedDays.size());
+		private final FenwickTree net = new FenwickTree(summarisedDays.size());
+		private final FenwickTree vat = new FenwickTree(summarisedDays.size());
+	}
+
+}
@@ -0,0 +1,66 @@
+package de.bstreit.java.oscr.business.bill.dailysummary;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.ManyToOne;
+
+import org.hibernate.annotations.Columns;
+import org.hibernate.annotations.Type;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+
+/**
+ * Gross, net and VAT of one VAT class within a {@link DailySummary}.
+ */
+@Embeddable
+public class DailyVATClassSummary {
+
+	@ManyToOne(optional = false)
+	private VATClass vatClass;
+
+	@Type(type = "de.bstreit.java.oscr.business.base.finance.money.MoneyType")
+	@Columns(columns = { @Column(name = "grossValue"),
+			@Column(name = "grossCurrency") })
+	private Money gross;
+
+	@Type(type = "de.bstreit.java.oscr.business.base.finance.money.MoneyType")
+	@Columns(columns = { @Column(name = "netValue"),
+			@Column(name = "netCurrency") })
+	private Money net;
+
+	@Type(type = "de.bstreit.java.oscr.business.base.finance.money.MoneyType")
+	@Columns(columns = { @Column(name = "vatValue"),
+			@Column(name = "vatCurrency") })
+	private Money vat;
+
+
+	@SuppressWarnings("unused")
+	private DailyVATClassSummary() {
+		// for hibernate
+	}
+
+	DailyVATClassSummary(VATClass vatClass, Money gross, Money net, Money vat) {
+		this.vatClass = vatClass;
+		this.gross = gross;
+		this.net = net;
+		this.vat = vat;
+	}
+
+	public VATClass getVATClass() {
+		return vatClass;
+	}
+
+	public Money getGross() {
+		return gross;
+	}
+
+	public Money getNet() {
+		return net;
+	}
+
+	public Money getVAT() {
+		return vat;
+	}
+
+}
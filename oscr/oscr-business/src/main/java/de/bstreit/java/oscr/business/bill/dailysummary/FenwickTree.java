@@ -0,0 +1,109 @@
+package de.bstreit.java.oscr.business.bill.dailysummary;
+
+/**
+ * <p>
+ * A binary indexed tree (Fenwick tree) of longs: changing a value and summing
+ * up a range of values both take O(log n).
+ * </p>
+ *
+ * <p>
+ * Grows on demand at both ends; growing rebuilds the tree in O(n).
+ * </p>
+ */
+class FenwickTree {
+
+	private long[] values;
+
+	/** 1-based: tree[i] holds the sum of values[i - lowestBit(i), i) */
+	private long[] tree;
+
+
+	FenwickTree(int capacity) {
+		values = new long[Math.max(capacity, 1)];
+		rebuild();
+	}
+
+	int size() {
+		return values.length;
+	}
+
+	long get(int index) {
+		return index < values.length ? values[index] : 0;
+	}
+
+	void set(int index, long value) {
+		ensureCapacity(index + 1);
+
+		final long delta = value - values[index];
+		values[index] = value;
+
+		for (int i = index + 1; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	/**
+	 * @param from
+	 *          inclusive
+	 * @param to
+	 *          exclusive
+	 * @return the sum of all values in the range
+	 */
+	long sum(int from, int to) {
+		if (to <= from) {
+			return 0;
+		}
+		return prefixSum(to) - prefixSum(from);
+	}
+
+	/**
+	 * Insert the given number of zeros in front of all values; all indices are
+	 * shifted accordingly.
+	 */
+	void prepend(int numberOfValues) {
+		final long[] newValues = new long[values.length + numberOfValues];
+		System.arraycopy(values, 0, newValues, numberOfValues, values.length);
+		values = newValues;
+
+		rebuild();
+	}
+
+	/**
+	 * @return the sum of the first n values
+	 */
+	private long prefixSum(int n) {
+		long sum = 0;
+
+		for (int i = Math.min(n, values.length); i > 0; i -= i & -i) {
+			sum += tree[i];
+		}
+
+		return sum;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= values.length) {
+			return;
+		}
+
+		final long[] newValues = new long[Math.max(capacity, 2 * values.length)];
+		System.arraycopy(values, 0, newValues, 0, values.length);
+		values = newValues;
+
+		rebuild();
+	}
+
+	private void rebuild() {
+		tree = new long[values.length + 1];
+
+		for (int i = 1; i < tree.length; i++) {
+			tree[i] += values[i - 1];
+
+			final int parent = i + (i & -i);
+			if (parent < tree.length) {
+				tree[parent] += tree[i];
+			}
+		}
+	}
+
+}
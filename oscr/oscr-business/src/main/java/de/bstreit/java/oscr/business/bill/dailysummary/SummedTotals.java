@@ -0,0 +1,151 @@
+package de.bstreit.java.oscr.business.bill.dailysummary;
+
+import java.util.Currency;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.money.MoneyAccumulator;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
+
+/**
+ * Sums up the totals of several days (or other periods), e.g. the
+ * {@link DailySummary}s of a month. Sums are built in cents, see
+ * {@link MoneyAccumulator}.
+ */
+class SummedTotals implements IMultipleBillsCalculator {
+
+	/** null, as long as nothing with bills was added */
+	private MoneyAccumulator totalGross;
+	private final Map<VATClass, MoneyAccumulator> totalNetByVatClass = Maps
+			.newLinkedHashMap();
+	private final Map<VATClass, MoneyAccumulator> totalGrossByVatClass = Maps
+			.newLinkedHashMap();
+	private final Map<VATClass, MoneyAccumulator> totalVatByVatClass = Maps
+			.newLinkedHashMap();
+
+	private int numberOfBills = 0;
+
+
+	/**
+	 * @return this
+	 */
+	SummedTotals add(IMultipleBillsCalculator totals) {
+		final Money otherTotalGross = totals.getTotalGross();
+
+		if (otherTotalGross != null) {
+			if (totalGross == null) {
+				totalGross = new MoneyAccumulator(otherTotalGross.getCurrency());
+			}
+			totalGross.add(otherTotalGross);
+		}
+
+		numberOfBills += totals.getNumberOfBills();
+
+		for (final VATClass vatClass : totals.getAllVatClasses()) {
+			add(totalNetByVatClass, vatClass, totals.getTotalNetFor(vatClass));
+			add(totalGrossByVatClass, vatClass, totals.getTotalGrossFor(vatClass));
+			add(totalVatByVatClass, vatClass, totals.getTotalVATFor(vatClass));
+		}
+
+		return this;
+	}
+
+	@Override
+	public Money getTotalGross() {
+		return toMoney(totalGross);
+	}
+
+	@Override
+	public Money getTotalNetFor(VATClass vatClass) {
+		return toMoney(totalNetByVatClass.get(vatClass));
+	}
+
+	@Override
+	public Money getTotalGrossFor(VATClass vatClass) {
+		return toMoney(totalGrossByVatClass.get(vatClass));
+	}
+
+	@Override
+	public Money getTotalVATFor(VATClass vatClass) {
+		return toMoney(totalVatByVatClass.get(vatClass));
+	}
+
+	@Override
+	public Set<VATClass> getAllVatClasses() {
+		return totalVatByVatClass.keySet();
+	}
+
+	@Override
+	public boolean isFilled() {
+		return numberOfBills > 0;
+	}
+
+	@Override
+	public int getNumberOfBills() {
+		return numberOfBills;
+	}
+
+	/**
+	 * Add sums in cents, e.g. read from the {@link DailyTotalsIndex}.
+	 *
+	 * @return this
+	 */
+	SummedTotals addCents(Currency currency, long totalGrossCents,
+			int numberOfBillsToAdd) {
+
+		if (numberOfBillsToAdd > 0) {
+			if (totalGross == null) {
+				totalGross = new MoneyAccumulator(currency);
+			}
+			totalGross.add(new MoneyAccumulator(currency)
+					.addCents(totalGrossCents));
+			numberOfBills += numberOfBillsToAdd;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Add sums of a VAT class in cents.
+	 *
+	 * @return this
+	 */
+	SummedTotals addCents(VATClass vatClass, Currency currency,
+			long grossCents, long netCents, long vatCents) {
+
+		getOrCreate(totalGrossByVatClass, vatClass, currency).addCents(
+				grossCents);
+		getOrCreate(totalNetByVatClass, vatClass, currency).addCents(netCents);
+		getOrCreate(totalVatByVatClass, vatClass, currency).addCents(vatCents);
+
+		return this;
+	}
+
+	private static void add(Map<VATClass, MoneyAccumulator> totals,
+			VATClass vatClass, Money amount) {
+
+		if (amount != null) {
+			getOrCreate(totals, vatClass, amount.getCurrency()).add(amount);
+		}
+	}
+
+	private static MoneyAccumulator getOrCreate(
+			Map<VATClass, MoneyAccumulator> totals, VATClass vatClass,
+			Currency currency) {
+
+		MoneyAccumulator sum = totals.get(vatClass);
+		if (sum == null) {
+			sum = new MoneyAccumulator(currency);
+			totals.put(vatClass, sum);
+		}
+		return sum;
+	}
+
+	private static Money toMoney(MoneyAccumulator sumOrNull) {
+		return sumOrNull == null ? null : sumOrNull.toMoney();
+	}
+}
@@ -0,0 +1,23 @@
+package de.bstreit.java.oscr.business.bill.dailysummary.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import de.bstreit.java.oscr.business.bill.dailysummary.DailySummary;
+
+public interface IDailySummaryRepository extends
+		JpaRepository<DailySummary, Long> {
+
+	@Query("from DailySummary where day >= ?1 and day < ?2 order by day")
+	public List<DailySummary> getSummariesForDays(Date from, Date to);
+
+	@Query("from DailySummary where day = ?1")
+	public List<DailySummary> getSummariesForDay(Date day);
+
+	@Query("select max(day) from DailySummary")
+	public Date getLastSummarisedDay();
+
+}
@@ -35,7 +35,8 @@ import org.springframework.data.jpa.repository.Query;
 
 import de.bstreit.java.oscr.business.bill.Bill;
 
-public interface IBillRepository extends JpaRepository<Bill, String> {
+public interface IBillRepository extends JpaRepository<Bill, String>,
+    IBillRepositoryCustom {
 
   /**
    * @return all bills opened today, including promotional offers
@@ -0,0 +1,137 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.bill.dao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillItem;
+import de.bstreit.java.oscr.business.bill.IBillProcessor;
+
+/**
+ * Queries that stream the bills instead of materialising them as a
+ * collection, and queries that fetch the bills together with their bill
+ * items, offers and offered items. Implemented by {@link IBillRepositoryImpl}.
+ */
+public interface IBillRepositoryCustom {
+
+  public static final int DEFAULT_FETCH_SIZE = 100;
+
+  /**
+   * Same bills as {@link IBillRepository#getBillsForDayWithoutStaff(Date, Date)}
+   * , in the same order, but streamed with the {@link #DEFAULT_FETCH_SIZE}.
+   *
+   * @see #processBillsForDayWithoutStaff(Date, Date, int, IBillProcessor)
+   */
+  public void processBillsForDayWithoutStaff(Date from, Date to,
+      IBillProcessor billProcessor);
+
+  /**
+   * Stream all bills opened in the given period that were not consumed by
+   * staff. The bills are fetched in batches of the given size; after each
+   * batch the persistence context is cleared, so memory usage does not grow
+   * with the length of the period. Hence the processor must not keep the
+   * bills, and changes to the bills are not saved.
+   *
+   * @param fetchSize
+   *          the JDBC fetch size, also the number of bills after which the
+   *          persistence context is cleared. The bill items of these bills
+   *          are loaded together, up to {@link #DEFAULT_FETCH_SIZE} bills at
+   *          a time.
+   */
+  public void processBillsForDayWithoutStaff(Date from, Date to,
+      int fetchSize, IBillProcessor billProcessor);
+
+  /**
+   * Same bills as {@link IBillRepository#billClosedIsNull()}, ordered by the
+   * opening date, fetched as described at
+   * {@link #fetchBillsForDayWithoutStaff(Date, Date)}.
+   */
+  @Transactional(readOnly = true)
+  public List<Bill> fetchOpenBills();
+
+  /**
+   * Same bills as {@link IBillRepository#getBillsForTodayWithoutStaff()},
+   * fetched as described at {@link #fetchBillsForDayWithoutStaff(Date, Date)}.
+   */
+  @Transactional(readOnly = true)
+  public List<Bill> fetchBillsForTodayWithoutStaff();
+
+  /**
+   * Same bills as {@link IBillRepository#getBillsForDayWithoutStaff(Date, Date)}
+   * , in the same order. The bills are fetched with two queries: one for the
+   * bills with their bill items, one for the offers of the bill items with
+   * their offered items - instead of one query per collection when the bills
+   * are accessed.
+   */
+  @Transactional(readOnly = true)
+  public List<Bill> fetchBillsForDayWithoutStaff(Date from, Date to);
+
+  /**
+   * Same bills as {@link IBillRepository#getBillsForStaff(Date, Date)},
+   * fetched as described at {@link #fetchBillsForDayWithoutStaff(Date, Date)}.
+   */
+  @Transactional(readOnly = true)
+  public List<Bill> fetchBillsForStaff(Date from, Date to);
+
+  /**
+   * Same bills as {@link IBillRepository#getBillsForCustomers(Date, Date)},
+   * fetched as described at {@link #fetchBillsForDayWithoutStaff(Date, Date)}.
+   */
+  @Transactional(readOnly = true)
+  public List<Bill> fetchBillsForCustomers(Date from, Date to);
+
+  /**
+   * Store the changes of an already saved bill without merging it as a whole:
+   * merging the bill recreates the whole list of its bill items in the
+   * database. Instead, only the fields of the bill are updated, new bill
+   * items are inserted and the list of bill items is amended.
+   *
+   * @param bill
+   *          the bill with its fields to store
+   * @param newBillItems
+   *          bill items not stored yet - they get their ids
+   * @param changedBillItems
+   *          stored bill items whose offers changed
+   * @param addedBillItemIds
+   *          the ids of stored bill items added to the bill again
+   * @param removedBillItemIds
+   *          the ids of bill items removed from the bill - the bill items
+   *          themselves are kept, as with merging the bill
+   * @return false, if the bill is not stored, so it has to be saved as a
+   *         whole; nothing was changed then
+   */
+  @Transactional
+  public boolean updateBill(Bill bill, Collection<BillItem> newBillItems,
+      Collection<BillItem> changedBillItems, Collection<Long> addedBillItemIds,
+      Collection<Long> removedBillItemIds);
+
+}
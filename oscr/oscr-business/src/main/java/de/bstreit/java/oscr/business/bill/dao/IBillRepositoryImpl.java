@@ -0,0 +1,270 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.bill.dao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillItem;
+import de.bstreit.java.oscr.business.bill.IBillProcessor;
+
+/**
+ * Picked up by spring data as implementation of the
+ * {@link IBillRepositoryCustom} part of the {@link IBillRepository}.
+ */
+public class IBillRepositoryImpl implements IBillRepositoryCustom {
+
+  /**
+   * Only one of the bags (lists) of the bill graph can be fetched per query,
+   * hence the bills are fetched with their bill items first...
+   */
+  private static final String FETCH_BILLS = "select distinct b from Bill b"
+      + " left join fetch b.billItems left join fetch b.globalTaxInfo"
+      + " left join fetch b.internalConsumer left join fetch b.cashier"
+      + " where %s order by b.billOpened %s";
+
+  /**
+   * ... and the offers of the bill items of the same bills afterwards. The
+   * bill items are already part of the persistence context, so their
+   * collections are initialised.
+   */
+  private static final String FETCH_BILL_ITEMS = "select distinct i from Bill b"
+      + " join b.billItems i join fetch i.offer o join fetch o.offeredItem"
+      + " left join fetch i.extraAndVariationOffers eo"
+      + " left join fetch eo.offeredItem where %s";
+
+  private static final String UPDATE_BILL = "update Bill set globalTaxInfo = :globalTaxInfo,"
+      + " internalConsumer = :internalConsumer, twentyPercentOff = :twentyPercentOff,"
+      + " freePromotionOffer = :freePromotionOffer, billClosed = :billClosed,"
+      + " cashier = :cashier, journalSequence = :journalSequence where id = :id";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+
+  @Override
+  public void processBillsForDayWithoutStaff(Date from, Date to,
+      IBillProcessor billProcessor) {
+
+    processBillsForDayWithoutStaff(from, to, DEFAULT_FETCH_SIZE,
+        billProcessor);
+  }
+
+  @Override
+  public void processBillsForDayWithoutStaff(Date from, Date to,
+      int fetchSize, IBillProcessor billProcessor) {
+
+    final Session session = entityManager.unwrap(Session.class);
+
+    // pending changes would be lost when clearing
+    session.flush();
+
+    // the bills are not cached, but the offers, tax infos etc. referenced are
+    // read from the second level cache - without putting the bills there
+
+    final ScrollableResults results = session
+        .createQuery(
+            "from Bill where billOpened >= :from and billOpened < :to and internalConsumer is NULL order by billOpened desc")
+        .setParameter("from", from).setParameter("to", to)
+        .setFetchSize(fetchSize).setReadOnly(true)
+        .setCacheMode(CacheMode.GET).scroll(ScrollMode.FORWARD_ONLY);
+
+    try {
+      final List<Bill> bills = Lists.newArrayListWithCapacity(fetchSize);
+
+      while (results.next()) {
+        bills.add((Bill) results.get(0));
+
+        if (bills.size() == fetchSize) {
+          processAndClear(session, bills, billProcessor);
+        }
+      }
+
+      processAndClear(session, bills, billProcessor);
+    } finally {
+      results.close();
+    }
+  }
+
+  /**
+   * The bills are processed in batches: when the bill items of the first bill
+   * are accessed, those of all bills of the batch are loaded along, and so
+   * are the offers of the bill items - see the BatchSize of the collections.
+   * Otherwise each bill and each bill item would need its own query.
+   */
+  private static void processAndClear(Session session, List<Bill> bills,
+      IBillProcessor billProcessor) {
+    for (final Bill bill : bills) {
+      billProcessor.processBill(bill);
+    }
+
+    bills.clear();
+    session.clear();
+  }
+
+  @Override
+  public List<Bill> fetchOpenBills() {
+    return fetchBills("b.billClosed is null", "asc",
+        ImmutableMap.<String, Object> of());
+  }
+
+  @Override
+  public List<Bill> fetchBillsForTodayWithoutStaff() {
+    return fetchBills(
+        "b.billOpened >= current_date and b.internalConsumer is null", "desc",
+        ImmutableMap.<String, Object> of());
+  }
+
+  @Override
+  public List<Bill> fetchBillsForDayWithoutStaff(Date from, Date to) {
+    return fetchBills(
+        "b.billOpened >= :from and b.billOpened < :to and b.internalConsumer is null",
+        "desc", ImmutableMap.<String, Object> of("from", from, "to", to));
+  }
+
+  @Override
+  public List<Bill> fetchBillsForStaff(Date from, Date to) {
+    return fetchBills(
+        "b.billOpened >= :from and b.billOpened < :to and b.internalConsumer.customer = false",
+        "asc", ImmutableMap.<String, Object> of("from", from, "to", to));
+  }
+
+  @Override
+  public List<Bill> fetchBillsForCustomers(Date from, Date to) {
+    return fetchBills(
+        "b.billOpened >= :from and b.billOpened < :to and b.internalConsumer.customer = true",
+        "asc", ImmutableMap.<String, Object> of("from", from, "to", to));
+  }
+
+  @Override
+  public boolean updateBill(Bill bill, Collection<BillItem> newBillItems,
+      Collection<BillItem> changedBillItems, Collection<Long> addedBillItemIds,
+      Collection<Long> removedBillItemIds) {
+
+    final int updated = entityManager.createQuery(UPDATE_BILL)
+        .setParameter("globalTaxInfo", bill.getGlobalTaxInfo())
+        .setParameter("internalConsumer", bill.getStaffConsumer())
+        .setParameter("twentyPercentOff", bill.isTwentyPercentOff())
+        .setParameter("freePromotionOffer", bill.isFreePromotionOffer())
+        .setParameter("billClosed", bill.getBillClosed())
+        .setParameter("cashier", bill.getCashier())
+        .setParameter("journalSequence", bill.getJournalSequence())
+        .setParameter("id", bill.getId()).executeUpdate();
+
+    if (updated == 0) {
+      return false;
+    }
+
+    for (final BillItem billItem : newBillItems) {
+      entityManager.persist(billItem);
+    }
+    for (final BillItem billItem : changedBillItems) {
+      entityManager.merge(billItem);
+    }
+
+    // the new bill items need their rows before they are referenced
+    entityManager.flush();
+
+    final AbstractCollectionPersister billItemsPersister = (AbstractCollectionPersister) entityManager
+        .unwrap(Session.class).getSessionFactory()
+        .getCollectionMetadata(Bill.class.getName() + ".billItems");
+    final String table = billItemsPersister.getTableName();
+    final String billColumn = billItemsPersister.getKeyColumnNames()[0];
+    final String billItemColumn = billItemsPersister.getElementColumnNames()[0];
+
+    final Query delete = entityManager.createNativeQuery("delete from "
+        + table + " where " + billColumn + " = ?1 and " + billItemColumn
+        + " = ?2");
+    for (final Long billItemId : removedBillItemIds) {
+      delete.setParameter(1, bill.getId()).setParameter(2, billItemId)
+          .executeUpdate();
+    }
+
+    final Query insert = entityManager.createNativeQuery("insert into "
+        + table + " (" + billColumn + ", " + billItemColumn
+        + ") values (?1, ?2)");
+    for (final BillItem billItem : newBillItems) {
+      insert.setParameter(1, bill.getId()).setParameter(2, billItem.getId())
+          .executeUpdate();
+    }
+    for (final Long billItemId : addedBillItemIds) {
+      insert.setParameter(1, bill.getId()).setParameter(2, billItemId)
+          .executeUpdate();
+    }
+
+    return true;
+  }
+
+  /**
+   * Must run within a transaction, so both queries share the persistence
+   * context.
+   */
+  private List<Bill> fetchBills(String condition, String order,
+      Map<String, Object> parameters) {
+
+    final TypedQuery<Bill> billsQuery = entityManager.createQuery(
+        String.format(FETCH_BILLS, condition, order), Bill.class);
+    setParameters(billsQuery, parameters);
+    final List<Bill> bills = billsQuery.getResultList();
+
+    if (bills.isEmpty()) {
+      return bills;
+    }
+
+    final TypedQuery<BillItem> billItemsQuery = entityManager.createQuery(
+        String.format(FETCH_BILL_ITEMS, condition), BillItem.class);
+    setParameters(billItemsQuery, parameters);
+    billItemsQuery.getResultList();
+
+    return bills;
+  }
+
+  private static void setParameters(TypedQuery<?> query,
+      Map<String, Object> parameters) {
+    for (final Map.Entry<String, Object> parameter : parameters.entrySet()) {
+      query.setParameter(parameter.getKey(), parameter.getValue());
+    }
+  }
+
+}
@@ -0,0 +1,305 @@
+package de.bstreit.java.oscr.business.bill.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * Append-only journal of all changes of bills, kept in memory mapped files in
+ * the directory configured as <code>journalDir</code>. Appending a record
+ * costs no more than writing a few bytes to memory; the records are forced to
+ * the disk in groups, every {@link #SYNC_INTERVAL_MS} milliseconds and on
+ * {@link #sync()}.
+ * </p>
+ *
+ * <p>
+ * Once a bill is stored in the database, the changes are confirmed, and
+ * files that only contain confirmed changes are removed. If the application
+ * was not shut down properly, the unconfirmed changes found at startup are
+ * handed out by {@link #getUnconfirmedRecords()} to be replayed.
+ * </p>
+ *
+ * <p>
+ * Without a <code>journalDir</code>, the journal is disabled and all methods
+ * do nothing.
+ * </p>
+ */
+@Named
+public class BillJournal {
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(BillJournal.class);
+
+	static final int SEGMENT_SIZE = 1 << 20;
+
+	static final long SYNC_INTERVAL_MS = 20;
+
+	@Value("${journalDir:}")
+	private String journalDir;
+
+	private boolean enabled = false;
+
+	private File directory;
+
+	/** the current segment is the last one */
+	private final LinkedList<JournalSegment> segments = Lists.newLinkedList();
+
+	private long nextSequence = 1;
+
+	/** first and last unconfirmed sequence number by bill id */
+	private final Map<String, long[]> unconfirmedByBillId = Maps
+			.newLinkedHashMap();
+
+	/** unconfirmed records found at startup, by bill id */
+	private ListMultimap<String, JournalRecord> recoveredRecords = LinkedListMultimap
+			.create();
+
+	private ScheduledExecutorService syncer;
+
+
+	@PostConstruct
+	private void init() throws IOException {
+		if (StringUtils.isBlank(journalDir)) {
+			logger.info("No journalDir configured, bill journal is disabled");
+			return;
+		}
+
+		open(new File(journalDir));
+
+		syncer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+				.setNameFormat("bill-journal-sync").setDaemon(true).build());
+		syncer.scheduleWithFixedDelay(this::syncQuietly, SYNC_INTERVAL_MS,
+				SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	synchronized void open(File journalDirectory) throws IOException {
+		directory = journalDirectory;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create journal directory " + directory);
+		}
+
+		final List<JournalRecord> records = Lists.newArrayList();
+		for (final File file : JournalSegment.listFiles(directory)) {
+			segments.add(JournalSegment.open(file, records));
+
+			// sequence numbers must not start again, even if all records were
+			// confirmed and removed - they are stored with the bills
+			nextSequence = Math.max(nextSequence,
+					JournalSegment.getFirstSequence(file));
+		}
+
+		final Map<String, Long> confirmedByBillId = Maps.newHashMap();
+		for (final JournalRecord record : records) {
+			nextSequence = Math.max(nextSequence, record.getSequence() + 1);
+
+			if (record.getOperation() == Operation.CONFIRMED) {
+				confirmedByBillId.put(record.getBillId(), record.getEntityId());
+			}
+		}
+
+		for (final JournalRecord record : records) {
+			final Long confirmed = confirmedByBillId.get(record.getBillId());
+
+			if (record.getOperation() != Operation.CONFIRMED
+					&& (confirmed == null || record.getSequence() > confirmed)) {
+				recoveredRecords.put(record.getBillId(), record);
+				markUnconfirmed(record.getBillId(), record.getSequence());
+			}
+		}
+
+		if (!recoveredRecords.isEmpty()) {
+			logger.warn("Found unconfirmed changes of "
+					+ recoveredRecords.keySet().size() + " bills in the journal");
+		}
+
+		segments.add(JournalSegment.create(directory, nextSequence, SEGMENT_SIZE));
+		enabled = true;
+
+		removeConfirmedSegments();
+	}
+
+	/**
+	 * @return the unconfirmed records found at startup, grouped by bill, in the
+	 *         order they were written
+	 */
+	public synchronized Collection<List<JournalRecord>> getUnconfirmedRecords() {
+		final List<List<JournalRecord>> recordsByBill = Lists.newArrayList();
+
+		for (final String billId : recoveredRecords.keySet()) {
+			recordsByBill.add(ImmutableList.copyOf(recoveredRecords.get(billId)));
+		}
+
+		return recordsByBill;
+	}
+
+	/**
+	 * Record a change of a bill. Must be called while holding the monitor of
+	 * the bill, together with the change itself, so a concurrent save either
+	 * contains both or neither of them.
+	 *
+	 * @return the sequence number of the record, 0 if disabled
+	 */
+	public synchronized long append(Operation operation, String billId,
+			long entityId, long time) {
+		if (!enabled) {
+			return 0;
+		}
+
+		final long sequence = write(operation, billId, entityId, time);
+		markUnconfirmed(billId, sequence);
+
+		return sequence;
+	}
+
+	/**
+	 * @return the sequence number of the last recorded change of the bill, or
+	 *         0 if there is no unconfirmed change
+	 */
+	public synchronized long getLastSequence(String billId) {
+		final long[] unconfirmed = unconfirmedByBillId.get(billId);
+		return unconfirmed == null ? 0 : unconfirmed[1];
+	}
+
+	/**
+	 * Note that all changes of the bill up to the given sequence number are
+	 * stored in the database.
+	 */
+	public synchronized void confirm(String billId, long sequence) {
+		if (!enabled || sequence == 0) {
+			return;
+		}
+
+		write(Operation.CONFIRMED, billId, sequence, 0);
+
+		final long[] unconfirmed = unconfirmedByBillId.get(billId);
+		if (unconfirmed != null) {
+			if (unconfirmed[1] <= sequence) {
+				unconfirmedByBillId.remove(billId);
+			} else {
+				unconfirmed[0] = Math.max(unconfirmed[0], sequence + 1);
+			}
+		}
+		recoveredRecords.removeAll(billId);
+
+		removeConfirmedSegments();
+	}
+
+	/**
+	 * Force all records to the disk. Records can be appended meanwhile; only
+	 * copying the list of segments holds the monitor of the journal.
+	 */
+	public void sync() {
+		final List<JournalSegment> segmentsToForce;
+		synchronized (this) {
+			segmentsToForce = ImmutableList.copyOf(segments);
+		}
+
+		for (final JournalSegment segment : segmentsToForce) {
+			segment.force();
+		}
+	}
+
+	private void syncQuietly() {
+		try {
+			sync();
+		} catch (final RuntimeException e) {
+			// keep the schedule - the records are forced with the next sync
+			logger.error("Could not force the bill journal to the disk", e);
+		}
+	}
+
+	@PreDestroy
+	synchronized void close() {
+		if (syncer != null) {
+			syncer.shutdown();
+		}
+		sync();
+	}
+
+	private long write(Operation operation, String billId, long entityId,
+			long time) {
+		final JournalRecord record = new JournalRecord(nextSequence++,
+				operation, billId, entityId, time);
+
+		if (!segments.getLast().append(record)) {
+			roll(record.getSequence());
+			segments.getLast().append(record);
+		}
+
+		return record.getSequence();
+	}
+
+	private void roll(long firstSequence) {
+		segments.getLast().force();
+
+		try {
+			segments.add(JournalSegment.create(directory, firstSequence,
+					SEGMENT_SIZE));
+		} catch (final IOException e) {
+			enabled = false;
+			throw new IllegalStateException("Cannot create journal segment", e);
+		}
+	}
+
+	private void markUnconfirmed(String billId, long sequence) {
+		final long[] unconfirmed = unconfirmedByBillId.get(billId);
+
+		if (unconfirmed == null) {
+			unconfirmedByBillId.put(billId, new long[] { sequence, sequence });
+		} else {
+			unconfirmed[1] = sequence;
+		}
+	}
+
+	/**
+	 * Remove the oldest segments, as long as all their records are confirmed.
+	 * The current segment is never removed.
+	 */
+	private void removeConfirmedSegments() {
+		long firstUnconfirmed = Long.MAX_VALUE;
+		for (final long[] unconfirmed : unconfirmedByBillId.values()) {
+			firstUnconfirmed = Math.min(firstUnconfirmed, unconfirmed[0]);
+		}
+
+		final Iterator<JournalSegment> iterator = segments.iterator();
+		while (segments.size() > 1) {
+			final JournalSegment segment = iterator.next();
+
+			if (segment.getLastSequence() >= firstUnconfirmed) {
+				return;
+			}
+
+			logger.debug("Removing journal segment " + segment);
+			segment.delete();
+			iterator.remove();
+		}
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+}
@@ -0,0 +1,122 @@
+package de.bstreit.java.oscr.business.bill.journal;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * A single entry of the {@link BillJournal}, stored with a fixed size of
+ * {@link #SIZE} bytes: a marker, the sequence number, the operation, the bill
+ * id (a UUID, as two longs), an entity id, a time and a checksum.
+ */
+public final class JournalRecord {
+
+	static final int SIZE = 1 + 8 + 1 + 8 + 8 + 8 + 8 + 4;
+
+	private static final byte MARKER = 1;
+
+	private final long sequence;
+	private final Operation operation;
+	private final String billId;
+	private final long entityId;
+	private final long time;
+
+
+	public JournalRecord(long sequence, Operation operation, String billId,
+			long entityId, long time) {
+		this.sequence = sequence;
+		this.operation = operation;
+		this.billId = billId;
+		this.entityId = entityId;
+		this.time = time;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public String getBillId() {
+		return billId;
+	}
+
+	/**
+	 * @return the id of the entity the operation refers to, or 0
+	 */
+	public long getEntityId() {
+		return entityId;
+	}
+
+	/**
+	 * @return milliseconds, or 0 if the operation has no time
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	void writeTo(ByteBuffer buffer) {
+		final int start = buffer.position();
+		final UUID uuid = UUID.fromString(billId);
+
+		buffer.put(MARKER);
+		buffer.putLong(sequence);
+		buffer.put(operation.getCode());
+		buffer.putLong(uuid.getMostSignificantBits());
+		buffer.putLong(uuid.getLeastSignificantBits());
+		buffer.putLong(entityId);
+		buffer.putLong(time);
+		buffer.putInt(checksum(buffer, start));
+	}
+
+	/**
+	 * @return the record at the current position, or null if there is none -
+	 *         i.e. the end of the written part, or a torn write
+	 */
+	static JournalRecord readFrom(ByteBuffer buffer) {
+		if (buffer.remaining() < SIZE) {
+			return null;
+		}
+
+		final int start = buffer.position();
+
+		if (buffer.get(start) != MARKER
+				|| buffer.getInt(start + SIZE - 4) != checksum(buffer, start)) {
+			return null;
+		}
+
+		buffer.get();
+		final long sequence = buffer.getLong();
+		final Operation operation = Operation.forCode(buffer.get());
+		final UUID billId = new UUID(buffer.getLong(), buffer.getLong());
+		final long entityId = buffer.getLong();
+		final long time = buffer.getLong();
+		buffer.getInt();
+
+		if (operation == null) {
+			return null;
+		}
+
+		return new JournalRecord(sequence, operation,
+				billId.toString(), entityId, time);
+	}
+
+	private static int checksum(ByteBuffer buffer, int start) {
+		final CRC32 crc = new CRC32();
+
+		for (int i = start; i < start + SIZE - 4; i++) {
+			crc.update(buffer.get(i));
+		}
+
+		return (int) crc.getValue();
+	}
+
+	@Override
+	public String toString() {
+		return sequence + " " + operation + " " + billId + " " + entityId + " "
+				+ time;
+	}
+
+}
@@ -0,0 +1,149 @@
+package de.bstreit.java.oscr.business.bill.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * One file of the {@link BillJournal}, memory mapped with a fixed size. The
+ * file name contains the sequence number of the first record.
+ */
+class JournalSegment {
+
+	private static final String PREFIX = "bills-";
+	private static final String SUFFIX = ".journal";
+
+	private final File file;
+	private final MappedByteBuffer buffer;
+
+	/** -1 as long as the segment is empty */
+	private long lastSequence = -1;
+
+	/** written by appends, read and reset by forces in other threads */
+	private volatile boolean dirty = false;
+
+	/** guarded by this, like forcing and deleting the segment */
+	private boolean deleted = false;
+
+
+	private JournalSegment(File file, int size) throws IOException {
+		this.file = file;
+
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			// the mapping stays valid after closing the channel
+			buffer = channel.map(MapMode.READ_WRITE, 0,
+					Math.max(size, channel.size()));
+		}
+	}
+
+	static JournalSegment create(File directory, long firstSequence, int size)
+			throws IOException {
+		return new JournalSegment(new File(directory, String.format(
+				PREFIX + "%019d" + SUFFIX, firstSequence)), size);
+	}
+
+	/**
+	 * Open an existing segment and read its records. The segment is
+	 * positioned after the last valid record, but is not meant to be appended
+	 * to any more.
+	 */
+	static JournalSegment open(File file, List<JournalRecord> records)
+			throws IOException {
+		final JournalSegment segment = new JournalSegment(file, 0);
+
+		JournalRecord record;
+		while ((record = JournalRecord.readFrom(segment.buffer)) != null) {
+			records.add(record);
+			segment.lastSequence = record.getSequence();
+		}
+
+		return segment;
+	}
+
+	/**
+	 * @return the sequence number of the first record of the segment file -
+	 *         or of the first record appended to it, if it is still empty
+	 */
+	static long getFirstSequence(File file) {
+		final String name = file.getName();
+		return Long.parseLong(name.substring(PREFIX.length(), name.length()
+				- SUFFIX.length()));
+	}
+
+	/**
+	 * @return all segment files in the directory, oldest first
+	 */
+	static List<File> listFiles(File directory) {
+		final File[] files = directory.listFiles((dir, name) -> name
+				.startsWith(PREFIX) && name.endsWith(SUFFIX));
+
+		final List<File> sortedFiles = Lists.newArrayList();
+		if (files != null) {
+			sortedFiles.addAll(Lists.newArrayList(files));
+		}
+		// zero padded sequence numbers sort like numbers
+		sortedFiles.sort((f1, f2) -> f1.getName().compareTo(f2.getName()));
+
+		return sortedFiles;
+	}
+
+	/**
+	 * @return false, if the segment is full
+	 */
+	boolean append(JournalRecord record) {
+		if (buffer.remaining() < JournalRecord.SIZE) {
+			return false;
+		}
+
+		record.writeTo(buffer);
+		lastSequence = record.getSequence();
+		dirty = true;
+
+		return true;
+	}
+
+	/**
+	 * Write all appended records to the disk. May run concurrently to
+	 * {@link #append(JournalRecord)}: a record appended after resetting the
+	 * dirty flag is forced next time. Does nothing once the segment is
+	 * deleted.
+	 */
+	synchronized void force() {
+		if (dirty && !deleted) {
+			dirty = false;
+			buffer.force();
+		}
+	}
+
+	long getLastSequence() {
+		return lastSequence;
+	}
+
+	/**
+	 * Invalidate the first record and remove the file. Mapped files cannot be
+	 * deleted on every platform; then at least no record is read again.
+	 */
+	synchronized void delete() {
+		deleted = true;
+
+		buffer.put(0, (byte) 0);
+		buffer.force();
+
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return file.getName();
+	}
+
+}
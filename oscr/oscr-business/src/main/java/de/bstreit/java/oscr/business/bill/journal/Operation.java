@@ -0,0 +1,93 @@
+package de.bstreit.java.oscr.business.bill.journal;
+
+/**
+ * The changes of a bill that are recorded in the {@link BillJournal}. The
+ * entity id of a record refers to the entity named in the comment.
+ *
+ * <p>
+ * The {@link #getCode() code} is written to the journal files - never change
+ * the code of an operation, nor reuse it.
+ * </p>
+ */
+public enum Operation {
+
+	/** tax info; the time is the opening date */
+	BILL_OPENED(1),
+
+	/** product offer */
+	PRODUCT_OFFER_ADDED(2),
+
+	/** extra offer, added to the last bill item */
+	EXTRA_OFFER_ADDED(3),
+
+	/** variation offer, toggled at the last bill item */
+	VARIATION_OFFER_TOGGLED(4),
+
+	/** promo offer, added to the last bill item */
+	PROMO_OFFER_ADDED(5),
+
+	/** user */
+	STAFF_CONSUMER_SET(6),
+
+	STAFF_CONSUMER_CLEARED(7),
+
+	FREE_PROMOTION_SET(8),
+
+	FREE_PROMOTION_CLEARED(9),
+
+	TWENTY_PERCENT_PROMOTION_SET(10),
+
+	TWENTY_PERCENT_PROMOTION_CLEARED(11),
+
+	/** tax info */
+	GLOBAL_TAX_INFO_SET(12),
+
+	/** cashier; the time is the closing date */
+	BILL_CLOSED(13),
+
+	BILL_DELETED(14),
+
+	/**
+	 * Not a change, but the note that all changes of the bill up to the
+	 * sequence number given as entity id are stored in the database.
+	 */
+	CONFIRMED(15),
+
+	/** product offer of the last bill item, which is removed */
+	LAST_BILL_ITEM_REMOVED(16),
+
+	/**
+	 * extra, promo or variation offer, removed from the last bill item - its
+	 * last occurrence, if it was added more than once
+	 */
+	OFFER_REMOVED(17);
+
+	private final byte code;
+
+
+	private Operation(int code) {
+		this.code = (byte) code;
+	}
+
+	/**
+	 * @return the code written to the journal files
+	 */
+	byte getCode() {
+		return code;
+	}
+
+	/**
+	 * @return the operation written with the given code, or null if there is
+	 *         none
+	 */
+	static Operation forCode(byte code) {
+		for (final Operation operation : values()) {
+			if (operation.code == code) {
+				return operation;
+			}
+		}
+
+		return null;
+	}
+
+}
@@ -3,13 +3,36 @@ package de.bstreit.java.oscr.business.eventbroadcasting;
 import com.google.common.base.Optional;
 
 import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillDelta;
 
 public interface BillChangeListener {
 
+	/**
+	 * The current bill changed, or another bill became the current one. The
+	 * bill is absent, if there is no current bill - e.g. after closing it.
+	 * Consecutive updates of the same bill may be merged into one.
+	 */
 	void billUpdated(Optional<Bill> newBill);
 
+	/**
+	 * What changed; every change is delivered, in order, before the
+	 * {@link #billUpdated(Optional)} of the same change. Implement this to
+	 * update incrementally, instead of looking at the whole bill again.
+	 */
+	default void billChanged(BillDelta delta) {
+		// nothing to do
+	};
+
 	default void applicationLaunched() {
 		// nothing to do
 	};
 
+	/**
+	 * The bill was removed from the database, e.g. because the last item was
+	 * undone. {@link #billUpdated(Optional)} follows.
+	 */
+	default void billDeleted(Bill deletedBill) {
+		// nothing to do
+	};
+
 }
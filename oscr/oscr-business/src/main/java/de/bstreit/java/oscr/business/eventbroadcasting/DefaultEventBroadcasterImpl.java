@@ -1,77 +1,452 @@
 package de.bstreit.java.oscr.business.eventbroadcasting;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Named;
+import javax.swing.SwingUtilities;
+
+import org.springframework.beans.factory.annotation.Value;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillDelta;
 import de.bstreit.java.oscr.business.offers.AbstractOffer;
 
+/**
+ * <p>
+ * Notifies the listeners in the thread chosen when they were added, see
+ * {@link Delivery}. Notifying costs the caller one enqueue (plus the work of
+ * the {@link Delivery#SYNCHRONOUS synchronous} listeners): a dispatch thread
+ * hands the events to a queue per listener, where consecutive updates of the
+ * same bill are merged into one, and delivers them. The
+ * {@link BillDelta deltas} of a bill are never merged.
+ * </p>
+ *
+ * <p>
+ * With <code>eventBroadcasting.async=false</code>, all listeners are notified
+ * synchronously, in the order they were added.
+ * </p>
+ *
+ * <p>
+ * The listeners are kept in copy-on-write lists: notifying never locks, only
+ * adding and removing listeners copies the list. Weakly added listeners that
+ * are gone are removed when they would be notified next.
+ * </p>
+ */
 @Named
 public class DefaultEventBroadcasterImpl implements EventBroadcaster {
 
-	public Set<BillChangeListener> billChangeListeners = Sets.newHashSet();
-	public Set<OfferChangeListener> offerChangeListeners = Sets.newHashSet();
-	public Set<SalesItemChangeListener> salesItemChangeListeners = Sets
-			.newHashSet();
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(DefaultEventBroadcasterImpl.class);
+
+	@Value("${eventBroadcasting.async:true}")
+	private boolean async = true;
+
+	private final List<Registration<BillChangeListener>> billChangeListeners = new CopyOnWriteArrayList<>();
+	private final List<Registration<OfferChangeListener>> offerChangeListeners = new CopyOnWriteArrayList<>();
+	private final Set<SalesItemChangeListener> salesItemChangeListeners = new CopyOnWriteArraySet<>();
+
+	private final BlockingQueue<Event<?>> events = new LinkedBlockingQueue<>();
+
+	private Thread dispatchThread;
+
+
+	@PostConstruct
+	void init() {
+		if (!async) {
+			return;
+		}
+
+		dispatchThread = new Thread(this::dispatch, "event-dispatch");
+		dispatchThread.setDaemon(true);
+		dispatchThread.start();
+	}
+
+	@PreDestroy
+	void close() {
+		if (dispatchThread != null) {
+			dispatchThread.interrupt();
+		}
+	}
+
+	@Override
+	public ListenerRegistration addListener(
+			OfferChangeListener offerChangeListener) {
+		return addListener(offerChangeListener, Delivery.DISPATCH_THREAD);
+	}
 
 	@Override
-	public void addListener(OfferChangeListener offerChangeListener) {
-		offerChangeListeners.add(offerChangeListener);
+	public ListenerRegistration addListener(
+			OfferChangeListener offerChangeListener, Delivery delivery) {
+		return add(offerChangeListeners, offerChangeListener, delivery, false);
 	}
 
 	@Override
-	public void addListener(SalesItemChangeListener salesItemChangeListener) {
+	public ListenerRegistration addWeakListener(
+			OfferChangeListener offerChangeListener, Delivery delivery) {
+		return add(offerChangeListeners, offerChangeListener, delivery, true);
+	}
+
+	@Override
+	public ListenerRegistration addListener(
+			SalesItemChangeListener salesItemChangeListener) {
 		salesItemChangeListeners.add(salesItemChangeListener);
+		return () -> salesItemChangeListeners.remove(salesItemChangeListener);
 	}
 
 	@Override
-	public void notifyOfferUpdated(Object sender, AbstractOffer<?> oldItem,
-			AbstractOffer<?> newItem) {
+	public ListenerRegistration addBillChangeListener(
+			BillChangeListener billChangeListener) {
+		return addBillChangeListener(billChangeListener,
+				Delivery.DISPATCH_THREAD);
+	}
+
+	@Override
+	public ListenerRegistration addBillChangeListener(
+			BillChangeListener billChangeListener, Delivery delivery) {
+		return add(billChangeListeners, billChangeListener, delivery, false);
+	}
 
-		for (final OfferChangeListener offerChangeListener : offerChangeListeners) {
+	@Override
+	public ListenerRegistration addWeakBillChangeListener(
+			BillChangeListener billChangeListener, Delivery delivery) {
+		return add(billChangeListeners, billChangeListener, delivery, true);
+	}
 
-			if (offerChangeListener == sender) {
-				continue;
+	private <L> ListenerRegistration add(List<Registration<L>> registrations,
+			L listener, Delivery delivery, boolean weak) {
+		checkNotNull(listener);
+
+		synchronized (registrations) {
+			for (final Registration<L> registration : registrations) {
+				if (registration.getListener() == listener) {
+					return registration;
+				}
 			}
 
-			offerChangeListener.offerUpdated(oldItem, newItem);
+			final Registration<L> registration = new Registration<L>(
+					registrations, listener, async ? delivery
+							: Delivery.SYNCHRONOUS, weak);
+			registrations.add(registration);
+
+			return registration;
 		}
+	}
 
+	@Override
+	public int getNumberOfListeners(Class<?> listenerType) {
+		if (listenerType == BillChangeListener.class) {
+			return countLiving(billChangeListeners);
+		} else if (listenerType == OfferChangeListener.class) {
+			return countLiving(offerChangeListeners);
+		} else if (listenerType == SalesItemChangeListener.class) {
+			return salesItemChangeListeners.size();
+		}
+
+		throw new IllegalArgumentException("No listeners of type "
+				+ listenerType);
+	}
+
+	private static <L> int countLiving(List<Registration<L>> registrations) {
+		int count = 0;
+
+		for (final Registration<L> registration : registrations) {
+			if (registration.getListener() != null) {
+				count++;
+			} else {
+				registration.remove();
+			}
+		}
+
+		return count;
+	}
+
+	@Override
+	public void notifyOfferUpdated(Object sender, AbstractOffer<?> oldItem,
+			AbstractOffer<?> newItem) {
+		notify(new Event<OfferChangeListener>(offerChangeListeners, sender,
+				l -> l.offerUpdated(oldItem, newItem)));
+	}
+
+	@Override
+	public void notifyOfferCreated(Object sender, AbstractOffer<?> newItem) {
+		notify(new Event<OfferChangeListener>(offerChangeListeners, sender,
+				l -> l.offerCreated(newItem)));
 	}
 
 	@Override
-	public void addBillChangeListener(BillChangeListener billChangeListener) {
-		billChangeListeners.add(billChangeListener);
+	public void notifyOfferDeleted(Object sender, AbstractOffer<?> item) {
+		notify(new Event<OfferChangeListener>(offerChangeListeners, sender,
+				l -> l.offerDeleted(item)));
+	}
+
+	@Override
+	public void notifyBillChanged(Object sender, BillDelta delta) {
+		notify(new BillChanged(billChangeListeners, sender, delta));
 	}
 
 	@Override
 	public void notifyBillUpdated(Object sender, Bill newBill) {
+		final Optional<Bill> bill = Optional.fromNullable(newBill);
+
+		notify(new BillUpdated(billChangeListeners, sender, bill,
+				l -> l.billUpdated(bill)));
+	}
+
+	@Override
+	public void notifyBillDeleted(Object sender, Bill deletedBill) {
+		notify(new Event<BillChangeListener>(billChangeListeners, sender,
+				l -> l.billDeleted(deletedBill)));
+	}
 
-		for (final BillChangeListener billChangeListener : billChangeListeners) {
+	@Override
+	public void notifyApplicationLaunched(Object sender) {
+		notify(new Event<BillChangeListener>(billChangeListeners, sender,
+				l -> l.applicationLaunched()));
+	}
 
-			if (billChangeListener == sender) {
+	private <L> void notify(Event<L> event) {
+		for (final Registration<L> registration : event.registrations) {
+			if (registration.delivery != Delivery.SYNCHRONOUS) {
 				continue;
 			}
 
-			billChangeListener.billUpdated(Optional.fromNullable(newBill));
+			final L listener = registration.getListener();
+			if (listener == null) {
+				registration.remove();
+			} else if (listener != event.sender) {
+				event.delivery.accept(listener);
+			}
+		}
 
+		if (async) {
+			events.add(event);
 		}
 	}
 
-	@Override
-	public void notifyApplicationLaunched(Object sender) {
-		for (final BillChangeListener billChangeListener : billChangeListeners) {
+	/**
+	 * The loop of the dispatch thread: takes all events available, queues them
+	 * for the listeners and delivers them.
+	 */
+	private void dispatch() {
+		final List<Event<?>> batch = Lists.newArrayList();
+		final Set<Registration<?>> registrationsToDrain = Sets
+				.newLinkedHashSet();
+
+		try {
+			while (true) {
+				batch.add(events.take());
+				events.drainTo(batch);
 
-			if (billChangeListener == sender) {
+				for (final Event<?> event : batch) {
+					enqueue(event, registrationsToDrain);
+				}
+
+				for (final Registration<?> registration : registrationsToDrain) {
+					registration.drain();
+				}
+
+				batch.clear();
+				registrationsToDrain.clear();
+			}
+		} catch (final InterruptedException e) {
+			logger.debug("Event dispatch stopped");
+		}
+	}
+
+	private <L> void enqueue(Event<L> event,
+			Set<Registration<?>> registrationsToDrain) {
+
+		for (final Registration<L> registration : event.registrations) {
+			if (registration.delivery == Delivery.SYNCHRONOUS) {
 				continue;
 			}
 
-			billChangeListener.applicationLaunched();
+			final L listener = registration.getListener();
+			if (listener == null) {
+				registration.remove();
+				continue;
+			} else if (listener == event.sender) {
+				continue;
+			}
+
+			final boolean wasEmpty = registration.enqueue(event);
+
+			if (registration.delivery == Delivery.DISPATCH_THREAD) {
+				registrationsToDrain.add(registration);
+			} else if (wasEmpty) {
+				SwingUtilities.invokeLater(registration::drain);
+			}
+		}
+	}
+
+
+	private static class Event<L> {
+
+		private final List<Registration<L>> registrations;
+
+		private final Object sender;
+
+		private final Consumer<L> delivery;
+
+		private Event(List<Registration<L>> registrations, Object sender,
+				Consumer<L> delivery) {
+			this.registrations = registrations;
+			this.sender = sender;
+			this.delivery = delivery;
+		}
+
+		/**
+		 * @return true, if the given event, which is not delivered yet, can be
+		 *         dropped in favour of this one
+		 */
+		boolean replaces(Event<?> pendingEvent) {
+			return false;
+		}
+
+		/**
+		 * @return true, if an event this one {@link #replaces(Event) replaces}
+		 *         may be looked for before the given pending event
+		 */
+		boolean looksPast(Event<?> pendingEvent) {
+			return false;
+		}
+	}
+
+	private static final class BillChanged extends Event<BillChangeListener> {
+
+		private BillChanged(List<Registration<BillChangeListener>> registrations,
+				Object sender, BillDelta delta) {
+			super(registrations, sender, l -> l.billChanged(delta));
+		}
+	}
+
+	private static final class BillUpdated extends Event<BillChangeListener> {
+
+		private final Optional<Bill> bill;
 
+		private BillUpdated(List<Registration<BillChangeListener>> registrations,
+				Object sender, Optional<Bill> bill,
+				Consumer<BillChangeListener> delivery) {
+			super(registrations, sender, delivery);
+			this.bill = bill;
+		}
+
+		@Override
+		boolean replaces(Event<?> pendingEvent) {
+			return pendingEvent instanceof BillUpdated
+					&& Objects.equals(((BillUpdated) pendingEvent).bill.orNull(),
+							bill.orNull());
+		}
+
+		@Override
+		boolean looksPast(Event<?> pendingEvent) {
+			// the deltas are delivered anyway, before this update
+			return pendingEvent instanceof BillChanged;
+		}
+	}
+
+	private static final class Registration<L> implements
+			ListenerRegistration {
+
+		/** the list this registration is in, until it is removed */
+		private final List<Registration<L>> registrations;
+
+		/** null, if the listener is held weakly */
+		private final L listener;
+
+		private final WeakReference<L> weakListener;
+
+		private final Delivery delivery;
+
+		/** the events not delivered yet, guarded by this */
+		private final Deque<Event<L>> pendingEvents = new ArrayDeque<>();
+
+		private Registration(List<Registration<L>> registrations, L listener,
+				Delivery delivery, boolean weak) {
+			this.registrations = registrations;
+			this.listener = weak ? null : listener;
+			this.weakListener = weak ? new WeakReference<L>(listener) : null;
+			this.delivery = delivery;
+		}
+
+		/**
+		 * @return the listener, or null if it was held weakly and is gone
+		 */
+		L getListener() {
+			return listener != null ? listener : weakListener.get();
+		}
+
+		@Override
+		public void remove() {
+			registrations.remove(this);
+
+			synchronized (this) {
+				pendingEvents.clear();
+			}
+		}
+
+		/**
+		 * @return true, if there were no pending events before
+		 */
+		synchronized boolean enqueue(Event<L> event) {
+			final boolean wasEmpty = pendingEvents.isEmpty();
+
+			final Iterator<Event<L>> pending = pendingEvents.descendingIterator();
+			while (pending.hasNext()) {
+				final Event<L> pendingEvent = pending.next();
+
+				if (event.replaces(pendingEvent)) {
+					pending.remove();
+					break;
+				}
+				if (!event.looksPast(pendingEvent)) {
+					break;
+				}
+			}
+			pendingEvents.add(event);
+
+			return wasEmpty;
+		}
+
+		private synchronized Event<L> poll() {
+			return pendingEvents.poll();
+		}
+
+		void drain() {
+			Event<L> event;
+
+			while ((event = poll()) != null) {
+				final L listener = getListener();
+				if (listener == null) {
+					remove();
+					return;
+				}
+
+				try {
+					event.delivery.accept(listener);
+				} catch (final RuntimeException e) {
+					logger.error("Listener " + listener + " failed", e);
+				}
+			}
 		}
 	}
 
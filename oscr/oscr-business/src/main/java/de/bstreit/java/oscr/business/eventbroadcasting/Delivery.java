@@ -0,0 +1,29 @@
+package de.bstreit.java.oscr.business.eventbroadcasting;
+
+/**
+ * The thread a listener is notified in, chosen when it is added to the
+ * {@link EventBroadcaster}. Without <code>eventBroadcasting.async</code>,
+ * all listeners are notified synchronously.
+ */
+public enum Delivery {
+
+	/**
+	 * In the thread that caused the event, before the notify method returns.
+	 * Only for listeners that need to be consistent with the change at once,
+	 * and do little.
+	 */
+	SYNCHRONOUS,
+
+	/**
+	 * In the dispatch thread of the broadcaster. Updates of the same bill that
+	 * are not delivered yet are delivered only once.
+	 */
+	DISPATCH_THREAD,
+
+	/**
+	 * Like {@link #DISPATCH_THREAD}, but in the Swing event dispatch thread -
+	 * for listeners that change the user interface.
+	 */
+	EVENT_DISPATCH_THREAD;
+
+}
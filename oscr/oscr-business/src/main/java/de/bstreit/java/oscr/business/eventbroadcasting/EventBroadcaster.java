@@ -1,23 +1,75 @@
 package de.bstreit.java.oscr.business.eventbroadcasting;
 
 import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillDelta;
 import de.bstreit.java.oscr.business.offers.AbstractOffer;
 
+/**
+ * <p>
+ * Listeners are added strongly - they are notified until they are removed
+ * using the {@link ListenerRegistration} - or weakly. A weakly added listener
+ * is dropped once nothing else refers to it, so whoever adds it has to keep
+ * it, e.g. the component it updates.
+ * </p>
+ *
+ * <p>
+ * Adding the same listener twice adds it once.
+ * </p>
+ */
 public interface EventBroadcaster {
 
-	public abstract void addListener(OfferChangeListener offerChangeListener);
+	/**
+	 * Add a listener notified in the dispatch thread, see
+	 * {@link Delivery#DISPATCH_THREAD}.
+	 */
+	public abstract ListenerRegistration addListener(
+			OfferChangeListener offerChangeListener);
 
-	public abstract void addBillChangeListener(
+	public abstract ListenerRegistration addListener(
+			OfferChangeListener offerChangeListener, Delivery delivery);
+
+	public abstract ListenerRegistration addWeakListener(
+			OfferChangeListener offerChangeListener, Delivery delivery);
+
+	/**
+	 * Add a listener notified in the dispatch thread, see
+	 * {@link Delivery#DISPATCH_THREAD}.
+	 */
+	public abstract ListenerRegistration addBillChangeListener(
 			BillChangeListener billChangeListener);
 
-	public abstract void addListener(
+	public abstract ListenerRegistration addBillChangeListener(
+			BillChangeListener billChangeListener, Delivery delivery);
+
+	public abstract ListenerRegistration addWeakBillChangeListener(
+			BillChangeListener billChangeListener, Delivery delivery);
+
+	public abstract ListenerRegistration addListener(
 			SalesItemChangeListener salesItemChangeListener);
 
+	/**
+	 * @param listenerType
+	 *            {@link BillChangeListener}, {@link OfferChangeListener} or
+	 *            {@link SalesItemChangeListener}
+	 * @return the number of listeners of the type that are notified - without
+	 *         the weakly added ones that are gone already
+	 */
+	public abstract int getNumberOfListeners(Class<?> listenerType);
+
 	public abstract void notifyOfferUpdated(Object sender,
 			AbstractOffer<?> oldItem, AbstractOffer<?> newItem);
 
+	public abstract void notifyOfferCreated(Object sender,
+			AbstractOffer<?> newItem);
+
+	public abstract void notifyOfferDeleted(Object sender, AbstractOffer<?> item);
+
+	public abstract void notifyBillChanged(Object sender, BillDelta delta);
+
 	public abstract void notifyBillUpdated(Object sender, Bill newBill);
 
+	public abstract void notifyBillDeleted(Object sender, Bill deletedBill);
+
 	public abstract void notifyApplicationLaunched(Object sender);
 
-}
\ No newline at end of file
+}
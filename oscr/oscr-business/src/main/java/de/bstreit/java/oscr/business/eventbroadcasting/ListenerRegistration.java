@@ -0,0 +1,15 @@
+package de.bstreit.java.oscr.business.eventbroadcasting;
+
+/**
+ * Handed out when a listener is added to the {@link EventBroadcaster}, to
+ * remove it again - e.g. when the component it updates is thrown away.
+ */
+public interface ListenerRegistration {
+
+	/**
+	 * Stop notifying the listener; events not delivered yet are dropped.
+	 * Removing a listener twice does no harm.
+	 */
+	void remove();
+
+}
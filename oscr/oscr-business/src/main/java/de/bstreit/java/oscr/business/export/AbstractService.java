@@ -1,47 +1,63 @@
 package de.bstreit.java.oscr.business.export;
 
+import java.util.concurrent.TimeUnit;
 
-public abstract class AbstractService implements IService, Runnable {
+import javax.inject.Inject;
 
-  private final long intervalInMinutes;
+import de.bstreit.java.oscr.business.base.scheduling.ScheduledJob;
+import de.bstreit.java.oscr.business.base.scheduling.SchedulerService;
 
-  private Thread currentThread;
-  private Boolean stopService = false;
+
+/**
+ * A service executed with a fixed delay by the {@link SchedulerService}.
+ */
+public abstract class AbstractService implements IService {
+
+  @Inject
+  private SchedulerService schedulerService;
+
+  private final long interval;
+
+  private final TimeUnit unit;
+
+  private ScheduledJob job;
+
+  private boolean started = false;
 
 
   /**
-   * Create a new service that is executed every intervalInMinutes minutes.
-   * 
-   * @param intervalInMinutes
+   * Create a new service that is executed every interval.
    */
-  public AbstractService(long intervalInMinutes) {
-    this.intervalInMinutes = intervalInMinutes;
+  public AbstractService(long interval, TimeUnit unit) {
+    this.interval = interval;
+    this.unit = unit;
   }
 
   @Override
-  public void runInBackground() {
-    if (stopService) {
+  public synchronized void runInBackground() {
+    if (started) {
       throw new IllegalStateException(
           "Service did run already, do not re-use!");
     }
+    started = true;
 
     initService();
 
-    currentThread = new Thread(this);
-    currentThread.start();
-  }
-
-  @Override
-  public void run() {
-
-    if (!canRun())
+    if (!canRun()) {
       return;
-
-    while (!isStopRequest()) {
-      sleep();
-      execute();
     }
 
+    job = scheduleJob(schedulerService);
+  }
+
+  /**
+   * Schedule {@link #execute()}; called once, if the service can run.
+   * 
+   * @return the job cancelled by {@link #stopService()}
+   */
+  protected ScheduledJob scheduleJob(SchedulerService schedulerService) {
+    return schedulerService.scheduleWithFixedDelay(getClass().getSimpleName(),
+        this::execute, interval, interval, unit);
   }
 
   protected abstract void initService();
@@ -50,29 +66,11 @@ public abstract class AbstractService implements IService, Runnable {
 
   protected abstract void execute();
 
-
-  private boolean isStopRequest() {
-    synchronized (stopService) {
-      return stopService;
-    }
-  }
-
-  private void sleep() {
-    try {
-      Thread.sleep(intervalInMinutes);
-    } catch (final InterruptedException e) {
-    }
-  }
-
   @Override
-  public void stopService() {
-
-    synchronized (stopService) {
-      stopService = true;
+  public synchronized void stopService() {
+    if (job != null) {
+      job.cancel();
     }
-
-    // Just in case we're sleeping...
-    currentThread.interrupt();
   }
 
-}
\ No newline at end of file
+}
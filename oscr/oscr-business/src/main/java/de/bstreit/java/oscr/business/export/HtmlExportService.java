@@ -4,6 +4,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -19,14 +21,26 @@ import com.google.common.base.Optional;
 
 import de.bstreit.java.oscr.business.base.finance.money.Money;
 import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.base.scheduling.ScheduledJob;
+import de.bstreit.java.oscr.business.base.scheduling.SchedulerService;
 import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillDelta;
 import de.bstreit.java.oscr.business.bill.BillService;
 import de.bstreit.java.oscr.business.bill.IBillProcessor;
 import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
+import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
 import de.bstreit.java.oscr.business.eventbroadcasting.BillChangeListener;
 import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
 import de.bstreit.java.oscr.text.formatting.BillFormatter;
 
+/**
+ * Exports today's bills and totals as html. The export runs after a bill was
+ * closed or deleted - once no bill was closed for the debounce period, but not
+ * later than the maximum staleness after the first bill not exported yet.
+ * Changes of open bills are exported with the next export, or after five
+ * minutes at the latest.
+ */
 @Named
 public class HtmlExportService extends AbstractService implements BillChangeListener
 {
@@ -34,8 +48,6 @@ public class HtmlExportService extends AbstractService implements BillChangeList
   private static final Logger logger = LoggerFactory
       .getLogger(HtmlExportService.class);
 
-  private static final long FIVE_MINUTES = 5 * 60 * 1_000;
-
   @Inject
   private BillService billService;
 
@@ -51,11 +63,20 @@ public class HtmlExportService extends AbstractService implements BillChangeList
   @Value("${exportDir}")
   private String exportDir;
 
-  private Boolean dataForExportAvailable = true;
+  @Value("${htmlExport.debounceSeconds:10}")
+  private long debounceSeconds = 10;
+
+  @Value("${htmlExport.maxStalenessSeconds:60}")
+  private long maxStalenessSeconds = 60;
+
+  private final AtomicBoolean dataForExportAvailable = new AtomicBoolean(true);
+
+  /** runs the export when a bill was closed; null if the service is stopped */
+  private volatile ScheduledJob exportJob;
 
 
   public HtmlExportService() {
-    super(FIVE_MINUTES);
+    super(5, TimeUnit.MINUTES);
   }
 
   @Override
@@ -63,6 +84,32 @@ public class HtmlExportService extends AbstractService implements BillChangeList
     eventBroadcaster.addBillChangeListener(this);
   }
 
+  /**
+   * The export after closed bills, and the five-minute run for changes of
+   * open bills.
+   */
+  @Override
+  protected ScheduledJob scheduleJob(SchedulerService schedulerService) {
+    exportJob = schedulerService.scheduleOnTrigger("HtmlExportService on close",
+        this::execute, debounceSeconds, Math.max(debounceSeconds,
+            maxStalenessSeconds), TimeUnit.SECONDS);
+
+    // the first export right after the start
+    exportJob.trigger();
+
+    return super.scheduleJob(schedulerService);
+  }
+
+  /**
+   * A pending export is not cancelled: it runs when the scheduler shuts down,
+   * see {@link BillService#notifyShutdown()}.
+   */
+  @Override
+  public synchronized void stopService() {
+    super.stopService();
+    exportJob = null;
+  }
+
   /**
    * 
    * @return false, if the service cannot be started (e.g. missing
@@ -82,18 +129,12 @@ public class HtmlExportService extends AbstractService implements BillChangeList
    * Service gets executed
    */
   @Override
-  protected void execute() {
+  protected synchronized void execute() {
     logger.info("Check if data for export available...");
 
-    synchronized (dataForExportAvailable) {
-
-      if (!dataForExportAvailable) {
-        logger.info("Nothing, returning...");
-        return;
-      }
-
-      dataForExportAvailable = false;
-
+    if (!dataForExportAvailable.getAndSet(false)) {
+      logger.info("Nothing, returning...");
+      return;
     }
 
     exportData();
@@ -124,8 +165,11 @@ public class HtmlExportService extends AbstractService implements BillChangeList
   private void enrichAndExportFile(String htmlFile) {
     final StringBuilder sb = new StringBuilder();
 
-    addBills(billService.getTotalForToday(), "today", sb);
-    addBills(billService.getFreePomotionTotalForToday(),
+    final IMultipleBillsTotals totalsForToday = billService
+        .getAllTotalsForToday();
+
+    addBills(totalsForToday.get(WhatToCount.TOTAL), "today", sb);
+    addBills(totalsForToday.get(WhatToCount.PROMO_TOTAL),
         "promotion expenses for today", sb);
 
     sb.append("\n\nAll bills for today:\n" + "====================\n\n");
@@ -140,8 +184,11 @@ public class HtmlExportService extends AbstractService implements BillChangeList
     });
 
     sb.append("\n\n").append(StringUtils.repeat("-", 80)).append("\n\n");
-    addBills(billService.getTotalForYesterday(), "yesterday", sb);
-    addBills(billService.getFreePomotionTotalForYesterday(),
+    final IMultipleBillsTotals totalsForYesterday = billService
+        .getAllTotalsForYesterday();
+
+    addBills(totalsForYesterday.get(WhatToCount.TOTAL), "yesterday", sb);
+    addBills(totalsForYesterday.get(WhatToCount.PROMO_TOTAL),
         "promotion expenses for yesterday", sb);
 
     final String changedHtmlFile = htmlFile.replace("$CONTENT",
@@ -199,11 +246,25 @@ public class HtmlExportService extends AbstractService implements BillChangeList
 
   @Override
   public void billUpdated(Optional<Bill> newBill) {
+    // see billChanged
+  }
 
-    synchronized (dataForExportAvailable) {
-      dataForExportAvailable = true;
+  @Override
+  public void billChanged(BillDelta delta) {
+    if (!delta.changesTotals()) {
+      // e.g. another bill was selected
+      return;
     }
 
+    dataForExportAvailable.set(true);
+
+    final ScheduledJob job = exportJob;
+    final boolean billFinished = delta.getKind() == BillDelta.Kind.BILL_CLOSED
+        || delta.getKind() == BillDelta.Kind.BILL_DELETED;
+
+    if (billFinished && job != null) {
+      job.trigger();
+    }
   }
 
 }
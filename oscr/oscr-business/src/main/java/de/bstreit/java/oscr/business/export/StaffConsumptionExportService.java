@@ -4,6 +4,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -18,6 +20,7 @@ import org.springframework.core.io.Resource;
 import com.google.common.base.Optional;
 
 import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillDelta;
 import de.bstreit.java.oscr.business.eventbroadcasting.BillChangeListener;
 import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
 import de.bstreit.java.oscr.business.export.consumption.ConsumptionExporter;
@@ -29,8 +32,6 @@ public class StaffConsumptionExportService extends AbstractService implements Bi
   private static final Logger logger = LoggerFactory
       .getLogger(StaffConsumptionExportService.class);
 
-  private static final long FIVE_MINUTES = 5/* * 60 */* 1_000;
-
   @Inject
   private EventBroadcaster eventBroadcaster;
 
@@ -40,14 +41,14 @@ public class StaffConsumptionExportService extends AbstractService implements Bi
   @Value("${exportDir}")
   private String exportDir;
 
-  private Boolean dataForExportAvailable = true;
+  private final AtomicBoolean dataForExportAvailable = new AtomicBoolean(true);
 
   @Inject
   private ConsumptionExporter consumptionExporter;
 
 
   public StaffConsumptionExportService() {
-    super(FIVE_MINUTES);
+    super(5, TimeUnit.SECONDS);
   }
 
 
@@ -80,16 +81,11 @@ public class StaffConsumptionExportService extends AbstractService implements Bi
   protected void execute() {
     logger.info("Check if data for export available...");
 
-    synchronized (dataForExportAvailable) {
-
-      if (!dataForExportAvailable) {
-        logger.info("Nothing, returning...");
-        return;
-      }
-
-      // mark here already as exported, to prevent double invocation if export
-      // takes too much time
-      dataForExportAvailable = false;
+    // mark here already as exported, to prevent double invocation if export
+    // takes too much time
+    if (!dataForExportAvailable.getAndSet(false)) {
+      logger.info("Nothing, returning...");
+      return;
     }
 
     exportData();
@@ -152,11 +148,22 @@ public class StaffConsumptionExportService extends AbstractService implements Bi
 
   @Override
   public void billUpdated(Optional<Bill> newBill) {
+    // see billChanged
+  }
+
+  /**
+   * Bills of the staff, and bills that were, when the staff consumer is
+   * cleared. Closing a bill counts as well - the bill is not the current one
+   * afterwards.
+   */
+  @Override
+  public void billChanged(BillDelta delta) {
+    final boolean staffConsumptionChanged = delta.changesTotals()
+        && (delta.getKind() == BillDelta.Kind.STAFF_CONSUMER_CHANGED || delta
+            .getBill().isConsumedByStaff());
 
-    if (newBill.isPresent() && newBill.get().isConsumedByStaff()) {
-      synchronized (dataForExportAvailable) {
-        dataForExportAvailable = true;
-      }
+    if (staffConsumptionChanged) {
+      dataForExportAvailable.set(true);
     }
 
   }
@@ -285,7 +285,7 @@ public class ConsumptionExporter {
     final Date to = getTo().getTime();
     final Date from = getFrom().getTime();
 
-    final Collection<Bill> billsForStaff = billRepository.getBillsForStaff(
+    final Collection<Bill> billsForStaff = billRepository.fetchBillsForStaff(
         from, to);
     return billsForStaff;
   }
@@ -295,7 +295,7 @@ public class ConsumptionExporter {
     final Date from = getFrom().getTime();
 
 
-    final Collection<Bill> billsForStaff = billRepository.getBillsForCustomers(
+    final Collection<Bill> billsForStaff = billRepository.fetchBillsForCustomers(
         from, to);
     return billsForStaff;
   }
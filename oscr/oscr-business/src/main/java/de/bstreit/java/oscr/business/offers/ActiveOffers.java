@@ -0,0 +1,212 @@
+package de.bstreit.java.oscr.business.offers;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObjectWithContinuance;
+import de.bstreit.java.oscr.business.products.category.ProductCategory;
+
+/**
+ * <p>
+ * The offers that are active at a certain point in time, together with the
+ * point in time when that changes next. Immutable, see {@link OfferService}.
+ * </p>
+ *
+ * <p>
+ * An offer is active if both the offer and its offered item are valid. Product
+ * offers are in the order of their product category, then of their product,
+ * then by name; product offers without a category are only found by name.
+ * </p>
+ */
+public final class ActiveOffers {
+
+	private static final Comparator<ProductOffer> PRODUCT_OFFER_ORDER = Comparator
+			.comparing((ProductOffer o) -> getCategory(o).getOrderNumber())
+			.thenComparing(o -> o.getOfferedItem().getOrderNumber())
+			.thenComparing(o -> o.getOfferedItem().getName());
+
+	private final List<ProductOffer> productOffers;
+
+	private final ImmutableListMultimap<ProductCategory, ProductOffer> productOffersByCategory;
+
+	private final Map<String, ProductOffer> productOffersByName;
+
+	private final List<ExtraOffer> extraOffers;
+
+	private final List<VariationOffer> variationOffers;
+
+	private final List<PromoOffer> promoOffers;
+
+	private final Date nextChange;
+
+
+	private ActiveOffers(List<ProductOffer> productOffers,
+			Map<String, ProductOffer> productOffersByName,
+			List<ExtraOffer> extraOffers, List<VariationOffer> variationOffers,
+			List<PromoOffer> promoOffers, Date nextChange) {
+
+		final ImmutableListMultimap.Builder<ProductCategory, ProductOffer> byCategory = ImmutableListMultimap
+				.builder();
+		for (final ProductOffer offer : productOffers) {
+			byCategory.put(getCategory(offer), offer);
+		}
+
+		this.productOffers = ImmutableList.copyOf(productOffers);
+		this.productOffersByCategory = byCategory.build();
+		this.productOffersByName = ImmutableMap.copyOf(productOffersByName);
+		this.extraOffers = ImmutableList.copyOf(extraOffers);
+		this.variationOffers = ImmutableList.copyOf(variationOffers);
+		this.promoOffers = ImmutableList.copyOf(promoOffers);
+		this.nextChange = nextChange;
+	}
+
+	/**
+	 * @param offers
+	 *            the offers to choose from, with their offered items
+	 *            initialized
+	 * @param now
+	 *            the point in time of the snapshot
+	 */
+	static ActiveOffers of(Collection<AbstractOffer<?>> offers, Date now) {
+		final List<ProductOffer> productOffers = Lists.newArrayList();
+		final Map<String, ProductOffer> productOffersByName = Maps.newHashMap();
+		final List<ExtraOffer> extraOffers = Lists.newArrayList();
+		final List<VariationOffer> variationOffers = Lists.newArrayList();
+		final List<PromoOffer> promoOffers = Lists.newArrayList();
+
+		Date nextChange = null;
+
+		for (final AbstractOffer<?> offer : offers) {
+			nextChange = earliestChange(nextChange, offer, now);
+			nextChange = earliestChange(nextChange, offer.getOfferedItem(), now);
+
+			if (!offer.isValidAt(now) || !offer.getOfferedItem().isValidAt(now)) {
+				continue;
+			}
+
+			if (offer instanceof ProductOffer) {
+				final ProductOffer productOffer = (ProductOffer) offer;
+
+				productOffersByName.put(productOffer.getOfferedItem().getName(),
+						productOffer);
+				if (getCategory(productOffer) != null) {
+					productOffers.add(productOffer);
+				}
+
+			} else if (offer instanceof ExtraOffer) {
+				extraOffers.add((ExtraOffer) offer);
+			} else if (offer instanceof VariationOffer) {
+				variationOffers.add((VariationOffer) offer);
+			} else if (offer instanceof PromoOffer) {
+				promoOffers.add((PromoOffer) offer);
+			}
+		}
+
+		productOffers.sort(PRODUCT_OFFER_ORDER);
+
+		return new ActiveOffers(productOffers, productOffersByName, extraOffers,
+				variationOffers, promoOffers, nextChange);
+	}
+
+	/**
+	 * @return the earlier of the given date and the point in time after which
+	 *         the item becomes valid or invalid, if that is still to come
+	 */
+	private static Date earliestChange(Date nextChange,
+			AbstractPersistentObjectWithContinuance<?> item, Date now) {
+		// validity is compared exclusively: an item valid from now is valid
+		// right after now, an item valid to now is not valid any more
+		final Date validFrom = item.getValidFrom();
+		if (validFrom != null && !validFrom.before(now)) {
+			nextChange = earlierOf(nextChange, validFrom);
+		}
+
+		final Date validTo = item.getValidTo();
+		if (validTo != null && validTo.after(now)) {
+			nextChange = earlierOf(nextChange, validTo);
+		}
+
+		return nextChange;
+	}
+
+	private static Date earlierOf(Date date, Date otherDate) {
+		return date == null || otherDate.before(date) ? otherDate : date;
+	}
+
+	private static ProductCategory getCategory(ProductOffer offer) {
+		return offer.getOfferedItem().getProductCategory();
+	}
+
+	/**
+	 * @return all active product offers that have a product category
+	 */
+	public List<ProductOffer> getProductOffers() {
+		return productOffers;
+	}
+
+	public List<ProductOffer> getProductOffers(ProductCategory productCategory) {
+		return productOffersByCategory.get(productCategory);
+	}
+
+	/**
+	 * @return the active product offers of all other categories
+	 */
+	public List<ProductOffer> getProductOffersExcept(
+			ProductCategory productCategory) {
+		final ImmutableList.Builder<ProductOffer> offers = ImmutableList
+				.builder();
+
+		for (final ProductOffer offer : productOffers) {
+			if (!getCategory(offer).equals(productCategory)) {
+				offers.add(offer);
+			}
+		}
+
+		return offers.build();
+	}
+
+	/**
+	 * @return the active offer of the product with the given name, or null
+	 */
+	public ProductOffer getProductOffer(String productName) {
+		return productOffersByName.get(productName);
+	}
+
+	public List<ExtraOffer> getExtraOffers() {
+		return extraOffers;
+	}
+
+	public List<VariationOffer> getVariationOffers() {
+		return variationOffers;
+	}
+
+	public List<PromoOffer> getPromoOffers() {
+		return promoOffers;
+	}
+
+	/**
+	 * @return the point in time after which an offer or an offered item becomes
+	 *         valid or invalid, or null if there is none
+	 */
+	public Date getNextChange() {
+		return nextChange;
+	}
+
+	@Override
+	public String toString() {
+		return "ActiveOffers [" + productOffers.size() + " product offers, "
+				+ extraOffers.size() + " extra offers, " + variationOffers.size()
+				+ " variation offers, " + promoOffers.size()
+				+ " promo offers, next change " + nextChange + "]";
+	}
+
+}
@@ -1,5 +1,248 @@
 package de.bstreit.java.oscr.business.offers;
 
-public class OfferService {
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.base.persistence.cache.ReferenceDataCache;
+import de.bstreit.java.oscr.business.base.scheduling.ScheduledJob;
+import de.bstreit.java.oscr.business.base.scheduling.SchedulerService;
+import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
+import de.bstreit.java.oscr.business.eventbroadcasting.OfferChangeListener;
+import de.bstreit.java.oscr.business.eventbroadcasting.SalesItemChangeListener;
+import de.bstreit.java.oscr.business.offers.dao.IOfferRepository;
+import de.bstreit.java.oscr.business.products.AbstractSalesItem;
+
+/**
+ * <p>
+ * Hands out the {@link ActiveOffers active offers} from memory, instead of
+ * asking the database for the offers valid at <code>current_timestamp</code>
+ * every time.
+ * </p>
+ *
+ * <p>
+ * The snapshot is replaced as a whole: it is read again from the database when
+ * an offer or a sales item changes and every {@link #RELOAD_INTERVAL_MINUTES}
+ * minutes, and it is rebuilt from the offers read before when an offer or
+ * sales item becomes valid or invalid, see {@link ActiveOffers#getNextChange()}.
+ * So a price change scheduled for midnight is active right after midnight,
+ * without restarting the register.
+ * </p>
+ *
+ * <p>
+ * The offers that differ between two snapshots are broadcast as created,
+ * updated or deleted offers - by offered item and type of offer.
+ * </p>
+ */
+@Named
+public class OfferService implements OfferChangeListener,
+		SalesItemChangeListener {
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(OfferService.class);
+
+	/** to pick up changes made by other applications, e.g. the admin tool */
+	static final long RELOAD_INTERVAL_MINUTES = 5;
+
+	@Inject
+	private IOfferRepository offerRepository;
+
+	@Inject
+	private EventBroadcaster eventBroadcaster;
+
+	@Inject
+	private SchedulerService schedulerService;
+
+	@Inject
+	private ReferenceDataCache referenceDataCache;
+
+	private volatile ActiveOffers activeOffers = null;
+
+	/** the current and future offers of the last read */
+	private List<AbstractOffer<?>> offers;
+
+	private ScheduledJob scheduledSwap;
+
+
+	@PostConstruct
+	private void init() {
+		eventBroadcaster.addListener((OfferChangeListener) this);
+		eventBroadcaster.addListener((SalesItemChangeListener) this);
+
+		schedulerService.scheduleWithFixedDelay("reload active offers",
+				this::reloadQuietly, RELOAD_INTERVAL_MINUTES,
+				RELOAD_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * @return the offers active right now; read from the database on the first
+	 *         call only
+	 */
+	public ActiveOffers getActiveOffers() {
+		final ActiveOffers snapshot = activeOffers;
+
+		if (snapshot != null) {
+			return snapshot;
+		}
+
+		synchronized (this) {
+			if (activeOffers == null) {
+				reload();
+			}
+
+			return activeOffers;
+		}
+	}
+
+	/**
+	 * @return the active offer of the product with the given name, or null
+	 */
+	public ProductOffer getActiveProductOffer(String productName) {
+		return getActiveOffers().getProductOffer(productName);
+	}
+
+	/**
+	 * Read the offers from the database again.
+	 */
+	public void reload() {
+		final ActiveOffers previousOffers;
+		final ActiveOffers currentOffers;
+
+		synchronized (this) {
+			previousOffers = activeOffers;
+			offers = offerRepository.findCurrentAndFutureOffers(new Date());
+			currentOffers = swap();
+		}
+
+		broadcastChanges(previousOffers, currentOffers);
+	}
+
+	/**
+	 * Other applications cannot invalidate the cache of this one, hence it is
+	 * invalidated before each scheduled reload.
+	 */
+	private void reloadQuietly() {
+		try {
+			referenceDataCache.invalidate();
+			reload();
+		} catch (final RuntimeException e) {
+			// keep the current snapshot, and the schedule
+			logger.error("Could not reload the offers", e);
+		}
+	}
+
+	private void swapAtNextChange() {
+		final ActiveOffers previousOffers;
+		final ActiveOffers currentOffers;
+
+		synchronized (this) {
+			previousOffers = activeOffers;
+			currentOffers = swap();
+		}
+
+		broadcastChanges(previousOffers, currentOffers);
+	}
+
+	private synchronized ActiveOffers swap() {
+		activeOffers = ActiveOffers.of(offers, new Date());
+		logger.debug("Swapped in " + activeOffers);
+
+		if (scheduledSwap != null) {
+			scheduledSwap.cancel();
+			scheduledSwap = null;
+		}
+
+		final Date nextChange = activeOffers.getNextChange();
+		if (nextChange != null) {
+			// validity is compared exclusively, so swap just after the change
+			final long delay = nextChange.getTime() - System.currentTimeMillis()
+					+ 1;
+			scheduledSwap = schedulerService.schedule("swap active offers",
+					this::swapAtNextChange, Math.max(delay, 0),
+					TimeUnit.MILLISECONDS);
+		}
+
+		return activeOffers;
+	}
+
+	private void broadcastChanges(ActiveOffers previousOffers,
+			ActiveOffers currentOffers) {
+		if (previousOffers == null) {
+			return;
+		}
+
+		broadcastChanges(previousOffers.getProductOffers(),
+				currentOffers.getProductOffers());
+		broadcastChanges(previousOffers.getExtraOffers(),
+				currentOffers.getExtraOffers());
+		broadcastChanges(previousOffers.getVariationOffers(),
+				currentOffers.getVariationOffers());
+		broadcastChanges(previousOffers.getPromoOffers(),
+				currentOffers.getPromoOffers());
+	}
+
+	private void broadcastChanges(
+			List<? extends AbstractOffer<?>> previousOffers,
+			List<? extends AbstractOffer<?>> currentOffers) {
+
+		final Map<String, AbstractOffer<?>> previousByItemName = Maps
+				.newLinkedHashMap();
+		for (final AbstractOffer<?> offer : previousOffers) {
+			previousByItemName.put(offer.getOfferedItem().getName(), offer);
+		}
+
+		for (final AbstractOffer<?> offer : currentOffers) {
+			final AbstractOffer<?> previousOffer = previousByItemName
+					.remove(offer.getOfferedItem().getName());
+
+			if (previousOffer == null) {
+				eventBroadcaster.notifyOfferCreated(this, offer);
+			} else if (!previousOffer.equals(offer)) {
+				eventBroadcaster.notifyOfferUpdated(this, previousOffer, offer);
+			}
+		}
+
+		for (final AbstractOffer<?> deletedOffer : previousByItemName.values()) {
+			eventBroadcaster.notifyOfferDeleted(this, deletedOffer);
+		}
+	}
+
+	@Override
+	public void offerUpdated(AbstractOffer<?> oldItem, AbstractOffer<?> newItem) {
+		reload();
+	}
+
+	@Override
+	public void offerCreated(AbstractOffer<?> newItem) {
+		reload();
+	}
+
+	@Override
+	public void offerDeleted(AbstractOffer<?> item) {
+		reload();
+	}
+
+	@Override
+	public void salesItemUpdated(AbstractSalesItem oldItem,
+			AbstractSalesItem newItem) {
+		reload();
+	}
+
+	@Override
+	public void salesItemCreated(AbstractSalesItem newItem) {
+		reload();
+	}
+
+	@Override
+	public void salesItemDeleted(AbstractSalesItem item) {
+		reload();
+	}
 
 }
@@ -0,0 +1,52 @@
+/*
+ * Open Source Cash Register
+ * 
+ * Copyright (C) 2013, 2014 Bernhard Streit
+ * 
+ * This file is part of the Open Source Cash Register program.
+ * 
+ * Open Source Cash Register is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Open Source Cash Register is distributed in the hope that it will 
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *  
+ * --------------------------------------------------------------------------
+ *  
+ * See oscr/licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See oscr/README.txt for more information about the software and the author(s).
+ * 
+ */
+package de.bstreit.java.oscr.business.offers.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import de.bstreit.java.oscr.business.offers.AbstractOffer;
+import de.bstreit.java.oscr.business.offers.OfferService;
+
+/**
+ * Offers of all types, for the {@link OfferService}.
+ */
+public interface IOfferRepository extends Repository<AbstractOffer<?>, Long> {
+
+	/**
+	 * @return all offers that are valid at the given date or become valid
+	 *         later, together with their offered items
+	 */
+	@Query("SELECT offer FROM AbstractOffer offer JOIN FETCH offer.offeredItem item "
+			+ " WHERE (offer.validTo IS NULL OR offer.validTo > ?1) "
+			+ " AND (item.validTo IS NULL OR item.validTo > ?1)")
+	public List<AbstractOffer<?>> findCurrentAndFutureOffers(Date date);
+
+}
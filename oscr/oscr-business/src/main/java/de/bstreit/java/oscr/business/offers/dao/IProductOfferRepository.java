@@ -31,11 +31,12 @@ import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import de.bstreit.java.oscr.business.base.persistence.IContinuanceRepository;
 import de.bstreit.java.oscr.business.offers.ProductOffer;
 import de.bstreit.java.oscr.business.products.category.ProductCategory;
 
 public interface IProductOfferRepository extends
-    JpaRepository<ProductOffer, Long> {
+    JpaRepository<ProductOffer, Long>, IContinuanceRepository<ProductOffer> {
 
   @Query("SELECT productOffer " + "  FROM ProductOffer productOffer "
       + "  WHERE productOffer.validFrom < current_timestamp and (productOffer.validTo IS NULL OR productOffer.validTo > current_timestamp)"
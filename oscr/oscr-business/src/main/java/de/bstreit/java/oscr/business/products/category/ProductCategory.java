@@ -2,11 +2,14 @@ package de.bstreit.java.oscr.business.products.category;
 
 import java.util.Date;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObjectWithContinuance;
 
@@ -24,6 +27,8 @@ import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObjectWi
  * 
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class ProductCategory extends
     AbstractPersistentObjectWithContinuance<ProductCategory> {
 
@@ -2,8 +2,11 @@ package de.bstreit.java.oscr.business.products.category.dao;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import de.bstreit.java.oscr.business.products.category.ProductCategory;
 
@@ -13,6 +16,7 @@ public interface IProductCategoryRepository extends
 	@Query("FROM ProductCategory WHERE validFrom < current_timestamp and (validTo IS NULL OR validTo > current_timestamp)")
 	public List<ProductCategory> findActiveProductCategories();
 
+	@QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
 	public ProductCategory findByName(String name);
 
 }
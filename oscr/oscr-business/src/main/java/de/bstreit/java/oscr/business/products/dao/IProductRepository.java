@@ -28,14 +28,18 @@ package de.bstreit.java.oscr.business.products.dao;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import de.bstreit.java.oscr.business.products.Product;
 
 public interface IProductRepository extends JpaRepository<Product, Long> {
 
 	/** Find currently active product by name */
+	@QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
 	public Product findByNameAndValidToIsNull(String name);
 
 	@Query("FROM Product WHERE validFrom < current_timestamp and (validTo IS NULL OR validTo > current_timestamp)")
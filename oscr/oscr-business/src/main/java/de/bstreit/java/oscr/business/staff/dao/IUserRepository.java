@@ -28,14 +28,19 @@ package de.bstreit.java.oscr.business.staff.dao;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import de.bstreit.java.oscr.business.staff.User;
 
 public interface IUserRepository extends JpaRepository<User, Long> {
 
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
   public User findByLoginname(String loginname);
 
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
   public List<User> findByValidToIsNull();
 
 }
@@ -0,0 +1,223 @@
+package de.bstreit.java.oscr.business.taxation;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObjectWithContinuance;
+import de.bstreit.java.oscr.business.products.category.ProductCategory;
+
+/**
+ * <p>
+ * The {@link VATRule}s valid at a certain point in time, compiled into a flat
+ * table: every tax info and product category named in the rules gets an index,
+ * all others share index 0. The table holds the resolved {@link VATClass} for
+ * every combination of bill's tax info, product category and overriding tax
+ * info, so a lookup is three map reads and an array access.
+ * </p>
+ *
+ * <p>
+ * Immutable; valid as long as no rule and no VAT class becomes valid or
+ * invalid, see {@link #covers(long)}.
+ * </p>
+ */
+final class CompiledVATRules {
+
+	private final Map<String, Integer> taxInfoIndexes;
+
+	private final Map<String, Integer> productCategoryIndexes;
+
+	private final int taxInfoCount;
+
+	private final int productCategoryCount;
+
+	/**
+	 * by [bill's tax info][product category][overriding tax info], null if no
+	 * rule matches
+	 */
+	private final VATClass[] vatClasses;
+
+	/** the open interval of points in time this table is valid for */
+	private final long validAfter;
+	private final long validBefore;
+
+	private final boolean empty;
+
+
+	private CompiledVATRules(Map<String, Integer> taxInfoIndexes,
+			Map<String, Integer> productCategoryIndexes, VATClass[] vatClasses,
+			long validAfter, long validBefore, boolean empty) {
+		this.taxInfoIndexes = taxInfoIndexes;
+		this.productCategoryIndexes = productCategoryIndexes;
+		this.taxInfoCount = taxInfoIndexes.size() + 1;
+		this.productCategoryCount = productCategoryIndexes.size() + 1;
+		this.vatClasses = vatClasses;
+		this.validAfter = validAfter;
+		this.validBefore = validBefore;
+		this.empty = empty;
+	}
+
+	/**
+	 * @param ruleVersions
+	 *            all versions of the rules
+	 * @param vatClassVersions
+	 *            all versions of the VAT classes
+	 * @param date
+	 *            the point in time to compile the rules for
+	 */
+	static CompiledVATRules compile(Collection<VATRule> ruleVersions,
+			Collection<VATClass> vatClassVersions, Date date) {
+
+		final Collection<VATRule> rules = Lists.newArrayList();
+		final Map<String, Integer> taxInfoIndexes = Maps.newHashMap();
+		final Map<String, Integer> productCategoryIndexes = Maps.newHashMap();
+
+		for (final VATRule rule : ruleVersions) {
+			if (rule.isValidAt(date)) {
+				rules.add(rule);
+				addIndex(taxInfoIndexes, rule.getTaxInfo());
+				addIndex(taxInfoIndexes, rule.getOverridingTaxInfo());
+				addIndex(productCategoryIndexes, rule.getProductCategory());
+			}
+		}
+
+		final Map<String, VATClass> vatClassesByName = Maps.newHashMap();
+		for (final VATClass vatClass : vatClassVersions) {
+			if (vatClass.isValidAt(date)) {
+				vatClassesByName.put(vatClass.getName(), vatClass);
+			}
+		}
+
+		final int taxInfoCount = taxInfoIndexes.size() + 1;
+		final int productCategoryCount = productCategoryIndexes.size() + 1;
+		final VATClass[] vatClasses = new VATClass[taxInfoCount
+				* productCategoryCount * taxInfoCount];
+		final int[] precedences = new int[vatClasses.length];
+
+		for (final VATRule rule : rules) {
+			final int taxInfo = indexOf(taxInfoIndexes, rule.getTaxInfo());
+			final int productCategory = indexOf(productCategoryIndexes,
+					rule.getProductCategory());
+			final int overridingTaxInfo = indexOf(taxInfoIndexes,
+					rule.getOverridingTaxInfo());
+
+			// overriding tax info first, then product category, then tax info
+			final int precedence = 1 + (overridingTaxInfo < 0 ? 0 : 4)
+					+ (productCategory < 0 ? 0 : 2) + (taxInfo < 0 ? 0 : 1);
+
+			for (int t = 0; t < taxInfoCount; t++) {
+				for (int c = 0; c < productCategoryCount; c++) {
+					for (int o = 0; o < taxInfoCount; o++) {
+						final int index = (t * productCategoryCount + c)
+								* taxInfoCount + o;
+
+						if (matches(taxInfo, t) && matches(productCategory, c)
+								&& matches(overridingTaxInfo, o)
+								&& precedence > precedences[index]) {
+							precedences[index] = precedence;
+							vatClasses[index] = vatClassesByName.get(rule
+									.getVATClass());
+						}
+					}
+				}
+			}
+		}
+
+		long validAfter = Long.MIN_VALUE;
+		long validBefore = Long.MAX_VALUE;
+
+		final Collection<AbstractPersistentObjectWithContinuance<?>> versions = Lists
+				.newArrayList();
+		versions.addAll(ruleVersions);
+		versions.addAll(vatClassVersions);
+
+		for (final AbstractPersistentObjectWithContinuance<?> version : versions) {
+			for (final Date boundary : new Date[] { version.getValidFrom(),
+					version.getValidTo() }) {
+
+				if (boundary == null) {
+					continue;
+				}
+
+				if (boundary.before(date)) {
+					validAfter = Math.max(validAfter, boundary.getTime());
+				} else if (boundary.after(date)) {
+					validBefore = Math.min(validBefore, boundary.getTime());
+				} else {
+					// validity is compared exclusively, so this table is only
+					// valid at this very point in time
+					validAfter = Math.max(validAfter, date.getTime() - 1);
+					validBefore = Math.min(validBefore, date.getTime() + 1);
+				}
+			}
+		}
+
+		return new CompiledVATRules(taxInfoIndexes, productCategoryIndexes,
+				vatClasses, validAfter, validBefore, rules.isEmpty());
+	}
+
+	private static void addIndex(Map<String, Integer> indexes, String name) {
+		if (name != null && !indexes.containsKey(name)) {
+			indexes.put(name, indexes.size() + 1);
+		}
+	}
+
+	/**
+	 * @return the index of the name, or -1 for a condition matching any value
+	 */
+	private static int indexOf(Map<String, Integer> indexes, String name) {
+		return name == null ? -1 : indexes.get(name);
+	}
+
+	private static boolean matches(int condition, int index) {
+		return condition < 0 || condition == index;
+	}
+
+	/**
+	 * @return true, if this table applies to the given point in time
+	 */
+	boolean covers(long time) {
+		return validAfter < time && time < validBefore;
+	}
+
+	/**
+	 * @return true, if there is no rule at all
+	 */
+	boolean isEmpty() {
+		return empty;
+	}
+
+	/**
+	 * @param productCategory
+	 *            may be null
+	 * @param overridingTaxInfo
+	 *            may be null
+	 * @return the VAT class, or null if no rule matches
+	 */
+	VATClass getVATClassFor(TaxInfo taxInfo, ProductCategory productCategory,
+			TaxInfo overridingTaxInfo) {
+		final int t = index(taxInfoIndexes, taxInfo == null ? null : taxInfo
+				.getDenotation());
+		final int c = index(productCategoryIndexes,
+				productCategory == null ? null : productCategory.getName());
+		final int o = index(taxInfoIndexes,
+				overridingTaxInfo == null ? null : overridingTaxInfo
+						.getDenotation());
+
+		return vatClasses[(t * productCategoryCount + c) * taxInfoCount + o];
+	}
+
+	private static int index(Map<String, Integer> indexes, String name) {
+		if (name == null) {
+			return 0;
+		}
+
+		final Integer index = indexes.get(name);
+		return index == null ? 0 : index;
+	}
+
+}
@@ -0,0 +1,175 @@
+package de.bstreit.java.oscr.business.taxation;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.springframework.context.annotation.Primary;
+
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.base.finance.tax.dao.IVATClassRepository;
+import de.bstreit.java.oscr.business.base.persistence.ContinuanceIndex;
+import de.bstreit.java.oscr.business.base.scheduling.SchedulerService;
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillItem;
+import de.bstreit.java.oscr.business.products.AbstractSalesItem;
+import de.bstreit.java.oscr.business.products.Product;
+import de.bstreit.java.oscr.business.products.category.ProductCategory;
+import de.bstreit.java.oscr.business.taxation.dao.IVATRuleRepository;
+
+/**
+ * <p>
+ * Determines the VAT class by the {@link VATRule}s in the database, as of the
+ * date the bill was closed (or now, for open bills).
+ * </p>
+ *
+ * <p>
+ * The rules are compiled into a {@link CompiledVATRules table} at startup, when
+ * rules or VAT classes changed, and when the next rule or VAT class becomes
+ * valid or invalid; so finding the VAT class of a bill item does not allocate
+ * anything. Changes are read from the database every
+ * {@link #REFRESH_INTERVAL_MS} ms by a job of the {@link SchedulerService},
+ * never while finding a VAT class.
+ * </p>
+ *
+ * <p>
+ * As long as there are no rules at all, the
+ * {@link SimpleVATFinderDoNotUseInProduction} is asked.
+ * </p>
+ */
+@Named
+@Primary
+public class RuleTableVATFinder implements IVATFinder {
+
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(RuleTableVATFinder.class);
+
+	/** how often changed rules and VAT classes are read from the database */
+	static final long REFRESH_INTERVAL_MS = 5 * 60 * 1000;
+
+	@Inject
+	private IVATRuleRepository vatRuleRepository;
+
+	@Inject
+	private IVATClassRepository vatClassRepository;
+
+	@Inject
+	private SimpleVATFinderDoNotUseInProduction fallbackVATFinder;
+
+	@Inject
+	private SchedulerService schedulerService;
+
+	private final ContinuanceIndex<List<String>, VATRule> vatRules = new ContinuanceIndex<List<String>, VATRule>(
+			VATRule::getConditions);
+
+	private final ContinuanceIndex<String, VATClass> vatClasses = new ContinuanceIndex<String, VATClass>(
+			VATClass::getName);
+
+	/** the table for the latest point in time asked for */
+	private volatile CompiledVATRules currentRules;
+
+	/** the table for the last bill closed before that */
+	private volatile CompiledVATRules historicRules;
+
+
+	@PostConstruct
+	private void init() {
+		refresh();
+
+		schedulerService.scheduleWithFixedDelay("refresh VAT rules",
+				this::refreshQuietly, REFRESH_INTERVAL_MS, REFRESH_INTERVAL_MS,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public VATClass getVATClassFor(BillItem billItem, Bill bill) {
+		final long now = System.currentTimeMillis();
+
+		final Date billClosed = bill.getBillClosed();
+		final long time = billClosed == null ? now : billClosed.getTime();
+
+		CompiledVATRules rules = currentRules;
+		if (!rules.covers(time)) {
+			rules = getRulesFor(time);
+		}
+
+		if (rules.isEmpty()) {
+			return fallbackVATFinder.getVATClassFor(billItem, bill);
+		}
+
+		final AbstractSalesItem offeredItem = billItem.getOffer()
+				.getOfferedItem();
+
+		return rules.getVATClassFor(bill.getGlobalTaxInfo(),
+				getProductCategory(offeredItem),
+				offeredItem.getOverridingTaxInfo());
+	}
+
+	private ProductCategory getProductCategory(AbstractSalesItem offeredItem) {
+		if (offeredItem instanceof Product) {
+			return ((Product) offeredItem).getProductCategory();
+		}
+
+		return null;
+	}
+
+	private synchronized CompiledVATRules getRulesFor(long time) {
+		if (currentRules.covers(time)) {
+			return currentRules;
+		}
+
+		if (historicRules != null && historicRules.covers(time)) {
+			return historicRules;
+		}
+
+		final CompiledVATRules rules = compile(time);
+
+		// open bills and bills closed just now move the current table forward
+		if (time > System.currentTimeMillis() - REFRESH_INTERVAL_MS) {
+			currentRules = rules;
+		} else {
+			historicRules = rules;
+		}
+
+		return rules;
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (final RuntimeException e) {
+			// keep the current tables, and the schedule
+			logger.error("Could not refresh the VAT rules", e);
+		}
+	}
+
+	/**
+	 * Reads the changes without holding the monitor, so finding a VAT class
+	 * does not wait for the database.
+	 */
+	private void refresh() {
+		final boolean rulesChanged = vatRules.refresh(vatRuleRepository);
+		final boolean vatClassesChanged = vatClasses.refresh(vatClassRepository);
+
+		synchronized (this) {
+			if (currentRules == null || rulesChanged || vatClassesChanged) {
+				currentRules = compile(System.currentTimeMillis());
+				historicRules = null;
+			}
+		}
+	}
+
+	private CompiledVATRules compile(long time) {
+		final CompiledVATRules rules = CompiledVATRules.compile(
+				vatRules.getAll(), vatClasses.getAll(), new Date(time));
+
+		logger.debug("Compiled the VAT rules for " + new Date(time));
+
+		return rules;
+	}
+
+}
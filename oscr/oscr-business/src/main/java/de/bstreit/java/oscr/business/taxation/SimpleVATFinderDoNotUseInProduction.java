@@ -1,5 +1,8 @@
 package de.bstreit.java.oscr.business.taxation;
 
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -8,9 +11,10 @@ import com.google.common.base.Optional;
 
 import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
 import de.bstreit.java.oscr.business.base.finance.tax.dao.IVATClassRepository;
+import de.bstreit.java.oscr.business.base.persistence.ContinuanceIndex;
+import de.bstreit.java.oscr.business.base.scheduling.SchedulerService;
 import de.bstreit.java.oscr.business.bill.Bill;
 import de.bstreit.java.oscr.business.bill.BillItem;
-import de.bstreit.java.oscr.business.taxation.dao.ITaxInfoRepository;
 
 /**
  * <p>
@@ -20,6 +24,13 @@ import de.bstreit.java.oscr.business.taxation.dao.ITaxInfoRepository;
  * <p>
  * Only in case we have "to go" as tax info, use reduced VAT.
  * </p>
+ * <p>
+ * The VAT classes are the ones valid when the bill was closed (or now, for
+ * open bills), so that a change of the VAT rate scheduled for a certain date
+ * applies from that date on. Tax infos are compared by denotation, for the
+ * same reason. New versions of VAT classes are read by a job of the
+ * {@link SchedulerService}.
+ * </p>
  * 
  * 
  * @author Bernhard Streit
@@ -27,24 +38,44 @@ import de.bstreit.java.oscr.business.taxation.dao.ITaxInfoRepository;
 @Named
 public class SimpleVATFinderDoNotUseInProduction implements IVATFinder {
 
+	private static org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(SimpleVATFinderDoNotUseInProduction.class);
+
+	/** how often new versions of VAT classes are read from the database */
+	private static final long REFRESH_INTERVAL_MS = 5 * 60 * 1000;
+
+	private static final String NORMAL_VAT_CLASS = "Normaler Steuersatz";
+	private static final String REDUCED_VAT_CLASS = "Ermäßigter Steuersatz";
+
+	private static final String REDUCED_VAT_CLASS_TAX_INFO = "to go";
+	private static final String FOOD_SELL_VAT_CLASS_TAX_INFO = "food sale";
+
 	@Inject
 	private IVATClassRepository vatClassRepository;
-	@Inject
-	private ITaxInfoRepository taxInfoRepository;
 
-	private VATClass normalVATClass;
-	private VATClass reducedVATClass;
+	@Inject
+	private SchedulerService schedulerService;
 
-	private TaxInfo reducedVATClassTaxInfo;
-	private TaxInfo foodSellVATClassTaxInfo;
+	private final ContinuanceIndex<String, VATClass> vatClasses = new ContinuanceIndex<String, VATClass>(
+			VATClass::getName);
 
 
 	@PostConstruct
 	private void init() {
-		normalVATClass = vatClassRepository.findByDesignationAndValidToIsNull("Normaler Steuersatz");
-		reducedVATClass = vatClassRepository.findByDesignationAndValidToIsNull("Ermäßigter Steuersatz");
-		reducedVATClassTaxInfo = taxInfoRepository.findByDenotationAndValidToIsNull("to go");
-		foodSellVATClassTaxInfo = taxInfoRepository.findByDenotationAndValidToIsNull("food sale");
+		vatClasses.refresh(vatClassRepository);
+
+		schedulerService.scheduleWithFixedDelay("refresh VAT classes",
+				this::refreshVATClasses, REFRESH_INTERVAL_MS, REFRESH_INTERVAL_MS,
+				TimeUnit.MILLISECONDS);
+	}
+
+	private void refreshVATClasses() {
+		try {
+			vatClasses.refresh(vatClassRepository);
+		} catch (final RuntimeException e) {
+			// keep the VAT classes read so far, and the schedule
+			logger.error("Could not refresh the VAT classes", e);
+		}
 	}
 
 
@@ -55,11 +86,16 @@ public class SimpleVATFinderDoNotUseInProduction implements IVATFinder {
 		    .fromNullable(getTaxInfoFrom(billItem))
 		    .or(bill.getGlobalTaxInfo());
 
-		if (applyingTaxInfo.equals(reducedVATClassTaxInfo) || applyingTaxInfo.equals(foodSellVATClassTaxInfo)) {
-			return reducedVATClass;
+		final Date date = Optional.fromNullable(bill.getBillClosed()).or(
+				new Date());
+
+		final String denotation = applyingTaxInfo.getDenotation();
+		if (denotation.equals(REDUCED_VAT_CLASS_TAX_INFO)
+				|| denotation.equals(FOOD_SELL_VAT_CLASS_TAX_INFO)) {
+			return vatClasses.getAsOf(REDUCED_VAT_CLASS, date);
 		}
 
-		return normalVATClass;
+		return vatClasses.getAsOf(NORMAL_VAT_CLASS, date);
 	}
 
 
@@ -28,10 +28,13 @@ package de.bstreit.java.oscr.business.taxation;
 
 import java.util.Date;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.NaturalId;
 
 import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObjectWithContinuance;
@@ -64,6 +67,8 @@ import de.bstreit.java.oscr.business.products.AbstractSalesItem;
  * @author streit
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class TaxInfo extends AbstractPersistentObjectWithContinuance<TaxInfo> {
 
 	@NaturalId
@@ -0,0 +1,151 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013-2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --
+ *
+ * See /licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See /README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.taxation;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.base.persistence.AbstractPersistentObjectWithContinuance;
+import de.bstreit.java.oscr.business.products.category.ProductCategory;
+
+/**
+ * <p>
+ * One row of the table that maps the tax infos and the product category of a
+ * bill item to its {@link VATClass}, see {@link RuleTableVATFinder}.
+ * </p>
+ *
+ * <p>
+ * A rule refers to tax infos, product categories and VAT classes by their
+ * names, so it applies to all of their versions. A condition that is
+ * <code>null</code> matches any value. If several rules match, the one with
+ * an overriding tax info wins, then the one with a product category, then the
+ * one with the bill's tax info.
+ * </p>
+ *
+ * <p>
+ * <b>Warning:</b> see {@link TaxInfo} - all information about taxes that you
+ * find in this project are just <b>examples</b>!
+ * </p>
+ */
+@Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+public class VATRule extends AbstractPersistentObjectWithContinuance<VATRule> {
+
+	/** denotation of the bill's global {@link TaxInfo}, or null for any */
+	@NaturalId
+	@Column(nullable = true)
+	private String taxInfo;
+
+	/** name of the {@link ProductCategory} of the product, or null for any */
+	@NaturalId
+	@Column(nullable = true)
+	private String productCategory;
+
+	/**
+	 * denotation of the overriding {@link TaxInfo} of the sales item, or null
+	 * for any
+	 */
+	@NaturalId
+	@Column(nullable = true)
+	private String overridingTaxInfo;
+
+	/** designation of the {@link VATClass} applying */
+	@Column(nullable = false)
+	private String vatClass;
+
+	@SuppressWarnings("unused")
+	private VATRule() {
+	}
+
+	public VATRule(String taxInfo, String productCategory,
+			String overridingTaxInfo, String vatClass, Date validFrom,
+			Date validTo) {
+		super(validFrom, validTo);
+		this.taxInfo = taxInfo;
+		this.productCategory = productCategory;
+		this.overridingTaxInfo = overridingTaxInfo;
+		this.vatClass = vatClass;
+	}
+
+	public String getTaxInfo() {
+		return taxInfo;
+	}
+
+	public String getProductCategory() {
+		return productCategory;
+	}
+
+	public String getOverridingTaxInfo() {
+		return overridingTaxInfo;
+	}
+
+	public String getVATClass() {
+		return vatClass;
+	}
+
+	/**
+	 * @return the conditions of this rule, which identify it among all rules
+	 */
+	public List<String> getConditions() {
+		return Arrays.asList(taxInfo, productCategory, overridingTaxInfo);
+	}
+
+	@Override
+	protected void additionalEqualsForSubclasses(EqualsBuilder equalsBuilder,
+			VATRule otherObject) {
+		equalsBuilder.append(taxInfo, otherObject.taxInfo);
+		equalsBuilder.append(productCategory, otherObject.productCategory);
+		equalsBuilder.append(overridingTaxInfo, otherObject.overridingTaxInfo);
+	}
+
+	@Override
+	protected void additionalHashcodeForSubclasses(HashCodeBuilder builder) {
+		builder.append(taxInfo);
+		builder.append(productCategory);
+		builder.append(overridingTaxInfo);
+	}
+
+	@Override
+	public String toString() {
+		return "VATRule [" + taxInfo + ", " + productCategory + ", "
+				+ overridingTaxInfo + " -> " + vatClass + "]";
+	}
+
+}
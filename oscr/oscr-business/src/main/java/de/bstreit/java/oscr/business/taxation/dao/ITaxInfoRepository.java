@@ -26,13 +26,19 @@
  */
 package de.bstreit.java.oscr.business.taxation.dao;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import de.bstreit.java.oscr.business.base.persistence.IContinuanceRepository;
 import de.bstreit.java.oscr.business.taxation.TaxInfo;
 
 
-public interface ITaxInfoRepository extends JpaRepository<TaxInfo, Long> {
+public interface ITaxInfoRepository extends JpaRepository<TaxInfo, Long>,
+    IContinuanceRepository<TaxInfo> {
 
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
   public TaxInfo findByDenotationAndValidToIsNull(String denotation);
 
 }
@@ -65,6 +65,17 @@ public class DateFactory {
     return c.getTime();
   }
 
+  /**
+   * @return the given date at 00:00:00.000
+   */
+  public static Date getMidnightOf(Date date) {
+    final Calendar c = Calendar.getInstance();
+    c.setTime(date);
+
+    return getDateWithTimeMidnight(c.get(Calendar.YEAR),
+        c.get(Calendar.MONTH) + 1, c.get(Calendar.DAY_OF_MONTH));
+  }
+
   public static Calendar getCalendarWithTimeMidnight(int year, int month, int day) {
     final Calendar c = Calendar.getInstance();
     c.clear();
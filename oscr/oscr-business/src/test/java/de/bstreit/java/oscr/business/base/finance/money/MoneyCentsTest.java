@@ -0,0 +1,101 @@
+/*
+ * Open Source Cash Register
+ *
+ * Copyright (C) 2013, 2014 Bernhard Streit
+ *
+ * This file is part of the Open Source Cash Register program.
+ *
+ * Open Source Cash Register is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Open Source Cash Register is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * --------------------------------------------------------------------------
+ *
+ * See oscr/licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See oscr/README.txt for more information about the software and the author(s).
+ *
+ */
+package de.bstreit.java.oscr.business.base.finance.money;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+
+public class MoneyCentsTest {
+
+	private static final Currency EUR = Currency.getInstance("EUR");
+
+	private static final String[] VAT_RATES = { "19", "7", "5.5", "0", "16",
+			"2.5" };
+
+	@Test
+	public void testConversionIsExact() {
+		final Money money = new Money("-12.34", "EUR");
+
+		Assert.assertEquals(-1234, MoneyCents.toCents(money));
+		Assert.assertEquals(money,
+				MoneyCents.toMoney(-1234, money.getCurrency()));
+	}
+
+	@Test
+	public void testNetAndVatRoundLikeMoney() {
+		for (final String rate : VAT_RATES) {
+			final VATClass vatClass = new VATClass("VAT " + rate,
+					new BigDecimal(rate), null, null);
+
+			for (long cents = -10000; cents <= 10000; cents++) {
+				final Money gross = new Money(BigDecimal.valueOf(cents, 2), EUR);
+
+				Assert.assertEquals(gross + " at " + rate + "%",
+						MoneyCents.toCents(gross.getNet(vatClass)),
+						MoneyCents.getNet(cents, vatClass));
+				Assert.assertEquals(gross + " at " + rate + "%",
+						MoneyCents.toCents(gross.getVAT(vatClass)),
+						MoneyCents.getVAT(cents, vatClass));
+			}
+		}
+	}
+
+	@Test
+	public void testMultiplyRoundsLikeMoney() {
+		final BigDecimal eightyPercent = new BigDecimal("0.8");
+
+		for (long cents = -1000; cents <= 1000; cents++) {
+			final Money money = new Money(BigDecimal.valueOf(cents, 2), EUR);
+
+			Assert.assertEquals(MoneyCents.toCents(money.multiply(eightyPercent)),
+					MoneyCents.multiply(cents, eightyPercent));
+		}
+	}
+
+	@Test
+	public void testAccumulator() {
+		final MoneyAccumulator sum = new MoneyAccumulator(EUR);
+
+		sum.add(new Money("1.10", "EUR")).add(new Money("2.25", "EUR"))
+				.addCents(-35);
+
+		Assert.assertEquals(new Money("3.00", "EUR"), sum.toMoney());
+	}
+
+	@Test(expected = DifferentCurrenciesException.class)
+	public void testAccumulator_differentCurrencies() {
+		final MoneyAccumulator sum = new MoneyAccumulator(EUR);
+
+		sum.add(new Money("1", "USD"));
+	}
+
+}
@@ -0,0 +1,51 @@
+package de.bstreit.java.oscr.business.base.finance.tax;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.tax.NetAndVATCache.NetAndVAT;
+
+public class NetAndVATCacheTest {
+
+	private final NetAndVATCache cache = new NetAndVATCache();
+
+	private final VATClass normalTax = new VATClass("normal", new BigDecimal(
+			"19"), null, null);
+
+	@Test
+	public void testSameResultAsMoney() {
+		// INIT
+		final Money gross = new Money("2.50", "EUR");
+
+		// RUN
+		final NetAndVAT netAndVAT = cache.get(gross, normalTax);
+
+		// ASSERT
+		Assert.assertEquals(gross.getNet(normalTax), netAndVAT.getNet());
+		Assert.assertEquals(gross.getVAT(normalTax), netAndVAT.getVAT());
+		Assert.assertSame(netAndVAT, cache.get(new Money("2.5", "EUR"), normalTax));
+	}
+
+	@Test
+	public void testNewVersionOfVATClass() {
+		// INIT
+		final Money gross = new Money("2.50", "EUR");
+		final NetAndVAT oldNetAndVAT = cache.get(gross, normalTax);
+
+		final VATClass newVersion = new VATClass("normal", new BigDecimal("16"),
+				new Date(), null);
+
+		// RUN
+		final NetAndVAT newNetAndVAT = cache.get(gross, newVersion);
+
+		// ASSERT
+		Assert.assertEquals(gross.getNet(newVersion), newNetAndVAT.getNet());
+		Assert.assertNotSame(oldNetAndVAT, newNetAndVAT);
+		Assert.assertSame(oldNetAndVAT, cache.get(gross, normalTax));
+	}
+
+}
@@ -0,0 +1,90 @@
+package de.bstreit.java.oscr.business.base.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import de.bstreit.java.oscr.business.taxation.TaxInfo;
+
+
+public class ContinuanceIndexTest {
+
+	private final ContinuanceIndex<String, TaxInfo> index = new ContinuanceIndex<String, TaxInfo>(
+			TaxInfo::getDenotation);
+
+	private final TaxInfo inHouseUntil10 = new TaxInfo("in house", null,
+			new Date(10));
+	private final TaxInfo inHouseFrom10To20 = new TaxInfo("in house", new Date(
+			10), new Date(20));
+	private final TaxInfo inHouseFrom30 = new TaxInfo("in house", new Date(30),
+			null);
+	private final TaxInfo toGo = new TaxInfo("to go", new Date(5), null);
+
+
+	@Test
+	public void testGetAsOf() throws Exception {
+		// INIT
+		index.put(inHouseFrom30);
+		index.put(inHouseUntil10);
+		index.put(inHouseFrom10To20);
+		index.put(toGo);
+
+		// RUN + ASSERT
+		assertEquals(inHouseUntil10, index.getAsOf("in house", new Date(1)));
+		assertEquals(inHouseFrom10To20, index.getAsOf("in house", new Date(15)));
+		assertNull(index.getAsOf("in house", new Date(25)));
+		assertEquals(inHouseFrom30, index.getAsOf("in house", new Date(1000)));
+		assertNull(index.getAsOf("to go", new Date(1)));
+		assertNull(index.getAsOf("take away", new Date(15)));
+	}
+
+	@Test
+	public void testGetOverlapping() throws Exception {
+		// INIT
+		index.put(inHouseUntil10);
+		index.put(inHouseFrom10To20);
+		index.put(inHouseFrom30);
+
+		// RUN
+		final List<TaxInfo> overlapping = index.getOverlapping("in house",
+				new Date(15), new Date(35));
+
+		// ASSERT
+		assertEquals(ImmutableList.of(inHouseFrom10To20, inHouseFrom30),
+				overlapping);
+		assertEquals(ImmutableList.of(),
+				index.getOverlapping("in house", new Date(22), new Date(28)));
+	}
+
+	@Test
+	public void testRefreshReadsChangesSinceLastRefresh() throws Exception {
+		// INIT
+		final List<Object[]> arguments = Lists.newArrayList();
+		final IContinuanceRepository<TaxInfo> repository = (id, date) -> {
+			arguments.add(new Object[] { id, date });
+			return arguments.size() == 1 ? ImmutableList.of(inHouseUntil10)
+					: ImmutableList.of(inHouseFrom10To20);
+		};
+
+		// RUN
+		index.refresh(repository);
+		final Date beforeSecondRefresh = new Date();
+		index.refresh(repository);
+
+		// ASSERT
+		assertEquals(-1L, arguments.get(0)[0]);
+		assertEquals(
+				beforeSecondRefresh.getTime()
+						- ContinuanceIndex.REFRESH_OVERLAP_MS,
+				((Date) arguments.get(1)[1]).getTime(), 1000);
+		assertEquals(inHouseFrom10To20, index.getAsOf("in house", new Date(15)));
+	}
+
+}
@@ -0,0 +1,107 @@
+package de.bstreit.java.oscr.business.base.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class SchedulerServiceTest {
+
+	private final SchedulerService schedulerService = new SchedulerService();
+
+	private final AtomicInteger runs = new AtomicInteger();
+
+
+	@Before
+	public void setUp() {
+		schedulerService.init();
+	}
+
+	@After
+	public void tearDown() {
+		schedulerService.shutdown();
+	}
+
+	@Test
+	public void testTriggersWithinQuietPeriodRunOnce() throws Exception {
+		// INIT
+		final CountDownLatch ran = new CountDownLatch(1);
+		final ScheduledJob job = schedulerService.scheduleOnTrigger("export",
+				() -> {
+					runs.incrementAndGet();
+					ran.countDown();
+				}, 200, 10_000, TimeUnit.MILLISECONDS);
+
+		// RUN
+		for (int i = 0; i < 5; i++) {
+			job.trigger();
+		}
+
+		// ASSERT - shutting down would serve a trigger still pending
+		assertTrue(ran.await(5, TimeUnit.SECONDS));
+		schedulerService.shutdown();
+		assertEquals(1, runs.get());
+		assertEquals(1, job.getMetrics().getRuns());
+	}
+
+	@Test
+	public void testContinuousTriggersRunAfterMaxDelay() throws Exception {
+		// INIT
+		// the quiet period never passes within the test, only the max delay
+		final CountDownLatch ran = new CountDownLatch(1);
+		final ScheduledJob job = schedulerService.scheduleOnTrigger("export",
+				ran::countDown, TimeUnit.HOURS.toMillis(1), 300,
+				TimeUnit.MILLISECONDS);
+
+		// RUN - each trigger postpones the run by the quiet period
+		for (int i = 0; i < 100 && !ran.await(50, TimeUnit.MILLISECONDS); i++) {
+			job.trigger();
+		}
+
+		// ASSERT
+		assertEquals(0, ran.getCount());
+	}
+
+	@Test
+	public void testShutdownServesPendingTrigger() throws Exception {
+		// INIT
+		final ScheduledJob job = schedulerService.scheduleOnTrigger("export",
+				runs::incrementAndGet, 1, 1, TimeUnit.HOURS);
+		job.trigger();
+
+		// RUN
+		schedulerService.shutdown();
+
+		// ASSERT
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void testFailingRunIsCountedAndJobGoesOn() throws Exception {
+		// RUN
+		final ScheduledJob job = schedulerService.scheduleWithFixedDelay(
+				"failing", () -> {
+					throw new IllegalStateException("failed on purpose");
+				}, 0, 10, TimeUnit.MILLISECONDS);
+
+		final long start = System.currentTimeMillis();
+		while (job.getMetrics().getRuns() < 3
+				&& System.currentTimeMillis() - start < 5_000) {
+			Thread.sleep(10);
+		}
+		job.cancel();
+
+		// ASSERT
+		assertTrue(job.getMetrics().getRuns() >= 3);
+		assertEquals(job.getMetrics().getRuns(), job.getMetrics()
+				.getFailures());
+	}
+
+}
@@ -0,0 +1,101 @@
+package de.bstreit.java.oscr.business.bill;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.bill.BillDelta.Kind;
+import de.bstreit.java.oscr.business.offers.ExtraOffer;
+import de.bstreit.java.oscr.business.offers.ProductOffer;
+import de.bstreit.java.oscr.business.taxation.TaxInfo;
+
+
+public class BillDeltaTest {
+
+  private final Bill bill = new Bill(new TaxInfo("in house", new Date(), null),
+      new Date());
+
+  private final BillItem coffee = new BillItem(new ProductOffer(null,
+      new Money("2.50", "EUR"), null, null, null));
+
+  private final ExtraOffer extraShot = new ExtraOffer(null, new Money("0.40",
+      "EUR"), null, null, null);
+
+
+  @Test
+  public void testAddedItemChangesByItsPrice() throws Exception {
+    // RUN
+    final BillItem before = BillDelta.copyOf(bill, coffee);
+    bill.apply(BillEvent.productOfferAdded(coffee));
+    final BillDelta delta = BillDelta.of(Kind.ITEM_ADDED, bill, coffee,
+        before);
+
+    // ASSERT
+    assertEquals(coffee, delta.getBillItem());
+    assertEquals(new Money("2.50", "EUR"), delta.getGrossChange());
+    assertTrue(delta.changesTotals());
+  }
+
+  @Test
+  public void testAddedOfferChangesByOfferPrice() throws Exception {
+    // INIT
+    bill.apply(BillEvent.productOfferAdded(coffee));
+
+    // RUN
+    final BillItem before = BillDelta.copyOf(bill, coffee);
+    bill.apply(BillEvent.extraOfferAdded(coffee, extraShot));
+    final BillDelta delta = BillDelta.of(Kind.OFFER_ADDED, bill, coffee,
+        before);
+
+    // ASSERT
+    assertEquals(new Money("0.40", "EUR"), delta.getGrossChange());
+  }
+
+  @Test
+  public void testUndoneItemChangesByMinusItsPrice() throws Exception {
+    // INIT
+    bill.apply(BillEvent.productOfferAdded(coffee));
+
+    // RUN
+    final BillItem before = BillDelta.copyOf(bill, coffee);
+    bill.undoLastAction();
+    final BillDelta delta = BillDelta.of(Kind.UNDONE, bill, coffee, before);
+
+    // ASSERT
+    assertEquals(new Money("-2.50", "EUR"), delta.getGrossChange());
+  }
+
+  @Test
+  public void testLaterChangesDoNotAffectTheDelta() throws Exception {
+    // INIT
+    final BillItem before = BillDelta.copyOf(bill, coffee);
+    bill.apply(BillEvent.productOfferAdded(coffee));
+    final BillDelta delta = BillDelta.of(Kind.ITEM_ADDED, bill, coffee,
+        before);
+
+    // RUN - before the price change is asked for
+    bill.apply(BillEvent.extraOfferAdded(coffee, extraShot));
+
+    // ASSERT
+    assertEquals(new Money("2.50", "EUR"), delta.getGrossChange());
+  }
+
+  @Test
+  public void testSelectingBillChangesNothing() throws Exception {
+    // RUN
+    final BillDelta delta = BillDelta.of(Kind.BILL_SELECTED, bill);
+
+    // ASSERT
+    assertEquals(bill, delta.getBill());
+    assertNull(delta.getBillItem());
+    assertNull(delta.getGrossChange());
+    assertFalse(delta.changesTotals());
+  }
+
+}
@@ -0,0 +1,153 @@
+package de.bstreit.java.oscr.business.bill;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+
+import de.bstreit.java.oscr.business.bill.dao.IBillRepository;
+import de.bstreit.java.oscr.business.bill.journal.BillJournal;
+import de.bstreit.java.oscr.business.bill.journal.JournalRecord;
+import de.bstreit.java.oscr.business.bill.journal.Operation;
+import de.bstreit.java.oscr.business.offers.ProductOffer;
+import de.bstreit.java.oscr.business.offers.dao.IProductOfferRepository;
+import de.bstreit.java.oscr.business.staff.User;
+import de.bstreit.java.oscr.business.staff.dao.IUserRepository;
+import de.bstreit.java.oscr.business.taxation.TaxInfo;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BillJournalReplayerTest {
+
+	private static final String BILL_ID = UUID.randomUUID().toString();
+
+	private static final long ESPRESSO_ID = 7;
+
+	private static final long CONSUMER_ID = 11;
+
+	private final TaxInfo inHouse = new TaxInfo("in house", new Date(), null);
+
+	private final ProductOffer espresso = new ProductOffer(null, null, null,
+			null, null);
+
+	private final User consumer = new User("staff", "Staff");
+
+	@Mock
+	private BillJournal billJournal;
+
+	@Mock
+	private IBillRepository billRepository;
+
+	@Mock
+	private IProductOfferRepository productOfferRepository;
+
+	@Mock
+	private IUserRepository userRepository;
+
+	@InjectMocks
+	private BillJournalReplayer billJournalReplayer;
+
+
+	@Test
+	public void testChangesStoredWithTheBillAreNotReplayedAgain() {
+		// INIT
+		final Bill storedBill = new Bill(BILL_ID, inHouse, new Date());
+		storedBill.apply(BillEvent.productOfferAdded(new BillItem(espresso)));
+		storedBill.setJournalSequence(2);
+
+		// the bill was saved up to the second change, but not confirmed
+		final List<JournalRecord> records = ImmutableList.of(
+				record(1, Operation.BILL_OPENED, 0),
+				record(2, Operation.PRODUCT_OFFER_ADDED, ESPRESSO_ID),
+				record(3, Operation.PRODUCT_OFFER_ADDED, ESPRESSO_ID));
+
+		when(billJournal.getUnconfirmedRecords()).thenReturn(
+				ImmutableList.of(records));
+		when(billRepository.findOne(BILL_ID)).thenReturn(storedBill);
+		when(productOfferRepository.findOne(ESPRESSO_ID)).thenReturn(espresso);
+
+		// RUN
+		billJournalReplayer.replay();
+
+		// ASSERT
+		assertEquals(2, storedBill.getBillItems().size());
+		assertEquals(3, storedBill.getJournalSequence());
+		verify(billRepository).save(storedBill);
+		verify(billJournal).confirm(BILL_ID, 3);
+	}
+
+	@Test
+	public void testUndoOfConfirmedFieldChange() {
+		// INIT
+		final Bill storedBill = storedBillConsumedByStaff();
+
+		// undoing the staff consumer is recorded as clearing it
+		final List<JournalRecord> records = ImmutableList.of(record(3,
+				Operation.STAFF_CONSUMER_CLEARED, 0));
+
+		when(billJournal.getUnconfirmedRecords()).thenReturn(
+				ImmutableList.of(records));
+		when(billRepository.findOne(BILL_ID)).thenReturn(storedBill);
+
+		// RUN
+		billJournalReplayer.replay();
+
+		// ASSERT - the bill item stays, unlike with undoing by position
+		assertNull(storedBill.getStaffConsumer());
+		assertEquals(1, storedBill.getBillItems().size());
+		verify(billRepository).save(storedBill);
+	}
+
+	@Test
+	public void testRedoAfterUndoOfConfirmedFieldChange() {
+		// INIT
+		final Bill storedBill = storedBillConsumedByStaff();
+
+		final List<JournalRecord> records = ImmutableList.of(
+				record(3, Operation.STAFF_CONSUMER_CLEARED, 0),
+				record(4, Operation.STAFF_CONSUMER_SET, CONSUMER_ID));
+
+		when(billJournal.getUnconfirmedRecords()).thenReturn(
+				ImmutableList.of(records));
+		when(billRepository.findOne(BILL_ID)).thenReturn(storedBill);
+		when(userRepository.findOne(CONSUMER_ID)).thenReturn(consumer);
+
+		// RUN
+		billJournalReplayer.replay();
+
+		// ASSERT
+		assertEquals(consumer, storedBill.getStaffConsumer());
+		assertEquals(1, storedBill.getBillItems().size());
+		assertEquals(4, storedBill.getJournalSequence());
+	}
+
+	/**
+	 * @return a bill with one bill item, consumed by staff - all changes up to
+	 *         the second one are saved and confirmed
+	 */
+	private Bill storedBillConsumedByStaff() {
+		final Bill storedBill = new Bill(BILL_ID, inHouse, new Date());
+		storedBill.apply(BillEvent.productOfferAdded(new BillItem(espresso)));
+		storedBill.apply(BillEvent.staffConsumerSet(consumer));
+		storedBill.setJournalSequence(2);
+
+		return storedBill;
+	}
+
+	private static JournalRecord record(long sequence, Operation operation,
+			long entityId) {
+		return new JournalRecord(sequence, operation, BILL_ID, entityId, 0);
+	}
+
+}
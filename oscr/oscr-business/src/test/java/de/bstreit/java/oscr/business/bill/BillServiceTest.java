@@ -55,7 +55,7 @@ public class BillServiceTest {
     final ArgumentCaptor<Date> toCaptor = ArgumentCaptor.forClass(Date.class);
 
     verify(billRepository)
-        .getBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
+        .fetchBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
 
     Date from = fromCaptor.getValue();
     Date to = toCaptor.getValue();
@@ -78,7 +78,7 @@ public class BillServiceTest {
     final ArgumentCaptor<Date> toCaptor = ArgumentCaptor.forClass(Date.class);
 
     verify(billRepository)
-        .getBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
+        .fetchBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
 
     Date from = fromCaptor.getValue();
     Date to = toCaptor.getValue();
@@ -102,7 +102,7 @@ public class BillServiceTest {
     final ArgumentCaptor<Date> toCaptor = ArgumentCaptor.forClass(Date.class);
 
     verify(billRepository)
-        .getBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
+        .fetchBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
 
     Date from = fromCaptor.getValue();
     Date to = toCaptor.getValue();
@@ -126,7 +126,7 @@ public class BillServiceTest {
     final ArgumentCaptor<Date> toCaptor = ArgumentCaptor.forClass(Date.class);
 
     verify(billRepository)
-        .getBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
+        .fetchBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
 
     Date from = fromCaptor.getValue();
     Date to = toCaptor.getValue();
@@ -150,7 +150,7 @@ public class BillServiceTest {
     final ArgumentCaptor<Date> toCaptor = ArgumentCaptor.forClass(Date.class);
 
     verify(billRepository)
-        .getBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
+        .fetchBillsForDayWithoutStaff(fromCaptor.capture(), toCaptor.capture());
 
     Date from = fromCaptor.getValue();
     Date to = toCaptor.getValue();
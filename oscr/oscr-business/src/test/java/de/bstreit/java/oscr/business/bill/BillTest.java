@@ -0,0 +1,113 @@
+package de.bstreit.java.oscr.business.bill;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import de.bstreit.java.oscr.business.bill.journal.Operation;
+import de.bstreit.java.oscr.business.offers.ExtraOffer;
+import de.bstreit.java.oscr.business.offers.ProductOffer;
+import de.bstreit.java.oscr.business.staff.User;
+import de.bstreit.java.oscr.business.taxation.TaxInfo;
+
+
+public class BillTest {
+
+  private final TaxInfo inHouse = new TaxInfo("in house", new Date(), null);
+  private final TaxInfo toGo = new TaxInfo("to go", new Date(), null);
+
+
+  @Test
+  public void testUndoRevertsLastEvent() throws Exception {
+    // INIT
+    final Bill bill = new Bill(inHouse, new Date());
+    final BillItem billItem = new BillItem(new ProductOffer(null, null, null,
+        null, null));
+
+    bill.apply(BillEvent.productOfferAdded(billItem));
+    bill.apply(BillEvent.extraOfferAdded(billItem, new ExtraOffer(null, null,
+        null, null, null)));
+    bill.apply(BillEvent.freePromotionOfferSet(true));
+
+    // RUN
+    bill.undoLastAction();
+
+    // ASSERT - the promotion was the last action, not the extra offer
+    assertFalse(bill.isFreePromotionOffer());
+    assertEquals(1, billItem.getExtraAndVariationOffers().size());
+    assertEquals(2, bill.getEvents().size());
+  }
+
+  @Test
+  public void testRevertIsRecordedAsTheChangeItMakes() throws Exception {
+    // INIT
+    final Bill bill = new Bill(inHouse, new Date());
+    final User consumer = new User("staff", "Staff");
+
+    // RUN
+    bill.apply(BillEvent.productOfferAdded(new BillItem(new ProductOffer(null,
+        null, null, null, null))));
+    final BillEvent billItemAdded = bill.getLastEvent();
+    bill.apply(BillEvent.staffConsumerSet(consumer));
+    final BillEvent consumerSet = bill.getLastEvent();
+    bill.apply(BillEvent.globalTaxInfoSet(toGo));
+    final BillEvent taxInfoSet = bill.getLastEvent();
+
+    // ASSERT
+    assertEquals(Operation.LAST_BILL_ITEM_REMOVED,
+        billItemAdded.getRevertOperation());
+    assertEquals(Operation.STAFF_CONSUMER_CLEARED,
+        consumerSet.getRevertOperation());
+    assertNull(consumerSet.getRevertEntity());
+    assertEquals(Operation.GLOBAL_TAX_INFO_SET,
+        taxInfoSet.getRevertOperation());
+    assertEquals(inHouse, taxInfoSet.getRevertEntity());
+  }
+
+  @Test
+  public void testRedoAppliesUndoneEventsAgain() throws Exception {
+    // INIT
+    final Bill bill = new Bill(inHouse, new Date());
+    bill.apply(BillEvent.productOfferAdded(new BillItem(new ProductOffer(null,
+        null, null, null, null))));
+    bill.apply(BillEvent.globalTaxInfoSet(toGo));
+
+    bill.undoLastAction();
+    bill.undoLastAction();
+
+    // RUN
+    final boolean redone = bill.redoLastUndoneAction();
+
+    // ASSERT
+    assertTrue(redone);
+    assertEquals(1, bill.getBillItems().size());
+    assertEquals(inHouse, bill.getGlobalTaxInfo());
+
+    assertTrue(bill.redoLastUndoneAction());
+    assertEquals(toGo, bill.getGlobalTaxInfo());
+    assertFalse(bill.redoLastUndoneAction());
+  }
+
+  @Test
+  public void testNewEventDropsUndoneEvents() throws Exception {
+    // INIT
+    final Bill bill = new Bill(inHouse, new Date());
+    bill.apply(BillEvent.productOfferAdded(new BillItem(new ProductOffer(null,
+        null, null, null, null))));
+    bill.apply(BillEvent.twentyPercentOffSet(true));
+    bill.undoLastAction();
+
+    // RUN
+    bill.apply(BillEvent.freePromotionOfferSet(true));
+
+    // ASSERT
+    assertFalse(bill.redoLastUndoneAction());
+    assertFalse(bill.isTwentyPercentOff());
+  }
+
+}
@@ -1,5 +1,20 @@
 package de.bstreit.java.oscr.business.bill.calculator;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -7,18 +22,43 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
+import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillItem;
+import de.bstreit.java.oscr.business.bill.IBillCalculator;
 import de.bstreit.java.oscr.business.bill.IBillCalculatorFactory;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MultipleBillsCalculatorTest {
 
+	private static final Currency EUR = Currency.getInstance("EUR");
+
+	private static final VATClass NORMAL = new VATClass("normal",
+			new BigDecimal("19"), null, null);
+	private static final VATClass REDUCED = new VATClass("reduced",
+			new BigDecimal("7"), null, null);
+
 	@Mock
 	private IBillCalculatorFactory billCalculatorFactory;
 
+	@Mock
+	private ConfigurableApplicationContext context;
+
 	@InjectMocks
 	private MultipleBillsCalculator multipleBillsCalculator;
 
+	@InjectMocks
+	private MultipleBillsCalculatorFactory multipleBillsCalculatorFactory;
+
 	/** Test case for "1 EUR off" etc. */
 	@Ignore
 	@Test
@@ -26,4 +66,287 @@ public class MultipleBillsCalculatorTest {
 		Assert.fail("Not implemented");
 	}
 
+	@Test
+	public void testParallelAnalysisIsIdenticalToSequentialAnalysis() {
+		// INIT
+		final Map<Bill, Map<VATClass, Money[]>> grossAndNetByBill = createBills(
+				10_000, new Random(4711));
+		final Collection<Bill> bills = grossAndNetByBill.keySet();
+
+		when(billCalculatorFactory.create(any(WhatToCount.class))).thenAnswer(
+				invocation -> new FixedTotalsBillCalculator(grossAndNetByBill));
+
+		final MultipleBillsCalculator parallelCalculator = new MultipleBillsCalculator(
+				billCalculatorFactory);
+
+		// RUN
+		multipleBillsCalculator.analyse(bills);
+		parallelCalculator.analyseInParallel(bills, new ForkJoinPool(4));
+
+		// ASSERT
+		assertEquals(multipleBillsCalculator.getTotalGross(),
+				parallelCalculator.getTotalGross());
+		assertEquals(multipleBillsCalculator.getAllVatClasses(),
+				parallelCalculator.getAllVatClasses());
+
+		for (final VATClass vatClass : multipleBillsCalculator
+				.getAllVatClasses()) {
+			assertEquals(multipleBillsCalculator.getTotalGrossFor(vatClass),
+					parallelCalculator.getTotalGrossFor(vatClass));
+			assertEquals(multipleBillsCalculator.getTotalNetFor(vatClass),
+					parallelCalculator.getTotalNetFor(vatClass));
+			assertEquals(multipleBillsCalculator.getTotalVATFor(vatClass),
+					parallelCalculator.getTotalVATFor(vatClass));
+		}
+	}
+
+	@Test
+	public void testAllMeasuresAtOnceAreIdenticalToSeparateRuns() {
+		// INIT
+		final Collection<Bill> bills = createBills(1_000, new Random(4711))
+				.keySet();
+
+		final Map<WhatToCount, Map<Bill, Map<VATClass, Money[]>>> grossAndNetByMeasure = new EnumMap<>(
+				WhatToCount.class);
+		int seed = 0;
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			grossAndNetByMeasure.put(whatToCount,
+					createTotals(bills, new Random(seed++)));
+		}
+
+		when(billCalculatorFactory.create(any(WhatToCount.class))).thenAnswer(
+				invocation -> new FixedTotalsBillCalculator(grossAndNetByMeasure
+						.get(invocation.getArguments()[0])));
+		when(context.getBean(MultipleBillsCalculator.class)).thenAnswer(
+				invocation -> new MultipleBillsCalculator(billCalculatorFactory));
+		when(context.getBean(MultipleBillsTotals.class)).thenAnswer(
+				invocation -> new MultipleBillsTotals(billCalculatorFactory));
+
+		// RUN
+		final IMultipleBillsTotals allMeasures = multipleBillsCalculatorFactory
+				.createForAllMeasures(bills);
+
+		// ASSERT
+		Assert.assertTrue(allMeasures.isFilled());
+
+		for (final WhatToCount whatToCount : WhatToCount.values()) {
+			final IMultipleBillsCalculator separateRun = multipleBillsCalculatorFactory
+					.create(bills, whatToCount);
+			final IMultipleBillsCalculator measure = allMeasures.get(whatToCount);
+
+			assertEquals(separateRun.getNumberOfBills(),
+					measure.getNumberOfBills());
+			assertEquals(separateRun.getTotalGross(), measure.getTotalGross());
+			assertEquals(separateRun.getAllVatClasses(),
+					measure.getAllVatClasses());
+
+			for (final VATClass vatClass : separateRun.getAllVatClasses()) {
+				assertEquals(separateRun.getTotalGrossFor(vatClass),
+						measure.getTotalGrossFor(vatClass));
+				assertEquals(separateRun.getTotalNetFor(vatClass),
+						measure.getTotalNetFor(vatClass));
+				assertEquals(separateRun.getTotalVATFor(vatClass),
+						measure.getTotalVATFor(vatClass));
+			}
+		}
+	}
+
+	@Test
+	public void testParallelAnalysisOfNoBills() {
+		// INIT
+		final List<Bill> noBills = Lists.newArrayList();
+
+		// RUN
+		multipleBillsCalculator.analyseInParallel(noBills, new ForkJoinPool(2));
+
+		// ASSERT
+		Assert.assertFalse(multipleBillsCalculator.isFilled());
+		Assert.assertNull(multipleBillsCalculator.getTotalGross());
+		Assert.assertTrue(multipleBillsCalculator.getAllVatClasses().isEmpty());
+	}
+
+	@Test
+	public void testSubtractedBillsLeaveTotalsOfRemainingBills() {
+		// INIT
+		final Map<Bill, Map<VATClass, Money[]>> grossAndNetByBill = createBills(
+				100, new Random(4711));
+		final FixedTotalsBillCalculator billCalculator = new FixedTotalsBillCalculator(
+				grossAndNetByBill);
+
+		final VatClassTotals allBills = new VatClassTotals();
+		final VatClassTotals remainingBills = new VatClassTotals();
+		final List<VatClassTotals> removedBills = Lists.newArrayList();
+
+		int i = 0;
+		for (final Bill bill : grossAndNetByBill.keySet()) {
+			billCalculator.analyse(bill);
+			allBills.add(billCalculator);
+
+			if (i++ % 3 == 0) {
+				final VatClassTotals removedBill = new VatClassTotals();
+				removedBill.add(billCalculator);
+				removedBills.add(removedBill);
+			} else {
+				remainingBills.add(billCalculator);
+			}
+		}
+
+		// RUN
+		for (final VatClassTotals removedBill : removedBills) {
+			allBills.subtract(removedBill);
+		}
+
+		// ASSERT
+		assertEquals(remainingBills.getNumberOfBills(),
+				allBills.getNumberOfBills());
+		assertEquals(remainingBills.getTotalGross(), allBills.getTotalGross());
+		assertEquals(remainingBills.getAllVatClasses(),
+				allBills.getAllVatClasses());
+
+		for (final VATClass vatClass : remainingBills.getAllVatClasses()) {
+			assertEquals(remainingBills.getTotalGrossFor(vatClass),
+					allBills.getTotalGrossFor(vatClass));
+			assertEquals(remainingBills.getTotalNetFor(vatClass),
+					allBills.getTotalNetFor(vatClass));
+			assertEquals(remainingBills.getTotalVATFor(vatClass),
+					allBills.getTotalVATFor(vatClass));
+		}
+	}
+
+	@Test
+	public void testSubtractingAllBills() {
+		// INIT
+		final Map<Bill, Map<VATClass, Money[]>> grossAndNetByBill = createBills(
+				1, new Random(4711));
+		final FixedTotalsBillCalculator billCalculator = new FixedTotalsBillCalculator(
+				grossAndNetByBill);
+		billCalculator.analyse(grossAndNetByBill.keySet().iterator().next());
+
+		final VatClassTotals totals = new VatClassTotals();
+		totals.add(billCalculator);
+
+		// RUN
+		totals.subtract(totals.copy());
+
+		// ASSERT
+		Assert.assertNull(totals.getTotalGross());
+		Assert.assertTrue(totals.getAllVatClasses().isEmpty());
+	}
+
+	/**
+	 * @return random gross and net values for one or two VAT classes for each
+	 *         bill
+	 */
+	private Map<Bill, Map<VATClass, Money[]>> createBills(int numberOfBills,
+			Random random) {
+
+		final List<Bill> bills = Lists.newArrayList();
+		for (int i = 0; i < numberOfBills; i++) {
+			bills.add(new Bill());
+		}
+
+		return createTotals(bills, random);
+	}
+
+	/**
+	 * @return random gross and net values for one or two VAT classes for each
+	 *         of the given bills
+	 */
+	private Map<Bill, Map<VATClass, Money[]>> createTotals(
+			Collection<Bill> bills, Random random) {
+
+		final Map<Bill, Map<VATClass, Money[]>> grossAndNetByBill = Maps
+				.newLinkedHashMap();
+
+		for (final Bill bill : bills) {
+			final Map<VATClass, Money[]> grossAndNet = Maps.newLinkedHashMap();
+
+			grossAndNet.put(NORMAL, randomGrossAndNet(random, NORMAL));
+			if (random.nextBoolean()) {
+				grossAndNet.put(REDUCED, randomGrossAndNet(random, REDUCED));
+			}
+
+			grossAndNetByBill.put(bill, grossAndNet);
+		}
+
+		return grossAndNetByBill;
+	}
+
+	private Money[] randomGrossAndNet(Random random, VATClass vatClass) {
+		final Money gross = new Money(BigDecimal.valueOf(
+				random.nextInt(5_000) - 500, 2), EUR);
+
+		return new Money[] { gross, gross.getNet(vatClass) };
+	}
+
+	/**
+	 * Returns the predefined values of the bill analysed last.
+	 */
+	private static class FixedTotalsBillCalculator implements IBillCalculator {
+
+		private final Map<Bill, Map<VATClass, Money[]>> grossAndNetByBill;
+
+		private Map<VATClass, Money[]> current;
+
+		FixedTotalsBillCalculator(
+				Map<Bill, Map<VATClass, Money[]>> grossAndNetByBill) {
+			this.grossAndNetByBill = new IdentityHashMap<>(grossAndNetByBill);
+		}
+
+		@Override
+		public void analyse(Bill bill) {
+			current = grossAndNetByBill.get(bill);
+		}
+
+		@Override
+		public Money getTotalGross() {
+			Money total = new Money("0", EUR);
+			for (final Money[] grossAndNet : current.values()) {
+				total = total.add(grossAndNet[0]);
+			}
+			return total;
+		}
+
+		@Override
+		public Money getTotalNetFor(VATClass vatClass) {
+			return current.get(vatClass)[1];
+		}
+
+		@Override
+		public Money getTotalGrossFor(VATClass vatClass) {
+			return current.get(vatClass)[0];
+		}
+
+		@Override
+		public Money getTotalVATFor(VATClass vatClass) {
+			return getTotalGrossFor(vatClass).subtract(getTotalNetFor(vatClass));
+		}
+
+		@Override
+		public Money getNetFor(BillItem billItem) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getVATClassAbbreviationFor(BillItem billItem) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public VATClass getVATClassForAbbreviation(Character abbreviation) {
+			return abbreviation == 'A' ? NORMAL : REDUCED;
+		}
+
+		@Override
+		public SortedSet<Character> allFoundVATClassesAbbreviated() {
+			return current.size() == 1 ? Sets.newTreeSet(Lists.newArrayList('A'))
+					: Sets.newTreeSet(Lists.newArrayList('A', 'B'));
+		}
+
+		@Override
+		public void close() {
+			current = null;
+		}
+	}
+
 }
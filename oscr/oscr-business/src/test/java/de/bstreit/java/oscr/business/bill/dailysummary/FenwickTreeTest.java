@@ -0,0 +1,55 @@
+package de.bstreit.java.oscr.business.bill.dailysummary;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FenwickTreeTest {
+
+	@Test
+	public void testRangeSumsMatchPlainSums() {
+		// INIT
+		final Random random = new Random(42);
+		final long[] values = new long[100];
+		final FenwickTree tree = new FenwickTree(8);
+
+		// RUN
+		for (int i = 0; i < 500; i++) {
+			final int index = random.nextInt(values.length);
+			values[index] = random.nextInt(20000) - 10000;
+			tree.set(index, values[index]);
+		}
+
+		// ASSERT
+		for (int from = 0; from <= values.length; from++) {
+			for (int to = from; to <= values.length; to++) {
+				long expected = 0;
+				for (int i = from; i < to; i++) {
+					expected += values[i];
+				}
+				Assert.assertEquals(expected, tree.sum(from, to));
+			}
+		}
+	}
+
+	@Test
+	public void testPrependShiftsValues() {
+		// INIT
+		final FenwickTree tree = new FenwickTree(3);
+		tree.set(0, 5);
+		tree.set(2, 7);
+
+		// RUN
+		tree.prepend(4);
+		tree.set(1, 3);
+
+		// ASSERT
+		Assert.assertEquals(5, tree.get(4));
+		Assert.assertEquals(7, tree.get(6));
+		Assert.assertEquals(15, tree.sum(0, 7));
+		Assert.assertEquals(12, tree.sum(4, 10));
+		Assert.assertEquals(3, tree.sum(0, 4));
+	}
+
+}
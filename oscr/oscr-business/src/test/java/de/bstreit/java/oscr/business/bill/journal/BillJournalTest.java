@@ -0,0 +1,118 @@
+package de.bstreit.java.oscr.business.bill.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BillJournalTest {
+
+	private static final String BILL_1 = UUID.randomUUID().toString();
+	private static final String BILL_2 = UUID.randomUUID().toString();
+
+	private File directory;
+
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("billjournal").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (final File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testUnconfirmedChangesAreRecovered() throws IOException {
+		// INIT
+		final BillJournal journal = open();
+		journal.append(Operation.BILL_OPENED, BILL_1, 3, 1000);
+		final long addedSequence = journal.append(Operation.PRODUCT_OFFER_ADDED,
+				BILL_1, 7, 0);
+		journal.append(Operation.BILL_OPENED, BILL_2, 3, 2000);
+		journal.confirm(BILL_1, addedSequence);
+		journal.append(Operation.FREE_PROMOTION_SET, BILL_1, 0, 0);
+		journal.close();
+
+		// RUN
+		final Collection<List<JournalRecord>> recovered = open()
+				.getUnconfirmedRecords();
+
+		// ASSERT
+		Assert.assertEquals(2, recovered.size());
+		for (final List<JournalRecord> records : recovered) {
+			Assert.assertEquals(1, records.size());
+
+			final JournalRecord record = records.get(0);
+			if (record.getBillId().equals(BILL_1)) {
+				Assert.assertEquals(Operation.FREE_PROMOTION_SET,
+						record.getOperation());
+			} else {
+				Assert.assertEquals(Operation.BILL_OPENED, record.getOperation());
+				Assert.assertEquals(3, record.getEntityId());
+				Assert.assertEquals(2000, record.getTime());
+			}
+		}
+	}
+
+	@Test
+	public void testConfirmedSegmentsAreRemoved() throws IOException {
+		// INIT
+		final BillJournal journal = open();
+		final int recordsPerSegment = BillJournal.SEGMENT_SIZE
+				/ JournalRecord.SIZE;
+
+		// RUN
+		long sequence = 0;
+		for (int i = 0; i < 3 * recordsPerSegment; i++) {
+			sequence = journal.append(Operation.PRODUCT_OFFER_ADDED, BILL_1, i, 0);
+		}
+		final int segmentsBeforeConfirm = directory.listFiles().length;
+		journal.confirm(BILL_1, sequence);
+		journal.close();
+
+		// ASSERT
+		Assert.assertTrue(segmentsBeforeConfirm >= 3);
+		Assert.assertEquals(1, directory.listFiles().length);
+		Assert.assertTrue(open().getUnconfirmedRecords().isEmpty());
+	}
+
+	@Test
+	public void testSequenceNumbersContinueAfterAllChangesWereConfirmed()
+			throws IOException {
+		// INIT
+		final BillJournal journal = open();
+		final long sequence = journal.append(Operation.BILL_OPENED, BILL_1, 3,
+				1000);
+		journal.confirm(BILL_1, sequence);
+		journal.close();
+
+		// only the empty segment created last is left after the next start
+		open().close();
+
+		// RUN
+		final long nextSequence = open().append(Operation.BILL_OPENED, BILL_2, 3,
+				2000);
+
+		// ASSERT
+		Assert.assertTrue(nextSequence > sequence);
+	}
+
+	private BillJournal open() throws IOException {
+		final BillJournal journal = new BillJournal();
+		journal.open(directory);
+		return journal;
+	}
+
+}
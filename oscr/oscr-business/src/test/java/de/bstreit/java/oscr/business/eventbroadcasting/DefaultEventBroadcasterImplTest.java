@@ -0,0 +1,218 @@
+package de.bstreit.java.oscr.business.eventbroadcasting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.bill.BillDelta;
+import de.bstreit.java.oscr.business.bill.BillDelta.Kind;
+
+
+public class DefaultEventBroadcasterImplTest {
+
+	private final DefaultEventBroadcasterImpl eventBroadcaster = new DefaultEventBroadcasterImpl();
+
+	private final Bill bill = new Bill();
+
+	private final Bill otherBill = new Bill();
+
+
+	@After
+	public void tearDown() {
+		eventBroadcaster.close();
+	}
+
+	@Test
+	public void testUpdatesOfTheSameBillAreCoalesced() throws Exception {
+		// INIT
+		eventBroadcaster.init();
+
+		final CountDownLatch firstDelivery = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch allDelivered = new CountDownLatch(3);
+		final List<Bill> deliveredBills = Lists.newCopyOnWriteArrayList();
+
+		eventBroadcaster.addBillChangeListener(newBill -> {
+			deliveredBills.add(newBill.orNull());
+			firstDelivery.countDown();
+			await(release);
+			allDelivered.countDown();
+		});
+
+		eventBroadcaster.notifyBillUpdated(null, bill);
+		await(firstDelivery);
+
+		// RUN - while the listener is busy
+		eventBroadcaster.notifyBillUpdated(null, bill);
+		eventBroadcaster.notifyBillUpdated(null, bill);
+		eventBroadcaster.notifyBillUpdated(null, otherBill);
+		eventBroadcaster.notifyBillUpdated(null, otherBill);
+		release.countDown();
+
+		// ASSERT
+		assertTrue(allDelivered.await(5, TimeUnit.SECONDS));
+		assertEquals(Lists.newArrayList(bill, bill, otherBill), deliveredBills);
+	}
+
+	@Test
+	public void testDeltasAreNotCoalesced() throws Exception {
+		// INIT
+		eventBroadcaster.init();
+
+		final BillDelta selected = BillDelta.of(Kind.BILL_SELECTED, bill);
+		final BillDelta closed = BillDelta.of(Kind.BILL_CLOSED, bill);
+		final BillDelta last = BillDelta.of(Kind.BILL_SELECTED, otherBill);
+
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch allDelivered = new CountDownLatch(1);
+		final List<Object> delivered = Lists.newCopyOnWriteArrayList();
+
+		eventBroadcaster.addBillChangeListener(new BillChangeListener() {
+
+			@Override
+			public void billUpdated(Optional<Bill> newBill) {
+				delivered.add(newBill.orNull());
+			}
+
+			@Override
+			public void billChanged(BillDelta delta) {
+				await(release);
+				delivered.add(delta);
+
+				if (delta == last) {
+					allDelivered.countDown();
+				}
+			}
+		});
+
+		// RUN - the first delta blocks the listener
+		eventBroadcaster.notifyBillChanged(null, selected);
+		eventBroadcaster.notifyBillUpdated(null, bill);
+		eventBroadcaster.notifyBillChanged(null, closed);
+		eventBroadcaster.notifyBillUpdated(null, bill);
+		release.countDown();
+
+		// delivered after everything sent before, in order
+		eventBroadcaster.notifyBillChanged(null, last);
+
+		// ASSERT
+		assertTrue(allDelivered.await(5, TimeUnit.SECONDS));
+		assertEquals(Lists.newArrayList(selected, closed, bill, last), delivered);
+	}
+
+	@Test
+	public void testSynchronousListenerIsNotifiedInCallersThread()
+			throws Exception {
+		// INIT
+		eventBroadcaster.init();
+
+		final List<Thread> threads = Lists.newArrayList();
+		eventBroadcaster.addBillChangeListener(
+				newBill -> threads.add(Thread.currentThread()),
+				Delivery.SYNCHRONOUS);
+
+		// RUN
+		eventBroadcaster.notifyBillUpdated(null, bill);
+
+		// ASSERT
+		assertEquals(Lists.newArrayList(Thread.currentThread()), threads);
+	}
+
+	@Test
+	public void testSenderIsNotNotified() throws Exception {
+		// INIT
+		eventBroadcaster.init();
+
+		final CountDownLatch delivered = new CountDownLatch(1);
+		final List<Object> notified = Lists.newCopyOnWriteArrayList();
+		final BillChangeListener sender = newBill -> notified.add("sender");
+
+		eventBroadcaster.addBillChangeListener(sender);
+		eventBroadcaster.addBillChangeListener(newBill -> {
+			notified.add("other");
+			delivered.countDown();
+		});
+
+		// RUN
+		eventBroadcaster.notifyBillUpdated(sender, bill);
+
+		// ASSERT
+		assertTrue(delivered.await(5, TimeUnit.SECONDS));
+		assertEquals(Lists.newArrayList("other"), notified);
+	}
+
+	@Test
+	public void testRemovedListenerIsNotNotified() throws Exception {
+		// INIT
+		eventBroadcaster.init();
+
+		final List<Bill> notified = Lists.newArrayList();
+		final ListenerRegistration registration = eventBroadcaster
+				.addBillChangeListener(newBill -> notified.add(newBill.get()),
+						Delivery.SYNCHRONOUS);
+
+		// RUN
+		registration.remove();
+		eventBroadcaster.notifyBillUpdated(null, bill);
+
+		// ASSERT
+		assertTrue(notified.isEmpty());
+		assertEquals(0,
+				eventBroadcaster.getNumberOfListeners(BillChangeListener.class));
+	}
+
+	@Test
+	public void testWeakListenerIsDroppedOnceUnreferenced() throws Exception {
+		// INIT
+		eventBroadcaster.init();
+
+		// not a lambda: a lambda capturing nothing is never collected
+		BillChangeListener listener = new BillChangeListener() {
+
+			@Override
+			public void billUpdated(Optional<Bill> newBill) {
+				// nothing to do
+			}
+		};
+		eventBroadcaster.addWeakBillChangeListener(listener,
+				Delivery.SYNCHRONOUS);
+		eventBroadcaster.addBillChangeListener(newBill -> {
+		}, Delivery.SYNCHRONOUS);
+
+		assertEquals(2,
+				eventBroadcaster.getNumberOfListeners(BillChangeListener.class));
+
+		// RUN
+		listener = null;
+
+		for (int i = 0; i < 50
+				&& eventBroadcaster
+						.getNumberOfListeners(BillChangeListener.class) > 1; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		// ASSERT - the strongly added one is kept
+		assertEquals(1,
+				eventBroadcaster.getNumberOfListeners(BillChangeListener.class));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package de.bstreit.java.oscr.business.offers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.bstreit.java.oscr.business.products.Extra;
+import de.bstreit.java.oscr.business.products.Product;
+import de.bstreit.java.oscr.business.products.category.ProductCategory;
+
+
+public class ActiveOffersTest {
+
+  private final Date past = new Date(1000);
+  private final Date now = new Date(2000);
+  private final Date future = new Date(3000);
+
+  private final ProductCategory coffee = new ProductCategory("coffee");
+  private final ProductCategory cake = new ProductCategory("cake");
+
+
+  @Test
+  public void testOnlyValidOffersOfValidItemsAreActive() throws Exception {
+    // INIT
+    final ProductOffer espresso = productOffer("Espresso", coffee, past, null);
+    final ProductOffer archived = productOffer("Mocca", coffee, past, now);
+    final ProductOffer notYetValid = productOffer("Latte", coffee, future,
+        null);
+    final ExtraOffer extraOfArchivedItem = new ExtraOffer(new Extra("Milk",
+        past, now), null, null, past, null);
+
+    // RUN
+    final ActiveOffers activeOffers = ActiveOffers.of(ImmutableList.of(
+        espresso, archived, notYetValid, extraOfArchivedItem), now);
+
+    // ASSERT
+    assertEquals(ImmutableList.of(espresso), activeOffers.getProductOffers());
+    assertEquals(0, activeOffers.getExtraOffers().size());
+    assertEquals(espresso, activeOffers.getProductOffer("Espresso"));
+    assertNull(activeOffers.getProductOffer("Latte"));
+    assertEquals(future, activeOffers.getNextChange());
+  }
+
+  @Test
+  public void testProductOffersAreOrderedByCategory() throws Exception {
+    // INIT
+    coffee.setOrderNumber(2);
+    cake.setOrderNumber(1);
+
+    final ProductOffer espresso = productOffer("Espresso", coffee, past, null);
+    final ProductOffer americano = productOffer("Americano", coffee, past,
+        null);
+    final ProductOffer cheesecake = productOffer("Cheesecake", cake, past,
+        null);
+
+    // RUN
+    final ActiveOffers activeOffers = ActiveOffers.of(
+        ImmutableList.of(espresso, americano, cheesecake), now);
+
+    // ASSERT
+    assertEquals(ImmutableList.of(cheesecake, americano, espresso),
+        activeOffers.getProductOffers());
+    assertEquals(ImmutableList.of(americano, espresso),
+        activeOffers.getProductOffers(coffee));
+    assertEquals(ImmutableList.of(cheesecake),
+        activeOffers.getProductOffersExcept(coffee));
+    assertNull(activeOffers.getNextChange());
+  }
+
+  private ProductOffer productOffer(String name, ProductCategory category,
+      Date validFrom, Date validTo) {
+    final Product product = new Product(name, past, null);
+    product.setProductCategory(category);
+    return new ProductOffer(product, null, null, validFrom, validTo);
+  }
+
+}
@@ -0,0 +1,91 @@
+package de.bstreit.java.oscr.business.taxation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
+import de.bstreit.java.oscr.business.products.category.ProductCategory;
+
+
+public class CompiledVATRulesTest {
+
+	private final Date start = new Date(1000);
+	private final Date change = new Date(5000);
+
+	private final VATClass normal = new VATClass("normal", new BigDecimal("19"),
+			start, change);
+	private final VATClass normalAfterChange = new VATClass("normal",
+			new BigDecimal("21"), change, null);
+	private final VATClass reduced = new VATClass("reduced",
+			new BigDecimal("7"), start, null);
+
+	private final TaxInfo inHouse = new TaxInfo("inhouse", start, null);
+	private final TaxInfo toGo = new TaxInfo("to go", start, null);
+
+	private final ProductCategory drinks = new ProductCategory("drinks");
+	private final ProductCategory alcohol = new ProductCategory("alcohol");
+
+	private final ImmutableList<VATRule> rules = ImmutableList.of(
+			new VATRule(null, null, null, "normal", start, null),
+			new VATRule("to go", null, null, "reduced", start, null),
+			new VATRule("to go", "alcohol", null, "normal", start, null),
+			new VATRule(null, null, "inhouse", "normal", start, null));
+
+
+	@Test
+	public void testMostSpecificRuleApplies() throws Exception {
+		// INIT
+		final CompiledVATRules compiledRules = CompiledVATRules.compile(rules,
+				ImmutableList.of(normal, normalAfterChange, reduced), new Date(2000));
+
+		// RUN + ASSERT
+		assertEquals(normal, compiledRules.getVATClassFor(inHouse, drinks, null));
+		assertEquals(reduced, compiledRules.getVATClassFor(toGo, drinks, null));
+		assertEquals(reduced, compiledRules.getVATClassFor(toGo, null, null));
+		assertEquals(normal, compiledRules.getVATClassFor(toGo, alcohol, null));
+		assertEquals(normal,
+				compiledRules.getVATClassFor(toGo, drinks, inHouse));
+		assertEquals(reduced, compiledRules.getVATClassFor(toGo,
+				new ProductCategory("unknown"), new TaxInfo("unknown", start, null)));
+	}
+
+	@Test
+	public void testTableIsValidUntilNextChange() throws Exception {
+		// INIT
+		final CompiledVATRules compiledRules = CompiledVATRules.compile(rules,
+				ImmutableList.of(normal, normalAfterChange, reduced), new Date(2000));
+
+		final CompiledVATRules compiledRulesAfterChange = CompiledVATRules
+				.compile(rules, ImmutableList.of(normal, normalAfterChange, reduced),
+						new Date(6000));
+
+		// RUN + ASSERT
+		assertTrue(compiledRules.covers(4999));
+		assertFalse(compiledRules.covers(5000));
+		assertFalse(compiledRules.covers(1000));
+		assertTrue(compiledRulesAfterChange.covers(Long.MAX_VALUE - 1));
+		assertEquals(normalAfterChange,
+				compiledRulesAfterChange.getVATClassFor(inHouse, null, null));
+	}
+
+	@Test
+	public void testNoRules() throws Exception {
+		// RUN
+		final CompiledVATRules compiledRules = CompiledVATRules.compile(
+				ImmutableList.<VATRule> of(), ImmutableList.of(normal), start);
+
+		// ASSERT
+		assertTrue(compiledRules.isEmpty());
+		assertNull(compiledRules.getVATClassFor(inHouse, null, null));
+	}
+
+}
@@ -57,6 +57,16 @@ public class DateFactoryTest {
     assertDate("31.08.2016 00:00:00", c);
   }
 
+  @Test
+  public void testGetMidnightOf() throws Exception {
+    final Calendar cal = Calendar.getInstance();
+    cal.set(2016, 12 - 1, 31, 23, 59, 59);
+
+    Date result = DateFactory.getMidnightOf(cal.getTime());
+
+    assertDate("31.12.2016 00:00:00", result);
+  }
+
   @Test
   public void testGetDateWithTimeMidnight() {
 
@@ -89,6 +89,11 @@ public class JUnitBillCalculatorFactory implements IBillCalculatorFactory {
 		return billCalculator;
 	}
 
+	@Override
+	public IBillCalculator create(WhatToCount whatToCount) {
+		return create(null, whatToCount);
+	}
+
 	public void addVATClassAndTotalNetAndTotalGross(char abbreviation,
 			String string, int i, String totalNet, String totalGross) {
 
@@ -18,6 +18,7 @@ import de.bstreit.java.oscr.business.bill.BillService;
 import de.bstreit.java.oscr.business.bill.IBillProcessor;
 import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
 import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculatorFactory;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
 import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
 import de.bstreit.java.oscr.text.formatting.BillFormatter;
 
@@ -68,10 +69,11 @@ public class BillPrinter implements IAdminBean {
 
     Collection<Bill> bills = billService.getBillsForAllDay(day);
 
-    print("Payment (money that was actually spent)",
-        multipleBillsCalculatorFactory.create(bills, WhatToCount.PAYMENT));
-    print("Promo total", multipleBillsCalculatorFactory.create(bills, WhatToCount.PROMO_TOTAL));
-    print("Total (payments + promo)", multipleBillsCalculatorFactory.create(bills, WhatToCount.TOTAL));
+    IMultipleBillsTotals totals = multipleBillsCalculatorFactory.createForAllMeasures(bills);
+
+    print("Payment (money that was actually spent)", totals.get(WhatToCount.PAYMENT));
+    print("Promo total", totals.get(WhatToCount.PROMO_TOTAL));
+    print("Total (payments + promo)", totals.get(WhatToCount.TOTAL));
   }
 
   private void print(String label, IMultipleBillsCalculator calc) {
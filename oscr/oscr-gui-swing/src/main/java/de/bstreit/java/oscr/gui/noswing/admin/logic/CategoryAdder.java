@@ -5,6 +5,7 @@ import java.util.Scanner;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import de.bstreit.java.oscr.business.base.persistence.cache.ReferenceDataCache;
 import de.bstreit.java.oscr.business.products.category.ProductCategory;
 import de.bstreit.java.oscr.business.products.category.dao.IProductCategoryRepository;
 
@@ -14,6 +15,9 @@ public class CategoryAdder implements IAdminBean {
 	@Inject
 	private IProductCategoryRepository productCategoryRepository;
 
+	@Inject
+	private ReferenceDataCache referenceDataCache;
+
 	private Scanner scanner;
 
 	@Override
@@ -28,6 +32,8 @@ public class CategoryAdder implements IAdminBean {
 		productCategory.setColour(colour);
 
 		productCategoryRepository.save(productCategory);
+
+		referenceDataCache.invalidate();
 	}
 
 	@Override
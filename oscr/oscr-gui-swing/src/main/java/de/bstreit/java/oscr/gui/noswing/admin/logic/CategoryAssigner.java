@@ -7,6 +7,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.transaction.Transactional;
 
+import de.bstreit.java.oscr.business.base.persistence.cache.ReferenceDataCache;
 import de.bstreit.java.oscr.business.products.Product;
 import de.bstreit.java.oscr.business.products.category.ProductCategory;
 import de.bstreit.java.oscr.business.products.category.dao.IProductCategoryRepository;
@@ -23,6 +24,9 @@ public class CategoryAssigner implements IAdminBean {
 	@Inject
 	private IProductCategoryRepository productCategoryRepository;
 
+	@Inject
+	private ReferenceDataCache referenceDataCache;
+
 	private Scanner scanner;
 
 	@Transactional
@@ -50,6 +54,8 @@ public class CategoryAssigner implements IAdminBean {
 			product.setProductCategory(category);
 			productRepository.save(product);
 		}
+
+		referenceDataCache.invalidate();
 	}
 
 	private ToString<Product> getToString() {
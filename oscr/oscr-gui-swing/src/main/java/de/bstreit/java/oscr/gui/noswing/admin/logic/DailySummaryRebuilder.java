@@ -0,0 +1,76 @@
+package de.bstreit.java.oscr.gui.noswing.admin.logic;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Scanner;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.lang3.StringUtils;
+
+import de.bstreit.java.oscr.business.bill.dailysummary.DailySummaryService;
+
+@Named
+public class DailySummaryRebuilder implements IAdminBean {
+
+  @Inject
+  private DailySummaryService dailySummaryService;
+
+  private Scanner scanner;
+
+
+  @Override
+  public void performTask() {
+    System.out.println("From which day (format DD.MM.YYYY)? ");
+    final Date from = readDay();
+    if (from == null) {
+      return;
+    }
+
+    System.out.println("Until which day, inclusive (format DD.MM.YYYY)? (blank for yesterday): ");
+    final Date until = readDay();
+
+    final Date to;
+    if (until == null) {
+      to = new Date();
+    } else {
+      final Calendar dayAfter = Calendar.getInstance();
+      dayAfter.setTime(until);
+      dayAfter.add(Calendar.DAY_OF_MONTH, 1);
+      to = dayAfter.getTime();
+    }
+
+    final int numberOfDays = dailySummaryService.rebuild(from, to);
+
+    System.out.println("Rebuilt daily summaries of " + numberOfDays + " days");
+  }
+
+  private Date readDay() {
+    final String dateAsStr = scanner.nextLine().trim();
+
+    if (StringUtils.isBlank(dateAsStr)) {
+      return null;
+    }
+
+    try {
+      return DateFormat.getInstance().parse(dateAsStr + " 00:00");
+    } catch (ParseException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  @Override
+  public void setScanner(Scanner scanner) {
+    this.scanner = scanner;
+  }
+
+  @Override
+  public String toString() {
+    return "Rebuild daily summaries";
+  }
+
+}
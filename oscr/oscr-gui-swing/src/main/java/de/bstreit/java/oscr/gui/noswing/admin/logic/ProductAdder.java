@@ -11,6 +11,7 @@ import javax.transaction.Transactional;
 import org.apache.commons.lang3.StringUtils;
 
 import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.persistence.cache.ReferenceDataCache;
 import de.bstreit.java.oscr.business.offers.ProductOffer;
 import de.bstreit.java.oscr.business.offers.dao.IProductOfferRepository;
 import de.bstreit.java.oscr.business.products.Product;
@@ -25,6 +26,8 @@ public class ProductAdder implements IAdminBean {
 	private IProductOfferRepository productOfferRepository;
 	@Inject
 	private IProductCategoryRepository productCategoryRepository;
+	@Inject
+	private ReferenceDataCache referenceDataCache;
 
 	private Scanner scanner;
 
@@ -47,6 +50,8 @@ public class ProductAdder implements IAdminBean {
 				costsNet, new Date(), null);
 
 		productOfferRepository.save(productOffer);
+
+		referenceDataCache.invalidate();
 	}
 
 	private Money getPrice(String label, boolean isOptional) {
@@ -1,5 +1,7 @@
 package de.bstreit.java.oscr.gui.noswing.admin.logic;
 
+import java.text.DateFormat;
+import java.text.ParseException;
 import java.util.Date;
 import java.util.List;
 import java.util.Scanner;
@@ -11,6 +13,7 @@ import javax.transaction.Transactional;
 import org.apache.commons.lang3.StringUtils;
 
 import de.bstreit.java.oscr.business.base.finance.money.Money;
+import de.bstreit.java.oscr.business.base.persistence.cache.ReferenceDataCache;
 import de.bstreit.java.oscr.business.offers.ProductOffer;
 import de.bstreit.java.oscr.business.offers.dao.IProductOfferRepository;
 
@@ -20,6 +23,9 @@ public class ProductModder implements IAdminBean {
 	@Inject
 	private IProductOfferRepository productOfferRepository;
 
+	@Inject
+	private ReferenceDataCache referenceDataCache;
+
 	private Scanner scanner;
 
 	@Override
@@ -39,10 +45,16 @@ public class ProductModder implements IAdminBean {
 
 		System.out.println(" -> " + selectedOldOffer);
 
+		if (selectedOldOffer.getValidTo() != null) {
+			System.out.println("There is already a change scheduled for "
+					+ selectedOldOffer.getValidTo());
+			throw new AbortedException();
+		}
+
 		final Money price = getPrice("price (gross)", false);
 		final Money costsNet = getPrice("costs (net)", true);
 
-		final Date changeDate = new Date();
+		final Date changeDate = getChangeDate();
 
 		final ProductOffer newProductOffer = new ProductOffer(
 				selectedOldOffer.getOfferedItem(), price, costsNet, changeDate,
@@ -52,6 +64,8 @@ public class ProductModder implements IAdminBean {
 
 		productOfferRepository.save(newProductOffer);
 		productOfferRepository.save(selectedOldOffer);
+
+		referenceDataCache.invalidate();
 	}
 
 	private ProductOffer selectProductOffer() {
@@ -96,6 +110,29 @@ public class ProductModder implements IAdminBean {
 		return new Money(amount, currencyCode);
 	}
 
+	/**
+	 * The new offer may become valid in the future, e.g. at midnight; the
+	 * register swaps it in at that point in time.
+	 */
+	private Date getChangeDate() {
+		final Date now = new Date();
+
+		System.out.println("Enter date and time of the change (Press enter for now): ");
+		final String dateAsStr = scanner.nextLine().trim();
+
+		if (StringUtils.isBlank(dateAsStr)) {
+			return now;
+		}
+
+		try {
+			final Date changeDate = DateFormat.getInstance().parse(dateAsStr);
+			return changeDate.before(now) ? now : changeDate;
+		} catch (final ParseException e) {
+			e.printStackTrace();
+			throw new AbortedException();
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "Modify a product";
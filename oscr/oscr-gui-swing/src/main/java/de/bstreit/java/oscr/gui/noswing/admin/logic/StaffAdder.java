@@ -8,6 +8,7 @@ import javax.inject.Named;
 
 import org.apache.commons.lang3.StringUtils;
 
+import de.bstreit.java.oscr.business.base.persistence.cache.ReferenceDataCache;
 import de.bstreit.java.oscr.business.staff.User;
 import de.bstreit.java.oscr.business.staff.dao.IUserRepository;
 
@@ -17,6 +18,9 @@ public class StaffAdder implements IAdminBean {
   @Inject
   private IUserRepository userRepository;
 
+  @Inject
+  private ReferenceDataCache referenceDataCache;
+
   private Scanner scanner;
 
 
@@ -45,6 +49,8 @@ public class StaffAdder implements IAdminBean {
     final User user = new User(loginName, fullName, customer);
 
     userRepository.save(user);
+
+    referenceDataCache.invalidate();
   }
 
   @Override
@@ -3,7 +3,6 @@ package de.bstreit.java.oscr.gui.noswing.admin.logic;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Date;
 import java.util.Scanner;
 
@@ -14,25 +13,17 @@ import javax.transaction.Transactional;
 import org.apache.commons.lang3.StringUtils;
 
 import de.bstreit.java.oscr.business.base.finance.tax.VATClass;
-import de.bstreit.java.oscr.business.bill.Bill;
-import de.bstreit.java.oscr.business.bill.BillService;
 import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
-import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculatorFactory;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
 import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
+import de.bstreit.java.oscr.business.bill.dailysummary.DailySummaryService;
 import de.bstreit.java.oscr.business.util.DateFactory;
-import de.bstreit.java.oscr.text.formatting.BillFormatter;
 
 @Named
 public class TotalsPrinter implements IAdminBean {
 
   @Inject
-  private BillService billService;
-
-  @Inject
-  private BillFormatter billFormatter;
-
-  @Inject
-  private IMultipleBillsCalculatorFactory multipleBillsCalculatorFactory;
+  private DailySummaryService dailySummaryService;
 
   private Scanner scanner;
 
@@ -40,7 +31,7 @@ public class TotalsPrinter implements IAdminBean {
   @Override
   @Transactional
   public void performTask() {
-    System.out.println("Which month (format MM.YYYY)? (blank for current Month): ");
+    System.out.println("Which month (format MM.YYYY) or year (format YYYY)? (blank for current Month): ");
     String monthAsStr = scanner.nextLine().trim();
 
     if (StringUtils.isBlank(monthAsStr)) {
@@ -48,6 +39,11 @@ public class TotalsPrinter implements IAdminBean {
       monthAsStr = (c.get(Calendar.MONTH) + 1) + "." + c.get(Calendar.YEAR);
     }
 
+    if (StringUtils.isNumeric(monthAsStr)) {
+      printYear(Integer.parseInt(monthAsStr));
+      return;
+    }
+
     Date firstOfMonth;
     try {
       firstOfMonth = DateFormat.getInstance().parse("01." + monthAsStr + " 00:00");
@@ -78,6 +74,25 @@ public class TotalsPrinter implements IAdminBean {
       printForOneDay(dateAsStr, day);
       System.out.println("");
     }
+
+    System.out.println("Month " + monthAsStr);
+    printTotals(dailySummaryService.getTotalsFor(firstOfMonth, lastOfMonthDate));
+    System.out.println("");
+  }
+
+  private void printYear(int year) {
+    for (int month = 1; month <= 12; month++) {
+      final Date firstOfMonth = DateFactory.getDateWithTimeMidnight(year, month, 1);
+      final Date firstOfNextMonth = DateFactory.getFirstOfNextMonthAtMidnight(firstOfMonth);
+
+      System.out.println("Month " + month + "." + year);
+      printTotals(dailySummaryService.getTotalsFor(firstOfMonth, firstOfNextMonth));
+      System.out.println("");
+    }
+
+    System.out.println("Year " + year);
+    printTotals(dailySummaryService.getTotalsFor(DateFactory.getDateWithTimeMidnight(year, 1, 1),
+        DateFactory.getDateWithTimeMidnight(year + 1, 1, 1)));
   }
 
   private void printForOneDay(String dateAsStr, final Date day) {
@@ -85,12 +100,13 @@ public class TotalsPrinter implements IAdminBean {
 
     System.out.println(dateAsStr);
 
-    Collection<Bill> bills = billService.getBillsForAllDay(day);
+    printTotals(dailySummaryService.getTotalsForDay(day));
+  }
 
-    print("Payment (money that was actually spent)",
-        multipleBillsCalculatorFactory.create(bills, WhatToCount.PAYMENT));
-    print("Promo total", multipleBillsCalculatorFactory.create(bills, WhatToCount.PROMO_TOTAL));
-    print("Total (payments + promo)", multipleBillsCalculatorFactory.create(bills, WhatToCount.TOTAL));
+  private void printTotals(IMultipleBillsTotals totals) {
+    print("Payment (money that was actually spent)", totals.get(WhatToCount.PAYMENT));
+    print("Promo total", totals.get(WhatToCount.PROMO_TOTAL));
+    print("Total (payments + promo)", totals.get(WhatToCount.TOTAL));
   }
 
   private void print(String label, IMultipleBillsCalculator calc) {
@@ -110,7 +126,7 @@ public class TotalsPrinter implements IAdminBean {
 
   @Override
   public String toString() {
-    return "Print Totals for a Month";
+    return "Print Totals for a Month or a Year";
   }
 
 }
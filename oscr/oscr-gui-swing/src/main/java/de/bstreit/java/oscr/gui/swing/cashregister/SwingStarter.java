@@ -7,6 +7,7 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import de.bstreit.java.oscr.SpringConfigurationDoesComponentScan;
+import de.bstreit.java.oscr.business.bill.BillService;
 import de.bstreit.java.oscr.business.export.IService;
 import de.bstreit.java.oscr.gui.swing.cashregister.ui.MainWindowController;
 
@@ -20,6 +21,8 @@ public class SwingStarter {
 
     final ConfigurableApplicationContext context = getContext();
 
+    context.getBean(BillService.class).recoverFromJournal();
+
     Map<String, IService> services = context
         .getBeansOfType(IService.class);
 
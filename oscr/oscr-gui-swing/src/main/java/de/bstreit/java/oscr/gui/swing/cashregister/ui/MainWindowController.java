@@ -26,7 +26,10 @@ import de.bstreit.java.oscr.business.bill.Bill;
 import de.bstreit.java.oscr.business.bill.BillItem;
 import de.bstreit.java.oscr.business.bill.BillService;
 import de.bstreit.java.oscr.business.bill.IMultipleBillsCalculator;
+import de.bstreit.java.oscr.business.bill.IMultipleBillsTotals;
+import de.bstreit.java.oscr.business.bill.calculator.WhatToCount;
 import de.bstreit.java.oscr.business.eventbroadcasting.BillChangeListener;
+import de.bstreit.java.oscr.business.eventbroadcasting.Delivery;
 import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
 import de.bstreit.java.oscr.business.offers.ExtraOffer;
 import de.bstreit.java.oscr.business.offers.ProductOffer;
@@ -72,7 +75,8 @@ public class MainWindowController implements BillChangeListener {
 
 	@PostConstruct
 	private void initController() {
-		eventBroadcaster.addBillChangeListener(this);
+		eventBroadcaster.addBillChangeListener(this,
+				Delivery.EVENT_DISPATCH_THREAD);
 		toGoTaxInfo = taxInfoRepository
 				.findByDenotationAndValidToIsNull("to go");
 		inHouseTaxInfo = taxInfoRepository
@@ -117,10 +121,13 @@ public class MainWindowController implements BillChangeListener {
 	public void printTodaysTotal() {
 		final StringBuilder sb = new StringBuilder();
 
-		addBills(billService.getTotalForToday(), "today", sb);
+		final IMultipleBillsTotals totalsForToday = billService
+				.getAllTotalsForToday();
 
-		final IMultipleBillsCalculator freePomotionTotalForToday = billService
-				.getFreePomotionTotalForToday();
+		addBills(totalsForToday.get(WhatToCount.TOTAL), "today", sb);
+
+		final IMultipleBillsCalculator freePomotionTotalForToday = totalsForToday
+				.get(WhatToCount.PROMO_TOTAL);
 		if (freePomotionTotalForToday.isFilled()) {
 			addBills(freePomotionTotalForToday, "promotion expenses for today",
 					sb);
@@ -131,10 +138,13 @@ public class MainWindowController implements BillChangeListener {
 				billFormatter.formatBill(bill)).append("\n\n\n"));
 
 		sb.append("\n\n").append(StringUtils.repeat("-", 80)).append("\n\n");
-		addBills(billService.getTotalForYesterday(), "yesterday", sb);
+		final IMultipleBillsTotals totalsForYesterday = billService
+				.getAllTotalsForYesterday();
+
+		addBills(totalsForYesterday.get(WhatToCount.TOTAL), "yesterday", sb);
 
-		final IMultipleBillsCalculator freePomotionTotalForYesterday = billService
-				.getFreePomotionTotalForYesterday();
+		final IMultipleBillsCalculator freePomotionTotalForYesterday = totalsForYesterday
+				.get(WhatToCount.PROMO_TOTAL);
 		if (freePomotionTotalForYesterday.isFilled()) {
 			addBills(freePomotionTotalForYesterday,
 					"promotion expenses for yesterday", sb);
@@ -195,6 +205,10 @@ public class MainWindowController implements BillChangeListener {
 		billService.undoLastAction();
 	}
 
+	public void redoLastUndoneAction() {
+		billService.redoLastUndoneAction();
+	}
+
 	/**
 	 * Notify that the app is supposed to shut down
 	 */
@@ -291,11 +305,11 @@ public class MainWindowController implements BillChangeListener {
 	}
 
 	public int getNumberOfOpenBills() {
-		return billService.getOpenBills().size();
+		return billService.getNumberOfOpenBills();
 	}
 
 	public boolean hasOpenBills() {
-		return !billService.getOpenBills().isEmpty();
+		return billService.hasOpenBills();
 	}
 
 }
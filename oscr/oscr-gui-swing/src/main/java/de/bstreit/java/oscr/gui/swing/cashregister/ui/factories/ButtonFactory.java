@@ -5,12 +5,15 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
 import javax.swing.JToggleButton;
@@ -19,8 +22,11 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
 
 import de.bstreit.java.oscr.business.bill.Bill;
+import de.bstreit.java.oscr.business.eventbroadcasting.BillChangeListener;
+import de.bstreit.java.oscr.business.eventbroadcasting.Delivery;
 import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
 import de.bstreit.java.oscr.business.eventbroadcasting.OfferChangeListener;
 import de.bstreit.java.oscr.business.offers.AbstractOffer;
@@ -36,6 +42,9 @@ import de.bstreit.java.oscr.gui.swing.cashregister.ui.MainWindowController;
 @Named
 public class ButtonFactory {
 
+  private static final String LISTENERS_PROPERTY = ButtonFactory.class
+      .getName() + ".listeners";
+
   @Inject
   private MainWindowController appController;
 
@@ -66,20 +75,33 @@ public class ButtonFactory {
     final JButton button = new JButton(productOffer.getLabel());
     setDefaults(button);
 
-    button.addActionListener(e -> appController.addToBill(productOffer));
+    // replaced when a new version of the offer becomes active
+    final AtomicReference<ProductOffer> currentOffer = new AtomicReference<ProductOffer>(
+        productOffer);
+
+    button.addActionListener(e -> appController.addToBill(currentOffer.get()));
 
-    eventBroadcaster.addListener(new OfferChangeListener() {
+    final OfferChangeListener offerChangeListener = new OfferChangeListener() {
 
       @Override
       public void offerUpdated(AbstractOffer<?> oldItem,
           AbstractOffer<?> newItem) {
 
-        // TODO: remove old action listener!!
+        if (!oldItem.equals(currentOffer.get())) {
+          return;
+        }
+
+        currentOffer.set((ProductOffer) newItem);
         button.setText(newItem.getLabel());
       }
 
       @Override
       public void offerDeleted(AbstractOffer<?> item) {
+
+        if (!item.equals(currentOffer.get())) {
+          return;
+        }
+
         button.setEnabled(false);
         button.setToolTipText("This offer has been deleted");
       }
@@ -88,13 +110,45 @@ public class ButtonFactory {
       public void offerCreated(AbstractOffer<?> newItem) {
 
       }
-    });
+    };
+    keepWith(button, offerChangeListener);
+    eventBroadcaster.addWeakListener(offerChangeListener,
+        Delivery.EVENT_DISPATCH_THREAD);
 
     setColourIfNotEmpty(button, productOffer);
 
     return button;
   }
 
+  /**
+   * The buttons are changed in the event dispatch thread only. The listener
+   * is notified as long as the component exists - a button panel that is
+   * built again does not leave listeners behind.
+   */
+  private void addBillChangeListener(JComponent component,
+      BillChangeListener billChangeListener) {
+    keepWith(component, billChangeListener);
+    eventBroadcaster.addWeakBillChangeListener(billChangeListener,
+        Delivery.EVENT_DISPATCH_THREAD);
+  }
+
+  /**
+   * The broadcaster holds the listeners of the buttons weakly, so the button
+   * keeps them.
+   */
+  private static void keepWith(JComponent component, Object listener) {
+    @SuppressWarnings("unchecked")
+    List<Object> listeners = (List<Object>) component
+        .getClientProperty(LISTENERS_PROPERTY);
+
+    if (listeners == null) {
+      listeners = Lists.newArrayList();
+      component.putClientProperty(LISTENERS_PROPERTY, listeners);
+    }
+
+    listeners.add(listener);
+  }
+
   private void setDefaults(JButton button) {
     button.setMinimumSize(new Dimension(0, 40));
     button.setPreferredSize(new Dimension(120, 40));
@@ -128,7 +182,7 @@ public class ButtonFactory {
 
     button.addActionListener(e -> appController.setVariationOffer(offer));
 
-    eventBroadcaster.addBillChangeListener(newBill -> button
+    addBillChangeListener(button, newBill -> button
         .setEnabled(newBill.isPresent() && !newBill.get().isEmpty()));
     button.setEnabled(false);
 
@@ -141,7 +195,7 @@ public class ButtonFactory {
 
     button.addActionListener(e -> appController.setPromoOffer(offer));
 
-    eventBroadcaster.addBillChangeListener(newBill -> button
+    addBillChangeListener(button, newBill -> button
         .setEnabled(newBill.isPresent() && !newBill.get().isEmpty()
             && !newBill.get().isConsumedByStaff()
             && !newBill.get().isFreePromotionOffer()
@@ -160,7 +214,7 @@ public class ButtonFactory {
 
     button.addActionListener(e -> appController.addExtraOffer(offer));
 
-    eventBroadcaster.addBillChangeListener(newBill -> button
+    addBillChangeListener(button, newBill -> button
         .setEnabled(newBill.isPresent() && !newBill.get().isEmpty()));
     button.setEnabled(false);
 
@@ -225,7 +279,7 @@ public class ButtonFactory {
       final Predicate<Optional<Bill>> enabledPredicate,
       final Predicate<Bill> selectedPredicate) {
 
-    eventBroadcaster.addBillChangeListener(newBill -> {
+    addBillChangeListener(toggleButton, newBill -> {
 
       toggleButton.setEnabled(enabledPredicate.apply(newBill));
 
@@ -317,10 +371,8 @@ public class ButtonFactory {
 
     final PopupListener popupListener = new PopupListener(popupMenu);
 
-    eventBroadcaster
-        .addBillChangeListener(newBill -> popupListener
-            .setActive(getStaffConsumptionIsEnabledLambda().apply(
-                newBill)));
+    addBillChangeListener(staffConsumptionButton, newBill -> popupListener
+        .setActive(getStaffConsumptionIsEnabledLambda().apply(newBill)));
 
     staffConsumptionButton.addMouseListener(popupListener);
   }
@@ -359,7 +411,7 @@ public class ButtonFactory {
     payButton.addActionListener(e -> appController.closeBill());
     payButton.setMinimumSize(new Dimension(0, 40));
 
-    eventBroadcaster.addBillChangeListener(newBill -> payButton
+    addBillChangeListener(payButton, newBill -> payButton
         .setEnabled(newBill.isPresent() && !newBill.get().isEmpty()));
     payButton.setEnabled(false);
 
@@ -371,7 +423,7 @@ public class ButtonFactory {
     newBillButton.addActionListener(e -> appController.newBill());
     newBillButton.setMinimumSize(new Dimension(0, 40));
 
-    eventBroadcaster.addBillChangeListener(newBill -> newBillButton
+    addBillChangeListener(newBillButton, newBill -> newBillButton
         .setEnabled(newBill.isPresent() && !newBill.get().isEmpty()));
     newBillButton.setEnabled(false);
 
@@ -382,8 +434,8 @@ public class ButtonFactory {
     final JButton showOpenBillsButton = new JButton(showOpenBillsAction);
     showOpenBillsButton.setMinimumSize(new Dimension(0, 40));
 
-    eventBroadcaster.addBillChangeListener(newBill -> showOpenBillsButton
-        .setEnabled(appController.hasOpenBills()));
+    addBillChangeListener(showOpenBillsButton,
+        newBill -> showOpenBillsButton.setEnabled(appController.hasOpenBills()));
     showOpenBillsButton.setEnabled(appController.hasOpenBills());
 
     return showOpenBillsButton;
@@ -3,7 +3,7 @@ package de.bstreit.java.oscr.gui.swing.cashregister.ui.factories;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.GridLayout;
-import java.util.Collection;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -15,13 +15,11 @@ import javax.swing.JPopupMenu;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 
+import de.bstreit.java.oscr.business.offers.ActiveOffers;
 import de.bstreit.java.oscr.business.offers.ExtraOffer;
+import de.bstreit.java.oscr.business.offers.OfferService;
 import de.bstreit.java.oscr.business.offers.ProductOffer;
 import de.bstreit.java.oscr.business.offers.VariationOffer;
-import de.bstreit.java.oscr.business.offers.dao.IExtraOfferRepository;
-import de.bstreit.java.oscr.business.offers.dao.IProductOfferRepository;
-import de.bstreit.java.oscr.business.offers.dao.IPromoOfferRepository;
-import de.bstreit.java.oscr.business.offers.dao.IVariationOfferRepository;
 import de.bstreit.java.oscr.business.products.category.ProductCategory;
 import de.bstreit.java.oscr.business.products.category.dao.IProductCategoryRepository;
 import de.bstreit.java.oscr.gui.swing.cashregister.ui.MainWindowController;
@@ -33,16 +31,7 @@ public class ButtonPanelFactory {
 	private MainWindowController appController;
 
 	@Inject
-	private IProductOfferRepository productOfferRep;
-
-	@Inject
-	private IExtraOfferRepository extraOfferRepository;
-
-	@Inject
-	private IPromoOfferRepository promoOfferRepository;
-
-	@Inject
-	private IVariationOfferRepository variationOfferRepository;
+	private OfferService offerService;
 
 	@Inject
 	private IProductCategoryRepository productCategoryRepository;
@@ -58,6 +47,9 @@ public class ButtonPanelFactory {
 
 	private ProductCategory weeklyCategory;
 
+	/** the offers the panels are built from, taken once per build */
+	private ActiveOffers activeOffers;
+
 	private JPanel buttonPanel;
 	private JPanel weeklyAndDrinksPanel;
 	private JPanel drinksPanel;
@@ -76,6 +68,8 @@ public class ButtonPanelFactory {
 						.findByName(weeklyCategoryAsString);
 			}
 
+			activeOffers = offerService.getActiveOffers();
+
 			initJPanel();
 
 			buildAndAddWeeklyPanelToMainPanel();
@@ -86,6 +80,7 @@ public class ButtonPanelFactory {
 		} finally {
 			buttonPanel = null;
 			drinksPanel = null;
+			activeOffers = null;
 			// Keep weekly panel so we can refresh it
 			// weeklyPanel = null;
 		}
@@ -109,8 +104,8 @@ public class ButtonPanelFactory {
 			return;
 		}
 
-		final Collection<ProductOffer> allActiveOffers = productOfferRep
-				.findActiveOffersByProductCategory(weeklyCategory);
+		final List<ProductOffer> allActiveOffers = activeOffers
+				.getProductOffers(weeklyCategory);
 
 		if (allActiveOffers.isEmpty()) {
 			return;
@@ -142,34 +137,32 @@ public class ButtonPanelFactory {
 		final int cols = 5;
 		drinksPanel.setLayout(new GridLayout(rows, cols, 3, 3));
 
-		final Collection<ProductOffer> allActiveOffers;
+		final List<ProductOffer> allActiveOffers;
 		if (weeklyCategory != null) {
-			allActiveOffers = productOfferRep
-					.findActiveOffersByIsNotProductCategory(weeklyCategory);
+			allActiveOffers = activeOffers.getProductOffersExcept(weeklyCategory);
 		} else {
-			allActiveOffers = productOfferRep.findAllActiveOffers();
+			allActiveOffers = activeOffers.getProductOffers();
 		}
 
 		for (final ProductOffer offer : allActiveOffers) {
 			drinksPanel.add(buttonFactory.createButtonFor(offer));
 		}
 
-		final Collection<VariationOffer> allVariationOffers = variationOfferRepository
-				.findAllActiveOffers();
+		final List<VariationOffer> allVariationOffers = activeOffers
+				.getVariationOffers();
 
 		for (final VariationOffer variationOffer : allVariationOffers) {
 			drinksPanel.add(buttonFactory.createButtonFor(variationOffer));
 		}
 
-		final Collection<ExtraOffer> allExtraOffers = extraOfferRepository
-				.findAllActiveOffers();
+		final List<ExtraOffer> allExtraOffers = activeOffers.getExtraOffers();
 
 		for (final ExtraOffer extraOffer : allExtraOffers) {
 			drinksPanel.add(buttonFactory.createButtonFor(extraOffer));
 		}
 
-		promoOfferRepository
-		.findAllActiveOffers()
+		activeOffers
+		.getPromoOffers()
 		.stream()
 		.forEach(o -> drinksPanel.add(buttonFactory.createButtonFor(o)));
 
@@ -181,6 +174,7 @@ public class ButtonPanelFactory {
 		controlButtonsPanel.setLayout(new GridLayout(6, 1, 0, 0));
 
 		addUndoButton(controlButtonsPanel);
+		addRedoButton(controlButtonsPanel);
 		addShowOpenBillsButton(controlButtonsPanel);
 		addNewBillButton(controlButtonsPanel);
 		addPayButton(controlButtonsPanel);
@@ -200,6 +194,13 @@ public class ButtonPanelFactory {
 		controlButtonsPanel.add(undoButton);
 	}
 
+	private void addRedoButton(final JPanel controlButtonsPanel) {
+		final JButton redoButton = new JButton("Redo");
+		redoButton.addActionListener(e -> appController.redoLastUndoneAction());
+		redoButton.setMinimumSize(new Dimension(0, 40));
+		controlButtonsPanel.add(redoButton);
+	}
+
 	private void addShowOpenBillsButton(final JPanel controlButtonsPanel) {
 		controlButtonsPanel.add(buttonFactory
 				.createShowOpenBillsButton(showOpenBillsAction));
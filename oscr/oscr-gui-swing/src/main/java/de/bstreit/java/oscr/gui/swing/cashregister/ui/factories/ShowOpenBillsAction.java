@@ -11,6 +11,7 @@ import com.google.common.base.Optional;
 
 import de.bstreit.java.oscr.business.bill.Bill;
 import de.bstreit.java.oscr.business.eventbroadcasting.BillChangeListener;
+import de.bstreit.java.oscr.business.eventbroadcasting.Delivery;
 import de.bstreit.java.oscr.business.eventbroadcasting.EventBroadcaster;
 import de.bstreit.java.oscr.gui.swing.cashregister.ui.MainWindowController;
 
@@ -28,7 +29,8 @@ BillChangeListener {
 
 	@PostConstruct
 	public void init() {
-		eventBroadcaster.addBillChangeListener(this);
+		eventBroadcaster.addBillChangeListener(this,
+				Delivery.EVENT_DISPATCH_THREAD);
 	}
 
 	@Override
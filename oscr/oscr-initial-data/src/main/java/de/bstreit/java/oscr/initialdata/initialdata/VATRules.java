@@ -0,0 +1,76 @@
+/*
+ * Open Source Cash Register
+ * 
+ * Copyright (C) 2013, 2014 Bernhard Streit
+ * 
+ * This file is part of the Open Source Cash Register program.
+ * 
+ * Open Source Cash Register is free software: you can redistribute it 
+ * and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version.
+ * 
+ * Open Source Cash Register is distributed in the hope that it will 
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied 
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *  
+ * --------------------------------------------------------------------------
+ *  
+ * See oscr/licenses/gpl-3.txt for a copy of the GNU GPL.
+ * See oscr/README.txt for more information about the software and the author(s).
+ * 
+ */
+package de.bstreit.java.oscr.initialdata.initialdata;
+
+import javax.inject.Named;
+
+import de.bstreit.java.oscr.business.taxation.VATRule;
+import de.bstreit.java.oscr.initialdata.AbstractDataContainer;
+
+/**
+ * The same rules as the simple VAT finder: reduced VAT for "to go" and for
+ * food sales, normal VAT otherwise.
+ */
+@Named
+public class VATRules extends AbstractDataContainer<VATRule> {
+
+  private static final String NORMAL = VATClasses.normalTax.getName();
+  private static final String REDUCED = VATClasses.reducedTax.getName();
+
+  public static final VATRule DEFAULT = new VATRule(null, null, null, NORMAL,
+      ValidityDates.VALID_FROM_DATE, ValidityDates.VALID_TO_DATE);
+
+  public static final VATRule TO_GO = new VATRule(TaxInfos.TO_GO.getDenotation(),
+      null, null, REDUCED, ValidityDates.VALID_FROM_DATE,
+      ValidityDates.VALID_TO_DATE);
+
+  public static final VATRule FOOD_SALE = new VATRule(
+      TaxInfos.FOOD_SALE.getDenotation(), null, null, REDUCED,
+      ValidityDates.VALID_FROM_DATE, ValidityDates.VALID_TO_DATE);
+
+  public static final VATRule OVERRIDDEN_TO_GO = new VATRule(null, null,
+      TaxInfos.TO_GO.getDenotation(), REDUCED, ValidityDates.VALID_FROM_DATE,
+      ValidityDates.VALID_TO_DATE);
+
+  public static final VATRule OVERRIDDEN_FOOD_SALE = new VATRule(null, null,
+      TaxInfos.FOOD_SALE.getDenotation(), REDUCED,
+      ValidityDates.VALID_FROM_DATE, ValidityDates.VALID_TO_DATE);
+
+  public static final VATRule OVERRIDDEN_IN_HOUSE = new VATRule(null, null,
+      TaxInfos.IN_HOUSE.getDenotation(), NORMAL, ValidityDates.VALID_FROM_DATE,
+      ValidityDates.VALID_TO_DATE);
+
+  public static final VATRule OVERRIDDEN_NON_FOOD = new VATRule(null, null,
+      TaxInfos.NON_FOOD.getDenotation(), NORMAL, ValidityDates.VALID_FROM_DATE,
+      ValidityDates.VALID_TO_DATE);
+
+
+  @Override
+  public Class<VATRule> getType() {
+    return VATRule.class;
+  }
+}